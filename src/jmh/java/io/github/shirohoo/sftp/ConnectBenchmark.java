@@ -0,0 +1,58 @@
+package io.github.shirohoo.sftp;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Latency of an operation on a cold client, which includes the TCP connect, key exchange, authentication and channel open, compared with the same operation on a warm pooled client.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ConnectBenchmark {
+
+    private EmbeddedSftpServer server;
+
+    private SftpClient warmClient;
+
+    private String targetPath;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = EmbeddedSftpServer.start();
+        targetPath = server.createFile("connect.bin", 1);
+        warmClient = new DefaultSftpClient(server.properties().build());
+        warmClient.readContent(targetPath).close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        warmClient.close();
+        server.close();
+    }
+
+    @Benchmark
+    public long coldConnect() throws Exception {
+        try (SftpClient client = new DefaultSftpClient(server.properties().build());
+             RemoteContent content = client.readContent(targetPath)) {
+            return content.size();
+        }
+    }
+
+    @Benchmark
+    public long pooledConnect() throws Exception {
+        try (RemoteContent content = warmClient.readContent(targetPath)) {
+            return content.size();
+        }
+    }
+
+}
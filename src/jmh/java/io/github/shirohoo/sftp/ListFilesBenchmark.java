@@ -0,0 +1,76 @@
+package io.github.shirohoo.sftp;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Directory downloads across directory sizes, serial and over several channels.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ListFilesBenchmark {
+
+    private static final String DIRECTORY = "list";
+
+    @Param({"10", "1000"})
+    public int fileCount;
+
+    @Param({"1024"})
+    public long fileSize;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private EmbeddedSftpServer server;
+
+    private SftpClient client;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = EmbeddedSftpServer.start();
+        for (int i = 0; i < fileCount; i++) {
+            server.createFile(DIRECTORY + "/file-" + i + ".bin", fileSize);
+        }
+        client = new DefaultSftpClient(server.properties()
+            .parallelism(parallelism)
+            .build());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public int listFiles() throws Exception {
+        final List<File> files = client.listFiles(DIRECTORY);
+        files.forEach(File::delete);
+        return files.size();
+    }
+
+    @Benchmark
+    public long streamFiles() throws Exception {
+        try (Stream<File> files = client.streamFiles(DIRECTORY)) {
+            return files.mapToLong(file -> {
+                file.delete();
+                return 1L;
+            }).sum();
+        }
+    }
+
+}
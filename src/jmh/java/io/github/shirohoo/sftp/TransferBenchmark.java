@@ -0,0 +1,127 @@
+package io.github.shirohoo.sftp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Single file transfers across file sizes. The bytes counter reports transfer throughput in bytes per second next to the operation rate. Use compression with content=text to see when session or gzip payload compression pays off; on
+ * localhost the link is never the bottleneck, so compression mostly shows its CPU cost here unless bandwidthLimit simulates a slow link. The limit counts the bytes of the remote file, so it applies to gzip payloads after compression
+ * but to session compression before it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TransferBenchmark {
+
+    @Param({"1024", "1048576", "104857600", "1073741824"})
+    public long fileSize;
+
+    @Param({"1"})
+    public int segmentParallelism;
+
+    @Param({"random"})
+    public String content;
+
+    @Param({"none"})
+    public String compression;
+
+    @Param({"0"})
+    public long bandwidthLimit;
+
+    private EmbeddedSftpServer server;
+
+    private SftpClient client;
+
+    private String targetPath;
+
+    private File localFile;
+
+    private Path downloadPath;
+
+    private String sourcePath;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = EmbeddedSftpServer.start();
+        targetPath = "text".equals(content) ? server.createTextFile("transfer/source.bin", fileSize) : server.createFile("transfer/source.bin", fileSize);
+        localFile = server.getHome().resolve("transfer/source.bin").toFile();
+        downloadPath = Files.createTempDirectory("sftp-benchmark-download-").resolve("download.bin");
+        client = new DefaultSftpClient(server.properties()
+            .segmentParallelism(segmentParallelism)
+            .sessionCompression("session".equals(compression))
+            .payloadCompression("gzip".equals(compression) ? PayloadCompression.GZIP : PayloadCompression.NONE)
+            .bandwidthLimit(bandwidthLimit)
+            .build());
+        sourcePath = targetPath;
+        if ("gzip".equals(compression)) {
+            sourcePath = "transfer/source.bin.gz";
+            client.upload(sourcePath, localFile);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+        Files.deleteIfExists(downloadPath);
+        Files.deleteIfExists(downloadPath.getParent());
+    }
+
+    @Benchmark
+    public long read(final TransferredBytes bytes) throws Exception {
+        final File file = client.read(sourcePath);
+        bytes.bytes += file.length();
+        file.delete();
+        return fileSize;
+    }
+
+    @Benchmark
+    public long readContent(final TransferredBytes bytes) throws Exception {
+        try (RemoteContent content = client.readContent(sourcePath)) {
+            bytes.bytes += content.size();
+            return content.size();
+        }
+    }
+
+    @Benchmark
+    public boolean upload(final TransferredBytes bytes) throws Exception {
+        final boolean uploaded = client.upload("transfer/uploaded.bin", localFile);
+        bytes.bytes += fileSize;
+        return uploaded;
+    }
+
+    @Benchmark
+    public boolean download(final TransferredBytes bytes) throws Exception {
+        final boolean downloaded = client.download(sourcePath, downloadPath);
+        bytes.bytes += fileSize;
+        return downloaded;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class TransferredBytes {
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,170 @@
+package io.github.shirohoo.sftp;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of SftpClient. Every operation runs the matching SftpClient operation on an executor and returns a CompletableFuture of its result. When too many operations are already in flight, the returned future fails with a
+ * RejectedExecutionException instead of queueing without bound.
+ * <p>
+ * The SftpClient methods that return an open stream or channel, openRead, openReadChannel, openWrite, streamFiles and the paged listEntries, have no asynchronous version. Their blocking reads and writes happen on the caller thread
+ * after the future would have completed, and the pooled channel they hold would no longer count against the operations running at the same time. Call them on SftpClient from a thread of your own instead.
+ */
+public interface AsyncSftpClient extends Closeable {
+
+    /**
+     * Asynchronous version of SftpClient.read.
+     *
+     * @param targetPath String
+     * @return CompletableFuture {@literal <}File{@literal >}
+     */
+    CompletableFuture<File> read(final String targetPath);
+
+    /**
+     * Asynchronous version of SftpClient.readContent.
+     *
+     * @param targetPath String
+     * @return CompletableFuture {@literal <}RemoteContent{@literal >}
+     */
+    CompletableFuture<RemoteContent> readContent(final String targetPath);
+
+    /**
+     * Asynchronous version of SftpClient.listFiles.
+     *
+     * @param targetDirPath String
+     * @return CompletableFuture {@literal <}List {@literal <}File{@literal >}{@literal >}
+     */
+    CompletableFuture<List<File>> listFiles(final String targetDirPath);
+
+    /**
+     * Asynchronous version of SftpClient.listFilesWithResult.
+     *
+     * @param targetDirPath String
+     * @return CompletableFuture {@literal <}BatchResult {@literal <}File{@literal >}{@literal >}
+     */
+    CompletableFuture<BatchResult<File>> listFilesWithResult(final String targetDirPath);
+
+    /**
+     * Asynchronous version of SftpClient.listEntries.
+     *
+     * @param targetDirPath String
+     * @param options       ListOptions
+     * @return CompletableFuture {@literal <}List {@literal <}RemoteEntry{@literal >}{@literal >}
+     */
+    CompletableFuture<List<RemoteEntry>> listEntries(final String targetDirPath, final ListOptions options);
+
+    /**
+     * Asynchronous version of SftpClient.upload.
+     *
+     * @param targetPath String
+     * @param uploadFile File
+     * @return CompletableFuture {@literal <}Boolean{@literal >}
+     */
+    CompletableFuture<Boolean> upload(final String targetPath, final File uploadFile);
+
+    /**
+     * Asynchronous version of SftpClient.uploadWithResult.
+     *
+     * @param targetPath String
+     * @param uploadFile File
+     * @return CompletableFuture {@literal <}TransferResult{@literal >}
+     */
+    CompletableFuture<TransferResult> uploadWithResult(final String targetPath, final File uploadFile);
+
+    /**
+     * Asynchronous version of SftpClient.upload.
+     *
+     * @param targetPath       String
+     * @param uploadFileStream InputStream
+     * @return CompletableFuture {@literal <}Boolean{@literal >}
+     */
+    CompletableFuture<Boolean> upload(final String targetPath, final InputStream uploadFileStream);
+
+    /**
+     * Asynchronous version of SftpClient.uploadAll.
+     *
+     * @param uploadItems Collection {@literal <}UploadItem{@literal >}
+     * @return CompletableFuture {@literal <}BatchResult {@literal <}Long{@literal >}{@literal >}
+     */
+    CompletableFuture<BatchResult<Long>> uploadAll(final Collection<UploadItem> uploadItems);
+
+    /**
+     * Asynchronous version of SftpClient.remove.
+     *
+     * @param targetPath String
+     * @return CompletableFuture {@literal <}Boolean{@literal >}
+     */
+    CompletableFuture<Boolean> remove(final String targetPath);
+
+    /**
+     * Asynchronous version of SftpClient.removeAll.
+     *
+     * @param targetPaths Collection {@literal <}String{@literal >}
+     * @return CompletableFuture {@literal <}BatchResult {@literal <}RemoteEntry.Type{@literal >}{@literal >}
+     */
+    CompletableFuture<BatchResult<RemoteEntry.Type>> removeAll(final Collection<String> targetPaths);
+
+    /**
+     * Asynchronous version of SftpClient.removeAll.
+     *
+     * @param targetDirPath String
+     * @param options       ListOptions
+     * @return CompletableFuture {@literal <}BatchResult {@literal <}RemoteEntry.Type{@literal >}{@literal >}
+     */
+    CompletableFuture<BatchResult<RemoteEntry.Type>> removeAll(final String targetDirPath, final ListOptions options);
+
+    /**
+     * Asynchronous version of SftpClient.removeDirectory.
+     *
+     * @param targetDirPath String
+     * @return CompletableFuture {@literal <}BatchResult {@literal <}RemoteEntry.Type{@literal >}{@literal >}
+     */
+    CompletableFuture<BatchResult<RemoteEntry.Type>> removeDirectory(final String targetDirPath);
+
+    /**
+     * Asynchronous version of SftpClient.download.
+     *
+     * @param targetPath   String
+     * @param downloadPath Path
+     * @return CompletableFuture {@literal <}Boolean{@literal >}
+     */
+    CompletableFuture<Boolean> download(final String targetPath, final Path downloadPath);
+
+    /**
+     * Asynchronous version of SftpClient.downloadWithResult.
+     *
+     * @param targetPath   String
+     * @param downloadPath Path
+     * @return CompletableFuture {@literal <}TransferResult{@literal >}
+     */
+    CompletableFuture<TransferResult> downloadWithResult(final String targetPath, final Path downloadPath);
+
+    /**
+     * Asynchronous version of SftpClient.sync.
+     *
+     * @param remoteDirPath String
+     * @param localDirPath  Path
+     * @param options       SyncOptions
+     * @return CompletableFuture {@literal <}BatchResult {@literal <}SyncAction{@literal >}{@literal >}
+     */
+    CompletableFuture<BatchResult<SyncAction>> sync(final String remoteDirPath, final Path localDirPath, final SyncOptions options);
+
+    /**
+     * Number of operations that have been accepted and are not completed yet.
+     *
+     * @return int
+     */
+    int getInFlightCount();
+
+    /**
+     * Close the underlying SftpClient and the default executor, if one was created.
+     */
+    @Override
+    void close();
+
+}
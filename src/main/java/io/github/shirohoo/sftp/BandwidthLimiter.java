@@ -0,0 +1,176 @@
+package io.github.shirohoo.sftp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket that limits the byte rate of every transfer sharing it. Transfers acquire bytes per sftp packet and a caller that finds the bucket empty reserves its bytes and waits for them, so concurrent transfers are served in
+ * packet-sized turns instead of the largest one draining the bucket. The rate can be changed at any time; 0 means unlimited and costs a single volatile read per packet.
+ * <p>
+ * The global and per-host limiters are static and shared by every client in the JVM, including clients of unrelated components that connect to the same host. The rate of a per-host limiter is the lowest of the rate set with
+ * setBytesPerSecond and the SftpProperties.bandwidthLimit of every open client of the host, so no client gets more than it asked for whatever order they are created in; 0 sets no limit. A per-host limiter is dropped once no client
+ * of the host is open and its rate is unlimited.
+ */
+public final class BandwidthLimiter {
+
+    private static final BandwidthLimiter GLOBAL = new BandwidthLimiter(0);
+
+    private static final Map<String, BandwidthLimiter> HOSTS = new ConcurrentHashMap<>();
+
+    /**
+     * Burst allowed after an idle period, as a fraction of one second of the rate. Kept small because partners treat bursts as abuse.
+     */
+    private static final int BURST_DIVISOR = 10;
+
+    private final String host;
+
+    /**
+     * bandwidthLimit of each open client of host, guarded by the HOSTS entry of host like setBytesPerSecond.
+     */
+    private final List<Long> clientBytesPerSecond = new ArrayList<>();
+
+    private long configuredBytesPerSecond;
+
+    private volatile long bytesPerSecond;
+
+    private double availableBytes;
+
+    private long refilledAt = System.nanoTime();
+
+    public BandwidthLimiter(long bytesPerSecond) {
+        this(null, bytesPerSecond);
+    }
+
+    private BandwidthLimiter(String host, long bytesPerSecond) {
+        this.host = host;
+        this.configuredBytesPerSecond = Math.max(bytesPerSecond, 0);
+        this.bytesPerSecond = configuredBytesPerSecond;
+    }
+
+    /**
+     * Limiter shared by every transfer of every client in this JVM. Unlimited until a rate is set.
+     */
+    public static BandwidthLimiter global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Limiter shared by every transfer to the host, across clients. Unlimited until a rate is set, either here or with SftpProperties.bandwidthLimit.
+     */
+    public static BandwidthLimiter forHost(final String host) {
+        return HOSTS.computeIfAbsent(Objects.requireNonNull(host, "host"), key -> new BandwidthLimiter(key, 0));
+    }
+
+    /**
+     * Limiter for a client of the host that limits the host to at most bytesPerSecond until the client unregisters with the same value. A client without a host gets a limiter of its own.
+     *
+     * @param bytesPerSecond long, 0 sets no limit
+     */
+    static BandwidthLimiter register(final String host, final long bytesPerSecond) {
+        if (host == null) {
+            return new BandwidthLimiter(bytesPerSecond);
+        }
+        return HOSTS.compute(host, (key, limiter) -> {
+            final BandwidthLimiter registered = limiter == null ? new BandwidthLimiter(key, 0) : limiter;
+            registered.clientBytesPerSecond.add(Math.max(bytesPerSecond, 0));
+            registered.applyLowestRate();
+            return registered;
+        });
+    }
+
+    void unregister(final long bytesPerSecond) {
+        if (host != null) {
+            HOSTS.computeIfPresent(host, (key, limiter) -> {
+                if (limiter == this && clientBytesPerSecond.remove(Long.valueOf(Math.max(bytesPerSecond, 0)))) {
+                    applyLowestRate();
+                }
+                return limiter.isUnused() ? null : limiter;
+            });
+        }
+    }
+
+    private boolean isUnused() {
+        return clientBytesPerSecond.isEmpty() && isUnlimited();
+    }
+
+    private void applyLowestRate() {
+        long lowest = configuredBytesPerSecond;
+        for (long rate : clientBytesPerSecond) {
+            if (rate > 0 && (lowest == 0 || rate < lowest)) {
+                lowest = rate;
+            }
+        }
+        setRate(lowest);
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * On a per-host limiter the rate set here is capped by the bandwidthLimit of the open clients of the host. A per-host limiter that was dropped while unused is put back when a rate is set on it, unless another limiter took its place.
+     *
+     * @param bytesPerSecond long, 0 means unlimited
+     */
+    public void setBytesPerSecond(final long bytesPerSecond) {
+        if (host == null) {
+            setRate(bytesPerSecond);
+            return;
+        }
+        HOSTS.compute(host, (key, limiter) -> {
+            configuredBytesPerSecond = Math.max(bytesPerSecond, 0);
+            applyLowestRate();
+            return limiter != null && limiter != this ? limiter : isUnused() ? null : this;
+        });
+    }
+
+    private synchronized void setRate(final long bytesPerSecond) {
+        this.bytesPerSecond = Math.max(bytesPerSecond, 0);
+        this.availableBytes = Math.min(availableBytes, getCapacity(this.bytesPerSecond));
+        this.refilledAt = System.nanoTime();
+    }
+
+    public boolean isUnlimited() {
+        return bytesPerSecond == 0;
+    }
+
+    /**
+     * Take bytes from the bucket, waiting until they are available. Returns early with the interrupt flag set when the thread was interrupted while waiting, and leaves failing the transfer to the caller.
+     */
+    void acquire(final long bytes) {
+        final long rate = bytesPerSecond;
+        if (rate == 0 || bytes <= 0) {
+            return;
+        }
+        final long waitNanos;
+        synchronized (this) {
+            final long now = System.nanoTime();
+            availableBytes = Math.min(availableBytes + (now - refilledAt) * rate / 1e9, getCapacity(rate));
+            refilledAt = now;
+            availableBytes -= bytes;
+            waitNanos = availableBytes >= 0 ? 0 : (long) (-availableBytes * 1e9 / rate);
+        }
+        if (waitNanos == 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static double getCapacity(final long rate) {
+        return Math.max(rate / (double) BURST_DIVISOR, 1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BandwidthLimiter{bytesPerSecond=%d}", bytesPerSecond);
+    }
+
+}
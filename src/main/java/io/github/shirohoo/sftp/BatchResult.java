@@ -0,0 +1,54 @@
+package io.github.shirohoo.sftp;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-item outcome of an operation that handles many remote paths at once. Both maps are keyed by path and keep the order in which the paths were requested.
+ *
+ * @param <T> result type of a succeeded item
+ */
+public final class BatchResult<T> {
+
+    private final Map<String, T> succeeded;
+
+    private final Map<String, Exception> failed;
+
+    private BatchResult(Map<String, T> succeeded, Map<String, Exception> failed) {
+        this.succeeded = Collections.unmodifiableMap(succeeded);
+        this.failed = Collections.unmodifiableMap(failed);
+    }
+
+    static <T> BatchResult<T> of(final Collection<String> paths, final Map<String, T> succeeded, final Map<String, Exception> failed) {
+        final Map<String, T> orderedSucceeded = new LinkedHashMap<>();
+        final Map<String, Exception> orderedFailed = new LinkedHashMap<>();
+        for (String path : paths) {
+            if (succeeded.containsKey(path)) {
+                orderedSucceeded.put(path, succeeded.get(path));
+            } else if (failed.containsKey(path)) {
+                orderedFailed.put(path, failed.get(path));
+            }
+        }
+        return new BatchResult<>(orderedSucceeded, orderedFailed);
+    }
+
+    public Map<String, T> getSucceeded() {
+        return succeeded;
+    }
+
+    public Map<String, Exception> getFailed() {
+        return failed;
+    }
+
+    public boolean isAllSucceeded() {
+        return failed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BatchResult{succeeded=%d, failed=%d}", succeeded.size(), failed.size());
+    }
+
+}
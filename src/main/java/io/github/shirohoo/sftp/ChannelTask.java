@@ -0,0 +1,21 @@
+package io.github.shirohoo.sftp;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+
+@FunctionalInterface
+interface ChannelTask<T> {
+
+    void run(Channel channel, T item);
+
+    /**
+     * The channel of a worker. get returns the same channel until a task leaves it out of sync, then a fresh one, so a failed transfer does not fail the items after it.
+     */
+    @FunctionalInterface
+    interface Channel {
+
+        ChannelSftp get() throws JSchException;
+
+    }
+
+}
@@ -0,0 +1,19 @@
+package io.github.shirohoo.sftp;
+
+/**
+ * Digest computed inline while the content of a file is transferred, so verifying a transfer never reads the data a second time. CRC32C needs Java 9 or later.
+ */
+public enum ChecksumAlgorithm {
+    NONE,
+    CRC32,
+    CRC32C,
+    MD5,
+    SHA_256;
+
+    /**
+     * A fresh checksum of this algorithm, or null for NONE.
+     */
+    StreamChecksum newChecksum() {
+        return this == NONE ? null : StreamChecksum.of(this);
+    }
+}
@@ -0,0 +1,102 @@
+package io.github.shirohoo.sftp;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Feeds every byte read through it into a checksum and counts them. Skipped bytes are read and checksummed too, so a resumed upload that skips the part already on the server still gets the checksum of the whole file. The checksum may be
+ * null to only count, and then skip is passed to the wrapped stream without reading. Skipped bytes are counted apart from the bytes read.
+ */
+final class ChecksumInputStream extends FilterInputStream {
+
+    private static final int SKIP_BUFFER_SIZE = 8192;
+
+    private final StreamChecksum checksum;
+
+    private final byte[] single = new byte[1];
+
+    private long count;
+
+    private long skipped;
+
+    ChecksumInputStream(InputStream inputStream, StreamChecksum checksum) {
+        super(inputStream);
+        this.checksum = checksum;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int b = in.read();
+        if (b != -1) {
+            if (checksum != null) {
+                single[0] = (byte) b;
+                checksum.update(single, 0, 1);
+            }
+            count++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+        final int read = in.read(bytes, offset, length);
+        if (read > 0) {
+            if (checksum != null) {
+                checksum.update(bytes, offset, read);
+            }
+            count += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        final long total = checksum == null ? skipWrapped(n) : skipChecksummed(n);
+        skipped += total;
+        return total;
+    }
+
+    private long skipWrapped(final long n) throws IOException {
+        long total = 0;
+        while (total < n) {
+            final long step = in.skip(n - total);
+            if (step <= 0) {
+                break;
+            }
+            total += step;
+        }
+        return total;
+    }
+
+    private long skipChecksummed(final long n) throws IOException {
+        final byte[] buffer = new byte[(int) Math.min(Math.max(n, 0), SKIP_BUFFER_SIZE)];
+        long total = 0;
+        while (total < n) {
+            final int read = in.read(buffer, 0, (int) Math.min(buffer.length, n - total));
+            if (read == -1) {
+                break;
+            }
+            checksum.update(buffer, 0, read);
+            total += read;
+        }
+        return total;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Bytes read, not including skipped bytes.
+     */
+    long getCount() {
+        return count;
+    }
+
+    long getSkipped() {
+        return skipped;
+    }
+
+}
@@ -0,0 +1,94 @@
+package io.github.shirohoo.sftp;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+
+/**
+ * Circuit breaker around connection attempts to one host. After failureThreshold failed attempts in a row the circuit opens and attempts fail immediately for openMillis. Then a single trial attempt is let through; it closes the
+ * circuit when it succeeds and opens it again when it fails.
+ * <p>
+ * Breakers are shared by host and port across every client in the JVM that uses the same settings, so a dead server opens the circuit once for all of them instead of costing each client its own run of failed attempts. Clients with other
+ * settings get a breaker of their own, so creating a client never changes how the circuit of another one behaves.
+ */
+final class CircuitBreaker {
+
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private static final int DEFAULT_PORT = 22;
+
+    private static final Map<String, CircuitBreaker> ENDPOINTS = new ConcurrentHashMap<>();
+
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final String endpoint;
+
+    private final int failureThreshold;
+
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+
+    private int consecutiveFailures;
+
+    private long openedAt;
+
+    CircuitBreaker(String endpoint, int failureThreshold, long openMillis) {
+        this.endpoint = endpoint;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+    }
+
+    /**
+     * Breaker shared by every client of host and port with the same failureThreshold and openMillis.
+     */
+    static CircuitBreaker forEndpoint(final String host, final int port, final int failureThreshold, final long openMillis) {
+        final String endpoint = String.format("%s:%d", host, port <= 0 ? DEFAULT_PORT : port);
+        return ENDPOINTS.computeIfAbsent(String.format("%s?failureThreshold=%d&openMillis=%d", endpoint, failureThreshold, openMillis), key -> new CircuitBreaker(endpoint, failureThreshold, openMillis));
+    }
+
+    /**
+     * Returns false when the attempt must not be made because the circuit is open or a trial attempt is already running.
+     */
+    synchronized boolean tryAcquire() {
+        if (failureThreshold <= 0 || state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            log.info("Circuit half open, trying {}", endpoint);
+            return true;
+        }
+        return false;
+    }
+
+    synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            log.info("Circuit closed for {}", endpoint);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    synchronized void onFailure() {
+        if (failureThreshold <= 0) {
+            return;
+        }
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            log.error("Circuit opened for {} after {} failed connection attempts", endpoint, consecutiveFailures);
+        }
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+}
@@ -0,0 +1,298 @@
+package io.github.shirohoo.sftp;
+
+import static java.util.Objects.nonNull;
+import java.io.File;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+
+public final class DefaultAsyncSftpClient implements AsyncSftpClient {
+
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(DefaultAsyncSftpClient.class);
+
+    private static final int DEFAULT_MAX_IN_FLIGHT = 256;
+
+    private static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    private final SftpClient client;
+
+    private final Executor executor;
+
+    private final ExecutorService ownedExecutor;
+
+    private final int maxInFlight;
+
+    private final Semaphore inFlight;
+
+    private final int maxRunning;
+
+    private final Semaphore running;
+
+    private final Queue<Task<?>> waiting = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean closed;
+
+    public DefaultAsyncSftpClient(SftpProperties properties) {
+        this(new DefaultSftpClient(properties));
+    }
+
+    public DefaultAsyncSftpClient(SftpClient client) {
+        this(client, null, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * When executor is null, operations run on virtual threads if the runtime supports them, and on a cached pool of daemon threads otherwise. For a DefaultSftpClient at most SftpProperties.poolMaxTotal operations run at the same time.
+     */
+    public DefaultAsyncSftpClient(SftpClient client, Executor executor, int maxInFlight) {
+        this(client, executor, maxInFlight, client instanceof DefaultSftpClient ? ((DefaultSftpClient) client).getPoolMaxTotal() : maxInFlight);
+    }
+
+    /**
+     * Up to maxInFlight operations are accepted, of which maxRunning run at the same time while the others wait in submission order. Waiting operations do not hold a thread and do not wait for a pooled channel, so they can not run
+     * into SftpProperties.poolMaxWait; set maxRunning to the number of channels the client can lend.
+     *
+     * @param client      SftpClient closed together with this client
+     * @param executor    Executor, or null for the default executor
+     * @param maxInFlight int operations accepted before new ones are rejected
+     * @param maxRunning  int operations running at the same time
+     */
+    public DefaultAsyncSftpClient(SftpClient client, Executor executor, int maxInFlight, int maxRunning) {
+        this.client = client;
+        this.ownedExecutor = nonNull(executor) ? null : createDefaultExecutor();
+        this.executor = nonNull(executor) ? executor : ownedExecutor;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.maxRunning = Math.max(Math.min(maxRunning, maxInFlight), 1);
+        this.running = new Semaphore(this.maxRunning);
+    }
+
+    private static ExecutorService createDefaultExecutor() {
+        try {
+            final Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            log.info("Run asynchronous sftp operations on virtual threads");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            final AtomicInteger sequence = new AtomicInteger();
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "sftp-async-" + sequence.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @Override
+    public CompletableFuture<File> read(final String targetPath) {
+        return submit(() -> client.read(targetPath));
+    }
+
+    @Override
+    public CompletableFuture<RemoteContent> readContent(final String targetPath) {
+        return submit(() -> client.readContent(targetPath));
+    }
+
+    @Override
+    public CompletableFuture<List<File>> listFiles(final String targetDirPath) {
+        return submit(() -> client.listFiles(targetDirPath));
+    }
+
+    @Override
+    public CompletableFuture<BatchResult<File>> listFilesWithResult(final String targetDirPath) {
+        return submit(() -> client.listFilesWithResult(targetDirPath));
+    }
+
+    @Override
+    public CompletableFuture<List<RemoteEntry>> listEntries(final String targetDirPath, final ListOptions options) {
+        return submit(() -> client.listEntries(targetDirPath, options));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> upload(final String targetPath, final File uploadFile) {
+        return submit(() -> client.upload(targetPath, uploadFile));
+    }
+
+    @Override
+    public CompletableFuture<TransferResult> uploadWithResult(final String targetPath, final File uploadFile) {
+        return submit(() -> client.uploadWithResult(targetPath, uploadFile));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> upload(final String targetPath, final InputStream uploadFileStream) {
+        return submit(() -> client.upload(targetPath, uploadFileStream));
+    }
+
+    @Override
+    public CompletableFuture<BatchResult<Long>> uploadAll(final Collection<UploadItem> uploadItems) {
+        return submit(() -> client.uploadAll(uploadItems));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> remove(final String targetPath) {
+        return submit(() -> client.remove(targetPath));
+    }
+
+    @Override
+    public CompletableFuture<BatchResult<RemoteEntry.Type>> removeAll(final Collection<String> targetPaths) {
+        return submit(() -> client.removeAll(targetPaths));
+    }
+
+    @Override
+    public CompletableFuture<BatchResult<RemoteEntry.Type>> removeAll(final String targetDirPath, final ListOptions options) {
+        return submit(() -> client.removeAll(targetDirPath, options));
+    }
+
+    @Override
+    public CompletableFuture<BatchResult<RemoteEntry.Type>> removeDirectory(final String targetDirPath) {
+        return submit(() -> client.removeDirectory(targetDirPath));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> download(final String targetPath, final Path downloadPath) {
+        return submit(() -> client.download(targetPath, downloadPath));
+    }
+
+    @Override
+    public CompletableFuture<TransferResult> downloadWithResult(final String targetPath, final Path downloadPath) {
+        return submit(() -> client.downloadWithResult(targetPath, downloadPath));
+    }
+
+    @Override
+    public CompletableFuture<BatchResult<SyncAction>> sync(final String remoteDirPath, final Path localDirPath, final SyncOptions options) {
+        return submit(() -> client.sync(remoteDirPath, localDirPath, options));
+    }
+
+    @Override
+    public int getInFlightCount() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    private <T> CompletableFuture<T> submit(final SftpCall<T> call) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        if (closed) {
+            future.completeExceptionally(new RejectedExecutionException("Async sftp client is closed"));
+            return future;
+        }
+        if (!inFlight.tryAcquire()) {
+            future.completeExceptionally(new RejectedExecutionException(String.format("Too many sftp operations in flight. max: %d", maxInFlight)));
+            return future;
+        }
+        waiting.add(new Task<>(call, future));
+        if (closed) {
+            rejectWaiting();
+            return future;
+        }
+        runWaiting();
+        return future;
+    }
+
+    /**
+     * Reject every waiting task. submit calls it too when close ran between its closed check and its enqueue: closed is set before close drains the queue, so either close finds the task or submit sees closed, and no task is left
+     * waiting on a closed client.
+     */
+    private void rejectWaiting() {
+        Task<?> task;
+        while ((task = waiting.poll()) != null) {
+            inFlight.release();
+            task.future.completeExceptionally(new RejectedExecutionException("Async sftp client is closed"));
+        }
+    }
+
+    /**
+     * Start waiting tasks while fewer than maxRunning are running. Called on submit and whenever a task completes, so a task never waits while a slot is free.
+     */
+    private void runWaiting() {
+        while (!waiting.isEmpty() && running.tryAcquire()) {
+            final Task<?> task = waiting.poll();
+            if (task == null) {
+                running.release();
+                continue;
+            }
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                running.release();
+                inFlight.release();
+                task.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Reject waiting operations and wait up to 30 seconds for running ones to finish before the client is closed, so they are not cut off by the client closing underneath them.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        rejectWaiting();
+        if (nonNull(ownedExecutor)) {
+            ownedExecutor.shutdown();
+        }
+        try {
+            if (running.tryAcquire(maxRunning, CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                running.release(maxRunning);
+            } else {
+                log.error("Closing with running sftp operations after waiting {} seconds. running: {}", CLOSE_TIMEOUT_SECONDS, maxRunning - running.availablePermits());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        client.close();
+    }
+
+    @FunctionalInterface
+    private interface SftpCall<T> {
+
+        T call() throws Exception;
+
+    }
+
+    private final class Task<T> implements Runnable {
+
+        private final SftpCall<T> call;
+
+        private final CompletableFuture<T> future;
+
+        private Task(SftpCall<T> call, CompletableFuture<T> future) {
+            this.call = call;
+            this.future = future;
+        }
+
+        /**
+         * The slot is given back before the future completes, so a dependent stage that runs on this thread and submits another operation does not wait for the slot its own predecessor still holds.
+         */
+        @Override
+        public void run() {
+            T result = null;
+            Throwable failure = null;
+            try {
+                result = call.call();
+            } catch (Throwable e) {
+                failure = e;
+            } finally {
+                running.release();
+                inFlight.release();
+                runWaiting();
+            }
+            if (nonNull(failure)) {
+                future.completeExceptionally(failure);
+            } else {
+                future.complete(result);
+            }
+        }
+
+    }
+
+}
@@ -3,26 +3,84 @@ package io.github.shirohoo.sftp;
 import static java.util.Arrays.stream;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
-import com.jcraft.jsch.Channel;
 import com.jcraft.jsch.ChannelSftp;
 import com.jcraft.jsch.ChannelSftp.LsEntry;
-import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.ChannelSftp.LsEntrySelector;
 import com.jcraft.jsch.JSchException;
-import com.jcraft.jsch.Session;
+import com.jcraft.jsch.SftpATTRS;
 import com.jcraft.jsch.SftpException;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.NotDirectoryException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
 import java.util.Vector;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 
@@ -30,341 +88,2057 @@ public final class DefaultSftpClient implements SftpClient {
 
     private static final Logger log = org.slf4j.LoggerFactory.getLogger(DefaultSftpClient.class);
 
-    private static final String STRICT_HOST_KEY_CHECKING = "StrictHostKeyChecking";
+    private static final int LISTING_BUFFER_SIZE = 1024;
+
+    private static final Object END_OF_LISTING = new Object();
+
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    private static final String POSIX_RENAME = "posix-rename@openssh.com";
 
     private final SftpProperties properties;
 
+    private final SftpChannelPool pool;
+
+    private final ExecutorService workers;
+
+    private final RemoteDirectoryCache directoryCache;
+
+    private final SftpMetricsListener listener;
+
+    private final TransferBuffers buffers;
+
+    private final BandwidthLimiter bandwidthLimiter;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * Channels a get or put runs on. Until JSch ends the transfer, replies to its pipelined requests may still be on the way.
+     */
+    private final Set<ChannelSftp> transferring = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Channels an operation failed on with anything but a status reply of the server, so replies to its requests may be left on them.
+     */
+    private final Set<ChannelSftp> outOfSync = ConcurrentHashMap.newKeySet();
+
+    private volatile String rootPath;
+
     public DefaultSftpClient(SftpProperties properties) {
+        this(properties, SftpMetricsListener.NO_OP);
+    }
+
+    public DefaultSftpClient(SftpProperties properties, SftpMetricsListener listener) {
         this.properties = properties;
+        this.listener = listener;
+        this.pool = new SftpChannelPool(new SftpConnectionFactory(properties, listener), properties);
+        this.workers = Executors.newCachedThreadPool(daemonThreadFactory("sftp-worker"));
+        this.directoryCache = new RemoteDirectoryCache(properties.getDirectoryCacheSize(), properties.getDirectoryCacheTtl());
+        this.buffers = new TransferBuffers(properties.getTransferBufferSize(), properties.getTransferDirectBuffer(), properties.getPoolMaxTotal());
+        this.bandwidthLimiter = BandwidthLimiter.register(properties.getHost(), properties.getBandwidthLimit());
+        if (properties.getPoolWarmUp()) {
+            pool.warmUp();
+        }
     }
 
-    private ChannelSftp connectByPassword() throws JSchException {
-        log.info("Try to connect sftp[{}@{}], use password[{}]", properties.getUsername(), properties.getHost(), properties.getPassword());
-        final Session session = createSession(new JSch(), properties.getHost(), properties.getUsername(), properties.getPort());
-        session.setPassword(properties.getPassword());
-        return getChannelSftp(session);
+    private static ThreadFactory daemonThreadFactory(final String prefix) {
+        final AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
 
-    private ChannelSftp connectByPrivateKey() throws JSchException {
-        return getChannelSftp(createSession(getJsch(), properties.getHost(), properties.getUsername(), properties.getPort()));
+    /**
+     * Number of channels this client can lend at the same time, so callers that run operations concurrently can stop before they wait for the pool.
+     */
+    int getPoolMaxTotal() {
+        return properties.getPoolMaxTotal();
     }
 
-    private JSch getJsch() {
-        final JSch jsch = new JSch();
-        if (StringUtils.isNotBlank(properties.getPrivateKey())) {
-            addIdentity(jsch);
+    /**
+     * Return the channel to the pool, or disconnect it when it is out of sync. The next borrower of a channel that still holds replies to the requests of a failed operation would read them as the replies to its own requests.
+     */
+    private void release(final ChannelSftp sftp) {
+        if (isOutOfSync(sftp)) {
+            forget(sftp);
+            pool.invalidate(sftp);
+            log.debug("Disconnected sftp channel left out of sync by a failed operation.");
+            return;
         }
-        log.info("Try to connect sftp[{}@{}], use private key[{}] with passphrase[{}]", properties.getUsername(), properties.getHost(), properties.getPrivateKey(), properties.getPassphrase());
-        return jsch;
+        pool.release(sftp);
+        log.debug("Released sftp channel.");
     }
 
-    private void addIdentity(final JSch jsch) {
-        try {
-            if (StringUtils.isNotBlank(properties.getPassphrase())) {
-                jsch.addIdentity(properties.getPrivateKey(), properties.getPassphrase());
-            } else {
-                jsch.addIdentity(properties.getPrivateKey());
-            }
-        } catch (JSchException e) {
-            log.error(e.getMessage(), e);
+    private boolean isOutOfSync(final ChannelSftp sftp) {
+        return transferring.contains(sftp) || outOfSync.contains(sftp);
+    }
+
+    private void forget(final ChannelSftp sftp) {
+        transferring.remove(sftp);
+        outOfSync.remove(sftp);
+    }
+
+    /**
+     * Remember that an operation failed on the channel, if one was borrowed. A status reply of the server, an SftpException without a cause, completes its request; any other failure may leave replies on the channel.
+     */
+    private void markFailed(final ChannelSftp sftp, final Exception e) {
+        if (nonNull(sftp) && (!(e instanceof SftpException) || nonNull(e.getCause()))) {
+            outOfSync.add(sftp);
+        }
+    }
+
+    /**
+     * Release the channel of a stream handed to the caller, after marking it when reading the stream failed.
+     */
+    private void releaseStream(final ChannelSftp sftp, final boolean failed) {
+        if (failed) {
+            outOfSync.add(sftp);
         }
+        release(sftp);
     }
 
-    private Session createSession(final JSch jsch, final String host, final String username, final int port) throws JSchException {
-        final Session session = getSession(jsch, host, username, port);
-        session.setConfig(STRICT_HOST_KEY_CHECKING, properties.getSessionStrictHostKeyChecking());
-        return session;
+    private TransferMonitor monitor(final ChannelSftp sftp, final SftpOperation operation) {
+        return new TransferMonitor(listener, properties.getHost(), operation, bandwidthLimiter, () -> transferring.add(sftp), () -> transferring.remove(sftp));
     }
 
-    private Session getSession(final JSch jsch, final String host, final String username, final int port) throws JSchException {
-        return port <= 0 ? jsch.getSession(username, host) : jsch.getSession(username, host, port);
+    private void recordOperation(final SftpOperation operation, final long start, final boolean success) {
+        listener.onOperation(properties.getHost(), operation, System.nanoTime() - start, success);
     }
 
-    private void disconnect(final ChannelSftp sftp) throws JSchException {
-        if (isNull(sftp)) {
+    private void recordFailure(final SftpOperation operation, final Exception e) {
+        listener.onFailure(properties.getHost(), operation, e);
+    }
+
+    /**
+     * Pooled channels keep the working directory of their previous operation, so only change it when the channel is not already at root. A relative root is resolved once against the login directory, and every later change uses the
+     * resulting absolute path, so it does not depend on where the previous operation left the channel.
+     */
+    private void changeToRoot(final ChannelSftp sftp) throws SftpException {
+        final String current = sftp.pwd();
+        if (nonNull(rootPath) && rootPath.equals(current)) {
             return;
         }
-        if (sftp.isConnected()) {
-            sftp.disconnect();
-        }
-        if (sftp.isClosed()) {
-            log.info("Sftp is closed already");
-        }
-        if (nonNull(sftp.getSession())) {
-            sftp.getSession().disconnect();
+        if (nonNull(rootPath)) {
+            sftp.cd(rootPath);
+        } else {
+            sftp.cd(resolveRoot(sftp));
+            rootPath = sftp.pwd();
         }
+        log.info("Change directory to {}", rootPath);
     }
 
-    private ChannelSftp getChannelSftp(final Session session) throws JSchException {
-        try {
-            session.connect(properties.getSessionConnectTimeout());
-        } catch (JSchException e) {
-            log.error(e.getMessage(), e);
+    private String resolveRoot(final ChannelSftp sftp) throws SftpException {
+        final String root = isNull(properties.getRoot()) ? "~" : properties.getRoot();
+        if (root.startsWith("/")) {
+            return root;
         }
-        log.info("Session connected to {}", properties.getHost());
-        return getChannel(session);
-    }
-
-    private ChannelSftp getChannel(final Session session) throws JSchException {
-        Channel channel = session.openChannel(properties.getProtocol());
-        channel.connect(properties.getChannelConnectedTimeout());
-        log.info("Channel created to {}", properties.getHost());
-        return (ChannelSftp) channel;
+        final String relative = root.equals("~") ? "" : root.startsWith("~/") ? root.substring(2) : root;
+        final String home = sftp.getHome();
+        return relative.isEmpty() ? home : home.endsWith("/") ? home + relative : home + "/" + relative;
     }
 
     /**
      * Pass the path of the file you want to read as an argument. The starting path is the root of SftpProperties. For example, if root is ~/ and the path passed as an argument is user/temp/someFile.txt , SftpClient reads ~/user/temp/someFile.txt and
-     * returns it as a File object. At this time, the transferred file is not saved on the client hard disk, but only in client memory.
+     * returns it as a File object. The file is written to the working directory and deleted when the JVM exits. Use readContent to keep the content in memory instead.
      *
      * @param targetPath String
      * @return File
      */
     @Override
     public File read(final String targetPath) throws JSchException, NotDirectoryException {
-        return readFile(targetPath, getChannelSftp());
+        final long start = System.nanoTime();
+        boolean success = false;
+        try {
+            final File file = readFile(targetPath, getChannelSftp());
+            success = true;
+            return file;
+        } finally {
+            recordOperation(SftpOperation.READ, start, success);
+        }
     }
 
     private File readFile(final String targetPath, final ChannelSftp sftp) throws JSchException, NotDirectoryException {
         try {
-            sftp.cd(properties.getRoot());
-            log.info("Change directory to {}", properties.getRoot());
-            try (InputStream inputStream = sftp.get(targetPath)) {
-                return convertInputStreamToFile(inputStream, getFileName(targetPath));
+            changeToRoot(sftp);
+            final String expected = readSidecar(sftp, targetPath);
+            final StreamChecksum checksum = properties.getChecksumAlgorithm().newChecksum();
+            final File file;
+            try (InputStream inputStream = new ChecksumInputStream(getContent(sftp, targetPath, SftpOperation.READ), checksum)) {
+                file = convertInputStreamToFile(inputStream, getFileName(targetPath));
+            }
+            try {
+                verify(targetPath, checksum, expected);
+            } catch (IOException e) {
+                Files.deleteIfExists(file.toPath());
+                throw e;
             }
+            return file;
         } catch (Exception e) {
-            throw new NotDirectoryException(
+            markFailed(sftp, e);
+            recordFailure(SftpOperation.READ, e);
+            throw withCause(new NotDirectoryException(
                 String.format("Download file failure. target path: %s", targetPath)
-            );
+            ), e);
         } finally {
-            disconnect(sftp);
-            log.info("Disconnected sftp connection.");
+            release(sftp);
         }
     }
 
     private File convertInputStreamToFile(final InputStream inputStream, final String fileName) throws IOException {
         File file = new File(fileName);
-        IOUtils.copy(inputStream, new FileOutputStream(file));
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffers.copy(inputStream, channel);
+        }
         file.deleteOnExit();
         return file;
     }
 
-    private ChannelSftp getChannelSftp() throws JSchException {
-        return properties.getKeyMode() ? connectByPrivateKey() : connectByPassword();
-    }
-
     /**
-     * Pass the path of the file you want to read as an argument. The starting path is the root of SftpProperties. For example, if root is ~/ and the path passed as an argument is user/temp/someDir (last args is directory name) , SftpClient reads
-     * ~/user/temp/someDir and returns it as a List {@literal <}File{@literal >} object.
+     * Pass the path of the file you want to read as an argument. The starting path is the root of SftpProperties. Unlike read, the content is kept in memory and nothing is written to the working directory. Files larger than
+     * SftpProperties.readSpillThreshold are spilled to a temp file that is deleted when the returned RemoteContent is closed.
      *
-     * @param targetDirPath String
-     * @return List {@literal <}File{@literal >}
+     * @param targetPath String
+     * @return RemoteContent
      */
     @Override
-    @SuppressWarnings("unchecked")
-    public List<File> listFiles(final String targetDirPath) throws JSchException, NoSuchFileException {
+    public RemoteContent readContent(final String targetPath) throws JSchException, NoSuchFileException {
+        final long start = System.nanoTime();
+        boolean success = false;
+        try {
+            final RemoteContent content = readRemoteContent(targetPath);
+            success = true;
+            return content;
+        } finally {
+            recordOperation(SftpOperation.READ_CONTENT, start, success);
+        }
+    }
+
+    private RemoteContent readRemoteContent(final String targetPath) throws JSchException, NoSuchFileException {
         final ChannelSftp sftp = getChannelSftp();
-        List<File> files = new ArrayList<>();
         try {
-            Vector<ChannelSftp.LsEntry> list = sftp.ls(targetDirPath);
-            for (ChannelSftp.LsEntry entry : list) {
-                if (isFile(entry)) {
-                    String filePath = targetDirPath + "/" + entry.getFilename();
-                    files.add(convertInputStreamToFile(sftp.get(filePath), getFileName(filePath)));
-                }
+            changeToRoot(sftp);
+            final long size = getContentSize(sftp, targetPath);
+            try (InputStream inputStream = getContent(sftp, targetPath, SftpOperation.READ_CONTENT)) {
+                return RemoteContent.read(inputStream, size, properties.getReadSpillThreshold(), properties.getReadDirectBuffer());
             }
-            return files;
         } catch (Exception e) {
-            log.error("Download file list failure. target path: {}", targetDirPath);
-            throw new NoSuchFileException(targetDirPath);
+            log.error("Read file failure. target path: {}", targetPath);
+            markFailed(sftp, e);
+            recordFailure(SftpOperation.READ_CONTENT, e);
+            throw withCause(new NoSuchFileException(targetPath, null, e.getMessage()), e);
         } finally {
-            disconnect(sftp);
-            log.info("Disconnected sftp connection.");
+            release(sftp);
         }
     }
 
-    private static boolean isFile(LsEntry lsEntry) {
-        return !lsEntry.getAttrs().isDir();
+    /**
+     * Open the content of a remote file. With GZIP payload compression the content is decompressed, so every read path returns the bytes that were uploaded.
+     */
+    private InputStream getContent(final ChannelSftp sftp, final String targetPath, final SftpOperation operation) throws SftpException, IOException {
+        final InputStream inputStream = new InterruptibleInputStream(sftp.get(targetPath, monitor(sftp, operation)));
+        if (!isPayloadCompressed()) {
+            return inputStream;
+        }
+        try {
+            return new GZIPInputStream(inputStream, GZIP_BUFFER_SIZE);
+        } catch (IOException e) {
+            inputStream.close();
+            throw e;
+        }
     }
 
     /**
-     * The location where you want to upload the file is passed as the first argument, and the file you want to upload as the second argument. In this case, the first argument must also include the name of the file.
+     * Size of the content of a remote file. For GZIP payloads this is the size field of the gzip trailer, which holds the uncompressed size modulo 4 GB; when it is off, RemoteContent only spills to a temp file earlier than needed.
+     */
+    private long getContentSize(final ChannelSftp sftp, final String targetPath) throws SftpException, IOException {
+        final long size = sftp.stat(targetPath).getSize();
+        if (!isPayloadCompressed() || size < 4) {
+            return size;
+        }
+        final byte[] trailer = new byte[4];
+        try (InputStream inputStream = sftp.get(targetPath, null, size - trailer.length)) {
+            IOUtils.readFully(inputStream, trailer);
+        }
+        return (trailer[0] & 0xffL) | (trailer[1] & 0xffL) << 8 | (trailer[2] & 0xffL) << 16 | (trailer[3] & 0xffL) << 24;
+    }
+
+    /**
+     * Open the remote file for reading without writing it anywhere. The starting path is the root of SftpProperties. The returned stream reads the live remote file and holds a pooled channel until it is closed, so close it, for
+     * example with try-with-resources.
      *
      * @param targetPath String
-     * @param uploadFile File
-     * @return boolean
+     * @return InputStream
      */
     @Override
-    public boolean upload(final String targetPath, final File uploadFile) throws JSchException {
+    public InputStream openRead(final String targetPath) throws JSchException, NoSuchFileException {
+        final long start = System.nanoTime();
+        boolean success = false;
+        final ChannelSftp sftp = getChannelSftp();
         try {
-            return upload(targetPath, new FileInputStream(uploadFile));
-        } catch (IOException e) {
-            log.error(e.getMessage(), e);
-            return false;
+            changeToRoot(sftp);
+            final InputStream inputStream = new RemoteInputStream(getContent(sftp, targetPath, SftpOperation.OPEN_READ), failed -> releaseStream(sftp, failed));
+            success = true;
+            return inputStream;
+        } catch (SftpException | IOException e) {
+            log.error("Open file failure. target path: {}", targetPath);
+            markFailed(sftp, e);
+            recordFailure(SftpOperation.OPEN_READ, e);
+            throw withCause(new NoSuchFileException(targetPath, null, e.getMessage()), e);
+        } finally {
+            if (!success) {
+                release(sftp);
+            }
+            recordOperation(SftpOperation.OPEN_READ, start, success);
         }
     }
 
     /**
-     * The location where you want to upload the file is passed as the first argument, and the InputStream of file you want to upload as the second argument. In this case, the first argument must also include the name of the file.
+     * Like openRead, but returns a read-only SeekableByteChannel, so the file can be read from any offset. size is the size of the file when it was opened. Holds a pooled channel until it is closed. Not available with GZIP payload
+     * compression, because a gzip stream can not be read from an offset.
      *
-     * @param targetPath       String
-     * @param uploadFileStream InputStream
-     * @return boolean
+     * @param targetPath String
+     * @return SeekableByteChannel
      */
     @Override
-    public boolean upload(final String targetPath, final InputStream uploadFileStream) throws IOException, JSchException {
+    public SeekableByteChannel openReadChannel(final String targetPath) throws JSchException, NoSuchFileException {
+        if (isPayloadCompressed()) {
+            throw new IllegalStateException("openReadChannel is not available with GZIP payload compression, use openRead instead");
+        }
+        final long start = System.nanoTime();
+        boolean success = false;
         final ChannelSftp sftp = getChannelSftp();
         try {
-            sftp.cd(properties.getRoot());
-            log.info("Change path to {}", properties.getRoot());
-
-            sftp.put(uploadFileStream, getFileName(targetPath, sftp, targetPath.lastIndexOf("/")));
-            return true;
+            changeToRoot(sftp);
+            final long size = sftp.stat(targetPath).getSize();
+            final SeekableByteChannel channel = new RemoteByteChannel(sftp, targetPath, size, () -> monitor(sftp, SftpOperation.OPEN_READ), failed -> releaseStream(sftp, failed));
+            success = true;
+            return channel;
         } catch (SftpException e) {
-            log.error("Found not root directory. path: {}", e.getMessage());
-            return false;
-        } catch (Exception e) {
-            log.error("Upload file failure. path: {}", targetPath);
-            return false;
+            log.error("Open file failure. target path: {}", targetPath);
+            markFailed(sftp, e);
+            recordFailure(SftpOperation.OPEN_READ, e);
+            throw withCause(new NoSuchFileException(targetPath, null, e.getMessage()), e);
         } finally {
-            uploadFileStream.close();
-            log.info("Closed input stream.");
-            disconnect(sftp);
-            log.info("Disconnected sftp connection.");
+            if (!success) {
+                release(sftp);
+            }
+            recordOperation(SftpOperation.OPEN_READ, start, success);
         }
     }
 
-    private String getFileName(final String targetPath, final ChannelSftp sftp, final int index) {
-        if (index != -1) {
-            final String dirName = targetPath.substring(0, index);
-            createUpstreamDirs(dirName, sftp);
-            return targetPath.substring(index + 1);
+    private ChannelSftp getChannelSftp() throws JSchException {
+        return pool.borrow();
+    }
+
+    /**
+     * Pass the path of the file you want to read as an argument. The starting path is the root of SftpProperties. For example, if root is ~/ and the path passed as an argument is user/temp/someDir (last args is directory name) , SftpClient reads
+     * ~/user/temp/someDir and returns it as a List {@literal <}File{@literal >} object. Files that fail to download are logged and left out of the result.
+     *
+     * @param targetDirPath String
+     * @return List {@literal <}File{@literal >}
+     */
+    @Override
+    public List<File> listFiles(final String targetDirPath) throws JSchException, NoSuchFileException {
+        final long start = System.nanoTime();
+        boolean success = false;
+        try {
+            final BatchResult<File> result = collectFiles(targetDirPath);
+            result.getFailed().forEach((filePath, e) -> log.error("Download file failure. target path: {}, cause: {}", filePath, e.getMessage()));
+            success = result.isAllSucceeded();
+            return new ArrayList<>(result.getSucceeded().values());
+        } finally {
+            recordOperation(SftpOperation.LIST_FILES, start, success);
         }
-        return targetPath;
     }
 
-    private void createUpstreamDirs(final String dirPath, final ChannelSftp sftp) {
-        if (isNonBlank(dirPath) && nonNull(sftp)) {
-            stream(stream(dirPath.split("/"))
-                .filter(StringUtils::isNotBlank)
-                .toArray(String[]::new))
-                .forEach(dir -> mkdir(sftp, dir));
+    /**
+     * Works like listFiles, but reports the outcome of every file. When SftpProperties.parallelism is greater than 1, files are downloaded concurrently over that many pooled channels.
+     *
+     * @param targetDirPath String
+     * @return BatchResult {@literal <}File{@literal >} keyed by remote file path
+     */
+    @Override
+    public BatchResult<File> listFilesWithResult(final String targetDirPath) throws JSchException, NoSuchFileException {
+        final long start = System.nanoTime();
+        boolean success = false;
+        try {
+            final BatchResult<File> result = collectFiles(targetDirPath);
+            success = result.isAllSucceeded();
+            return result;
+        } finally {
+            recordOperation(SftpOperation.LIST_FILES, start, success);
         }
     }
 
-    private boolean isNonBlank(final String dirPath) {
-        return nonNull(dirPath) && !dirPath.isEmpty();
+    private BatchResult<File> collectFiles(final String targetDirPath) throws JSchException, NoSuchFileException {
+        final List<String> filePaths = listFilePaths(targetDirPath);
+        final Map<String, File> succeeded = new ConcurrentHashMap<>();
+        final Map<String, Exception> failed = new ConcurrentHashMap<>();
+        forEachParallel(filePaths, properties.getParallelism(), (channel, filePath) -> {
+            ChannelSftp sftp = null;
+            try {
+                sftp = channel.get();
+                changeToRoot(sftp);
+                try (InputStream inputStream = getContent(sftp, filePath, SftpOperation.LIST_FILES)) {
+                    succeeded.put(filePath, convertInputStreamToFile(inputStream, getFileName(filePath)));
+                }
+            } catch (Exception e) {
+                markFailed(sftp, e);
+                recordFailure(SftpOperation.LIST_FILES, e);
+                failed.put(filePath, e);
+            }
+        });
+        return BatchResult.of(filePaths, succeeded, failed);
     }
 
-    private void mkdir(final ChannelSftp sftp, final String dir) {
+    @SuppressWarnings("unchecked")
+    private List<String> listFilePaths(final String targetDirPath) throws JSchException, NoSuchFileException {
+        final ChannelSftp sftp = getChannelSftp();
         try {
-            sftp.cd(dir);
-            log.info("Change directory {}", dir);
+            changeToRoot(sftp);
+            Vector<ChannelSftp.LsEntry> list = sftp.ls(targetDirPath);
+            List<String> filePaths = new ArrayList<>();
+            for (ChannelSftp.LsEntry entry : list) {
+                if (isFile(entry)) {
+                    filePaths.add(targetDirPath + "/" + entry.getFilename());
+                }
+            }
+            return filePaths;
         } catch (Exception e) {
+            log.error("Download file list failure. target path: {}", targetDirPath);
+            markFailed(sftp, e);
+            recordFailure(SftpOperation.LIST_FILES, e);
+            throw withCause(new NoSuchFileException(targetDirPath), e);
+        } finally {
+            release(sftp);
+        }
+    }
+
+    /**
+     * Run the task for every item, spreading the items over up to parallelism pooled channels. Each worker keeps one channel for all the items it takes, so a channel is borrowed once per worker rather than once per item. Only a
+     * channel a task left out of sync is disconnected and replaced by a fresh one.
+     */
+    private <T> void forEachParallel(final List<T> items, final int parallelism, final ChannelTask<T> task) throws JSchException {
+        if (items.isEmpty()) {
+            return;
+        }
+        final Queue<T> queue = new ConcurrentLinkedQueue<>(items);
+        final int workerCount = Math.max(1, Math.min(Math.min(parallelism, properties.getPoolMaxTotal()), items.size()));
+        if (workerCount == 1) {
+            drain(queue, task);
+            return;
+        }
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < workerCount; i++) {
+            futures.add(workers.submit(() -> {
+                drain(queue, task);
+                return null;
+            }));
+        }
+        JSchException failure = null;
+        for (Future<?> future : futures) {
             try {
-                sftp.mkdir(dir);
-                log.info("Create directory {}", dir);
-            } catch (SftpException e1) {
-                log.error("Create directory failure, directory:{}", dir);
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                throw new JSchException("Interrupted while waiting for sftp workers", e);
+            } catch (ExecutionException e) {
+                failure = e.getCause() instanceof JSchException ? (JSchException) e.getCause() : new JSchException(e.getCause().getMessage(), e.getCause());
             }
-            try {
-                sftp.cd(dir);
-                log.info("Change directory {}", dir);
-            } catch (SftpException e1) {
-                log.error("Change directory failure, directory:{}", dir);
+        }
+        if (nonNull(failure) && !queue.isEmpty()) {
+            throw failure;
+        }
+    }
+
+    private <T> void drain(final Queue<T> queue, final ChannelTask<T> task) throws JSchException {
+        final WorkerChannel channel = new WorkerChannel(getChannelSftp());
+        try {
+            T item;
+            while ((item = queue.poll()) != null) {
+                task.run(channel, item);
+            }
+        } finally {
+            channel.release();
+        }
+    }
+
+    private final class WorkerChannel implements ChannelTask.Channel {
+
+        private ChannelSftp sftp;
+
+        private WorkerChannel(ChannelSftp sftp) {
+            this.sftp = sftp;
+        }
+
+        @Override
+        public ChannelSftp get() throws JSchException {
+            if (nonNull(sftp) && isOutOfSync(sftp)) {
+                release();
+            }
+            if (isNull(sftp)) {
+                sftp = getChannelSftp();
+            }
+            return sftp;
+        }
+
+        private void release() {
+            if (nonNull(sftp)) {
+                DefaultSftpClient.this.release(sftp);
+                sftp = null;
             }
         }
+
+    }
+
+    private static boolean isFile(LsEntry lsEntry) {
+        return !lsEntry.getAttrs().isDir();
     }
 
     /**
-     * If you pass the path to the file you want to remove as an argument, it will try to remove the file and return whether the removal succeeded or failed.
+     * List the attributes of the entries of a directory without transferring any content. The starting path is the root of SftpProperties. Entries are filtered by the glob and types of options as they arrive.
      *
-     * @param targetPath String
-     * @return boolean
+     * @param targetDirPath String
+     * @param options       ListOptions
+     * @return List {@literal <}RemoteEntry{@literal >}
      */
     @Override
-    public boolean remove(final String targetPath) throws JSchException {
-        final ChannelSftp sftp = getChannelSftp();
-        try {
-            sftp.cd(properties.getRoot());
-            sftp.rm(targetPath);
+    public List<RemoteEntry> listEntries(final String targetDirPath, final ListOptions options) throws JSchException, NoSuchFileException {
+        final List<RemoteEntry> entries = new ArrayList<>();
+        listEntries(targetDirPath, options, page -> {
+            entries.addAll(page);
             return true;
-        } catch (SftpException e) {
-            log.error("Delete file failure. path: {}", targetPath);
-            return false;
-        } finally {
-            disconnect(sftp);
-            log.info("Disconnected sftp connection.");
-        }
+        });
+        return entries;
     }
 
     /**
-     * Pass the path to the file you want to download from the remote server as the first argument. In this case, the all argument must include a file name. Enter the location where you want to save the downloaded file as the second argument. Returns
-     * true if the download is successful, false if it fails
+     * Like listEntries, but delivers the entries to pageHandler in pages of ListOptions.pageSize while the listing is still running, so huge directories are never held in memory at once. Listing stops when pageHandler returns false.
+     * Pages are delivered on the calling thread, and subdirectories are walked breadth first up to ListOptions.maxDepth.
      *
-     * @param targetPath   String
-     * @param downloadPath Path
-     * @return boolean
+     * @param targetDirPath String
+     * @param options       ListOptions
+     * @param pageHandler   Predicate {@literal <}List {@literal <}RemoteEntry{@literal >}{@literal >} returns whether to continue
      */
     @Override
-    public boolean download(final String targetPath, final Path downloadPath) throws JSchException {
-        final String path = downloadPath.toString();
-        if (!isMkdir(path)) {
-            return false;
+    public void listEntries(final String targetDirPath, final ListOptions options, final Predicate<List<RemoteEntry>> pageHandler) throws JSchException, NoSuchFileException {
+        final long start = System.nanoTime();
+        boolean success = false;
+        final ChannelSftp sftp = getChannelSftp();
+        try {
+            changeToRoot(sftp);
+            walkEntries(sftp, targetDirPath, options, pageHandler);
+            success = true;
+        } catch (SftpException e) {
+            log.error("List entries failure. target path: {}", targetDirPath);
+            markFailed(sftp, e);
+            recordFailure(SftpOperation.LIST_ENTRIES, e);
+            throw withCause(new NoSuchFileException(targetDirPath, null, e.getMessage()), e);
+        } catch (RuntimeException e) {
+            markFailed(sftp, e);
+            throw e;
+        } finally {
+            release(sftp);
+            recordOperation(SftpOperation.LIST_ENTRIES, start, success);
         }
-        return download(targetPath, path);
     }
 
-    private boolean isMkdir(final String path) {
-        return createDownstreamDirs(getLocation(path));
+    private void walkEntries(final ChannelSftp sftp, final String targetDirPath, final ListOptions options, final Predicate<List<RemoteEntry>> pageHandler) throws SftpException {
+        final Deque<String> dirs = new ArrayDeque<>();
+        final Deque<String> nextDirs = new ArrayDeque<>();
+        final List<RemoteEntry> page = new ArrayList<>(Math.min(options.getPageSize(), LISTING_BUFFER_SIZE));
+        final boolean[] stopped = {false};
+        dirs.add(StringUtils.isBlank(targetDirPath) ? "." : targetDirPath);
+        for (int depth = 1; !dirs.isEmpty() && !stopped[0]; depth++) {
+            final boolean descend = depth < options.getMaxDepth();
+            while (!dirs.isEmpty() && !stopped[0]) {
+                final String dir = dirs.poll();
+                sftp.ls(dir, entry -> {
+                    final String name = entry.getFilename();
+                    if (".".equals(name) || "..".equals(name)) {
+                        return LsEntrySelector.CONTINUE;
+                    }
+                    final String path = ".".equals(dir) ? name : dir + "/" + name;
+                    final RemoteEntry.Type type = RemoteEntry.getType(entry.getAttrs());
+                    if (descend && type == RemoteEntry.Type.DIRECTORY) {
+                        nextDirs.add(path);
+                    }
+                    if (options.matches(name, type)) {
+                        page.add(RemoteEntry.of(path, name, entry.getAttrs()));
+                        if (page.size() >= options.getPageSize() && !deliver(page, pageHandler)) {
+                            stopped[0] = true;
+                            return LsEntrySelector.BREAK;
+                        }
+                    }
+                    return LsEntrySelector.CONTINUE;
+                });
+            }
+            dirs.addAll(nextDirs);
+            nextDirs.clear();
+        }
+        if (!stopped[0] && !page.isEmpty()) {
+            deliver(page, pageHandler);
+        }
     }
 
-    private String getLocation(final String path) {
-        try {
-            return path.substring(0, path.lastIndexOf(File.separator));
-        } catch (IndexOutOfBoundsException e) {
-            throw new IndexOutOfBoundsException(
-                String.format("Invalid download path: %s. please check '/' or '\\'", path)
-            );
-        }
+    private static boolean deliver(final List<RemoteEntry> page, final Predicate<List<RemoteEntry>> pageHandler) {
+        final boolean proceed = pageHandler.test(Collections.unmodifiableList(new ArrayList<>(page)));
+        page.clear();
+        return proceed;
     }
 
-    private boolean createDownstreamDirs(final String location) {
-        final File folder = new File(location);
-        if (!folder.exists()) {
-            try {
-                folder.mkdirs();
-                log.info("Create folder: {}", folder.getPath());
-                return true;
-            } catch (Exception e) {
-                log.error("{}. Can't create folder: {}", e.getMessage(), folder.getPath());
-                return false;
-            }
+    /**
+     * Pass the path of the directory you want to read as an argument. The starting path is the root of SftpProperties. Unlike listFiles, entries are listed in the background and each file is downloaded only when the stream pulls it, so
+     * memory stays bounded for very large directories. The returned stream holds pooled channels and must be closed, for example with try-with-resources. Listing and downloading take a channel each; when the pool has no second
+     * channel to lend at once, the names of the files are listed to the end first and the listing channel is reused, so only the downloads are lazy.
+     *
+     * @param targetDirPath String
+     * @return Stream {@literal <}File{@literal >}
+     */
+    @Override
+    public Stream<File> streamFiles(final String targetDirPath) throws JSchException {
+        final LazyFileIterator iterator = new LazyFileIterator(targetDirPath, getChannelSftp(), LISTING_BUFFER_SIZE);
+        try {
+            workers.execute(iterator::list);
+        } catch (RejectedExecutionException e) {
+            release(iterator.listingChannel);
+            iterator.close();
+            throw new JSchException("Sftp client is closed", e);
         }
-        log.info("Tried to create a folder but failed. because folder already exists!");
-        return false;
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+            .onClose(iterator::close);
     }
 
-    private boolean download(final String targetPath, final String path) throws JSchException {
-        final ChannelSftp sftp = getChannelSftp();
-        try (OutputStream outputStream = new FileOutputStream(path)) {
-            sftp.cd(properties.getRoot());
-            log.info("Change directory to {}", properties.getRoot());
+    /**
+     * Lists a directory on one channel while downloading the listed files on another. Listing pauses whenever bufferSize entries are waiting to be consumed. The download channel is only taken while the listing runs when the pool can
+     * lend it at once; otherwise the listing stops pausing, runs to the end and hands its channel over, so concurrent streams never each hold a listing channel while they wait for a second one.
+     */
+    private final class LazyFileIterator implements Iterator<File>, Closeable {
 
-            sftp.get(targetPath, outputStream);
-            log.info("Download file success. download path: {}", path);
+        private final String targetDirPath;
+
+        private final BlockingQueue<Object> entries = new LinkedBlockingQueue<>();
+
+        /**
+         * Free places in entries while the listing pauses for the consumer.
+         */
+        private final Semaphore room;
+
+        /**
+         * Counted down once the listing channel is released.
+         */
+        private final CountDownLatch listed = new CountDownLatch(1);
+
+        private final ChannelSftp listingChannel;
+
+        private volatile boolean unbounded;
+
+        private ChannelSftp contentChannel;
+
+        private final long start = System.nanoTime();
+
+        private Object next;
+
+        private boolean failed;
+
+        private volatile boolean closed;
+
+        private LazyFileIterator(String targetDirPath, ChannelSftp listingChannel, int bufferSize) {
+            this.targetDirPath = targetDirPath;
+            this.room = new Semaphore(bufferSize);
+            this.listingChannel = listingChannel;
+        }
+
+        private void list() {
+            Object last = END_OF_LISTING;
+            try {
+                changeToRoot(listingChannel);
+                listingChannel.ls(targetDirPath, entry -> isFile(entry) && !offer(entry) ? LsEntrySelector.BREAK : LsEntrySelector.CONTINUE);
+            } catch (Exception e) {
+                log.error("Download file list failure. target path: {}", targetDirPath);
+                markFailed(listingChannel, e);
+                recordFailure(SftpOperation.STREAM_FILES, e);
+                last = e;
+            } finally {
+                release(listingChannel);
+                listed.countDown();
+                offer(last);
+            }
+        }
+
+        private boolean offer(final Object entry) {
+            try {
+                while (!closed) {
+                    if (unbounded || room.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                        entries.add(entry);
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (closed) {
+                return false;
+            }
+            if (isNull(next)) {
+                next = take();
+            }
+            if (next == END_OF_LISTING) {
+                close();
+                return false;
+            }
+            if (next instanceof Exception) {
+                failed = true;
+                close();
+                throw new UncheckedIOException(withCause(new NoSuchFileException(targetDirPath), (Exception) next));
+            }
+            return true;
+        }
+
+        private Object take() {
+            try {
+                final Object entry = entries.take();
+                room.release();
+                return entry;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new InterruptedIOException("Interrupted while listing " + targetDirPath);
+            }
+        }
+
+        @Override
+        public File next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final String filePath = targetDirPath + "/" + ((LsEntry) next).getFilename();
+            next = null;
+            try {
+                if (isNull(contentChannel)) {
+                    contentChannel = borrowContentChannel();
+                }
+                changeToRoot(contentChannel);
+                try (InputStream inputStream = getContent(contentChannel, filePath, SftpOperation.STREAM_FILES)) {
+                    return convertInputStreamToFile(inputStream, getFileName(filePath));
+                }
+            } catch (Exception e) {
+                failed = true;
+                if (nonNull(contentChannel)) {
+                    markFailed(contentChannel, e);
+                    if (isOutOfSync(contentChannel)) {
+                        release(contentChannel);
+                        contentChannel = null;
+                    }
+                }
+                recordFailure(SftpOperation.STREAM_FILES, e);
+                throw new UncheckedIOException(withCause(new NoSuchFileException(filePath, null, e.getMessage()), e));
+            }
+        }
+
+        private ChannelSftp borrowContentChannel() throws JSchException, InterruptedIOException {
+            if (listed.getCount() > 0) {
+                final ChannelSftp sftp = pool.tryBorrow();
+                if (nonNull(sftp)) {
+                    return sftp;
+                }
+                unbounded = true;
+                try {
+                    listed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while listing " + targetDirPath);
+                }
+            }
+            return getChannelSftp();
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            entries.clear();
+            if (nonNull(contentChannel)) {
+                release(contentChannel);
+                contentChannel = null;
+            }
+            recordOperation(SftpOperation.STREAM_FILES, start, !failed);
+        }
+
+    }
+
+    /**
+     * The location where you want to upload the file is passed as the first argument, and the file you want to upload as the second argument. In this case, the first argument must also include the name of the file.
+     *
+     * @param targetPath String
+     * @param uploadFile File
+     * @return boolean
+     */
+    @Override
+    public boolean upload(final String targetPath, final File uploadFile) throws JSchException {
+        return uploadWithResult(targetPath, uploadFile).isSucceeded();
+    }
+
+    /**
+     * Works like upload, but returns the size and checksum of the uploaded content. The checksum is computed with SftpProperties.checksumAlgorithm while the file is sent. When checksumSidecarSuffix is set, the checksum is also written
+     * to targetPath + checksumSidecarSuffix, so downloads can verify the file.
+     *
+     * @param targetPath String
+     * @param uploadFile File
+     * @return TransferResult
+     */
+    @Override
+    public TransferResult uploadWithResult(final String targetPath, final File uploadFile) throws JSchException {
+        final long start = System.nanoTime();
+        boolean success = false;
+        try {
+            final TransferResult result = properties.getResumeTransfers() && !isPayloadCompressed() ? uploadResumable(targetPath, uploadFile) : uploadFile(targetPath, uploadFile);
+            success = result.isSucceeded();
+            return result;
+        } finally {
+            recordOperation(SftpOperation.UPLOAD, start, success);
+        }
+    }
+
+    private TransferResult uploadFile(final String targetPath, final File uploadFile) throws JSchException {
+        try (InputStream inputStream = FileChannelInputStream.open(uploadFile.toPath())) {
+            return uploadStream(targetPath, inputStream);
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+            recordFailure(SftpOperation.UPLOAD, e);
+            return TransferResult.failed(targetPath, e);
+        }
+    }
+
+    /**
+     * The location where you want to upload the file is passed as the first argument, and the InputStream of file you want to upload as the second argument. In this case, the first argument must also include the name of the file.
+     *
+     * @param targetPath       String
+     * @param uploadFileStream InputStream
+     * @return boolean
+     */
+    @Override
+    public boolean upload(final String targetPath, final InputStream uploadFileStream) throws IOException, JSchException {
+        return uploadWithResult(targetPath, uploadFileStream).isSucceeded();
+    }
+
+    /**
+     * Works like upload with an InputStream, but returns the size and checksum of the uploaded content, and the cause when the upload failed. The checksum is computed and written to the sidecar file as in uploadWithResult with a File.
+     *
+     * @param targetPath       String
+     * @param uploadFileStream InputStream
+     * @return TransferResult
+     */
+    @Override
+    public TransferResult uploadWithResult(final String targetPath, final InputStream uploadFileStream) throws IOException, JSchException {
+        final long start = System.nanoTime();
+        boolean success = false;
+        try {
+            final TransferResult result = uploadStream(targetPath, uploadFileStream);
+            success = result.isSucceeded();
+            return result;
+        } finally {
+            recordOperation(SftpOperation.UPLOAD, start, success);
+        }
+    }
+
+    private TransferResult uploadStream(final String targetPath, final InputStream uploadFileStream) throws IOException, JSchException {
+        final ChannelSftp sftp = getChannelSftp();
+        try {
+            final StreamChecksum checksum = properties.getChecksumAlgorithm().newChecksum();
+            final ChecksumInputStream inputStream = new ChecksumInputStream(uploadFileStream, checksum);
+            put(sftp, SftpOperation.UPLOAD, targetPath, inputStream);
+            return uploaded(sftp, targetPath, inputStream.getCount(), checksum);
+        } catch (SftpException e) {
+            log.error("Found not root directory. path: {}", e.getMessage());
+            markFailed(sftp, e);
+            invalidateUpstreamDirs(targetPath);
+            recordFailure(SftpOperation.UPLOAD, e);
+            return TransferResult.failed(targetPath, e);
+        } catch (Exception e) {
+            log.error("Upload file failure. path: {}", targetPath);
+            markFailed(sftp, e);
+            invalidateUpstreamDirs(targetPath);
+            recordFailure(SftpOperation.UPLOAD, e);
+            return TransferResult.failed(targetPath, e);
+        } finally {
+            uploadFileStream.close();
+            log.info("Closed input stream.");
+            release(sftp);
+        }
+    }
+
+    /**
+     * Finish a successful upload by writing the checksum sidecar file, when one is configured.
+     */
+    private TransferResult uploaded(final ChannelSftp sftp, final String targetPath, final long bytes, final StreamChecksum checksum) throws SftpException {
+        if (isNull(checksum)) {
+            return TransferResult.of(targetPath, bytes, ChecksumAlgorithm.NONE, null, null);
+        }
+        final String value = checksum.getValue();
+        if (StringUtils.isNotBlank(properties.getChecksumSidecarSuffix())) {
+            changeToRoot(sftp);
+            final String line = String.format("%s  %s\n", value, getFileName(targetPath));
+            sftp.put(new ByteArrayInputStream(line.getBytes(StandardCharsets.US_ASCII)), targetPath + properties.getChecksumSidecarSuffix(), ChannelSftp.OVERWRITE);
+        }
+        return TransferResult.of(targetPath, bytes, checksum.getAlgorithm(), value, null);
+    }
+
+    /**
+     * The checksum in the sidecar file of targetPath, or null when no sidecar suffix is configured or the sidecar does not exist. The first word of the sidecar is used, so files written by sha256sum and similar tools work as well.
+     */
+    private String readSidecar(final ChannelSftp sftp, final String targetPath) {
+        if (properties.getChecksumAlgorithm() == ChecksumAlgorithm.NONE || StringUtils.isBlank(properties.getChecksumSidecarSuffix())) {
+            return null;
+        }
+        final String sidecarPath = targetPath + properties.getChecksumSidecarSuffix();
+        try (InputStream inputStream = sftp.get(sidecarPath)) {
+            final String content = IOUtils.toString(inputStream, StandardCharsets.US_ASCII).trim();
+            return content.isEmpty() ? null : content.split("\\s+")[0].toLowerCase(Locale.ROOT);
+        } catch (SftpException | IOException e) {
+            log.info("Checksum sidecar not found. path: {}", sidecarPath);
+            markFailed(sftp, e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns the computed checksum, or throws when it differs from the expected checksum of the sidecar file.
+     */
+    private static String verify(final String targetPath, final StreamChecksum checksum, final String expected) throws IOException {
+        if (isNull(checksum)) {
+            return null;
+        }
+        final String value = checksum.getValue();
+        if (nonNull(expected) && !expected.equals(value)) {
+            throw new IOException(String.format("Checksum mismatch. target path: %s, expected: %s, actual: %s", targetPath, expected, value));
+        }
+        return value;
+    }
+
+    /**
+     * Open the remote file for writing. Parent directories are created as in upload. Written bytes are buffered in SftpProperties.writeBehindBuffers buffers of transferBufferSize bytes and sent in the background while the caller keeps
+     * writing. The bytes go to a temporary file next to targetPath that is renamed to targetPath on close, so readers never see a partial file. Holds a pooled channel until it is closed.
+     *
+     * @param targetPath String
+     * @return OutputStream
+     */
+    @Override
+    public OutputStream openWrite(final String targetPath) throws JSchException {
+        final long start = System.nanoTime();
+        final ChannelSftp sftp = getChannelSftp();
+        try {
+            changeToRoot(sftp);
+            final String[] names = new String[2];
+            final OutputStream remote = withParentDirs(sftp, targetPath, fileName -> {
+                names[0] = fileName;
+                names[1] = getTempName(fileName);
+                return sftp.put(names[1], monitor(sftp, SftpOperation.OPEN_WRITE), ChannelSftp.OVERWRITE);
+            });
+            final String fileName = names[0];
+            final String tempName = names[1];
+            return new RemoteOutputStream(isPayloadCompressed() ? new GZIPOutputStream(remote, GZIP_BUFFER_SIZE) : remote, workers, properties.getTransferBufferSize(), properties.getWriteBehindBuffers(),
+                success -> completeWrite(sftp, targetPath, tempName, fileName, start, success));
+        } catch (SftpException | IOException | RuntimeException e) {
+            log.error("Open file for writing failure. target path: {}", targetPath);
+            markFailed(sftp, e);
+            invalidateUpstreamDirs(targetPath);
+            recordFailure(SftpOperation.OPEN_WRITE, e);
+            recordOperation(SftpOperation.OPEN_WRITE, start, false);
+            release(sftp);
+            throw withCause(new JSchException(String.format("Open file for writing failure. target path: %s", targetPath)), e);
+        }
+    }
+
+    private static String getTempName(final String fileName) {
+        final int index = fileName.lastIndexOf('/');
+        return String.format("%s.%s.%s.part", fileName.substring(0, index + 1), fileName.substring(index + 1), Long.toHexString(ThreadLocalRandom.current().nextLong()));
+    }
+
+    /**
+     * Rename the temporary file of openWrite to its final name, or remove it when writing failed. Servers that advertise posix-rename@openssh.com replace an existing file atomically. Plain SFTP v3 servers refuse to rename over an
+     * existing file, so there the existing file is removed first; between the remove and the rename readers see no file at targetPath, and when the rename then fails the previous content is gone.
+     */
+    private void completeWrite(final ChannelSftp sftp, final String targetPath, final String tempName, final String fileName, final long start, final boolean written) throws IOException {
+        if (!written) {
+            abortWrite(sftp, targetPath, tempName, start);
+            return;
+        }
+        boolean success = false;
+        try {
+            rename(sftp, tempName, fileName);
+            success = true;
+        } catch (SftpException e) {
+            log.error("Complete write failure. target path: {}", targetPath);
+            markFailed(sftp, e);
+            recordFailure(SftpOperation.OPEN_WRITE, e);
+            removeQuietly(sftp, tempName);
+            throw new IOException(String.format("Rename to %s failure. cause: %s", targetPath, e.getMessage()), e);
+        } finally {
+            if (!success) {
+                invalidateUpstreamDirs(targetPath);
+            }
+            release(sftp);
+            recordOperation(SftpOperation.OPEN_WRITE, start, success);
+        }
+    }
+
+    /**
+     * Remove the temporary file of a failed openWrite. Replies to writes that were still in flight when the stream failed may be left unread on the channel and would be taken for the reply to the remove, so the channel is
+     * disconnected and the file is removed over another one.
+     */
+    private void abortWrite(final ChannelSftp sftp, final String targetPath, final String tempName, final long start) {
+        invalidateUpstreamDirs(targetPath);
+        forget(sftp);
+        pool.invalidate(sftp);
+        try {
+            final String cwd = sftp.pwd();
+            final String tempPath = tempName.startsWith("/") ? tempName : String.format(cwd.endsWith("/") ? "%s%s" : "%s/%s", cwd, tempName);
+            final ChannelSftp other = getChannelSftp();
+            try {
+                removeQuietly(other, tempPath);
+            } finally {
+                release(other);
+            }
+        } catch (SftpException | JSchException e) {
+            log.error("Remove temporary file failure. target path: {}, cause: {}", targetPath, e.getMessage());
+        } finally {
+            recordOperation(SftpOperation.OPEN_WRITE, start, false);
+        }
+    }
+
+    private static void rename(final ChannelSftp sftp, final String source, final String target) throws SftpException {
+        try {
+            sftp.rename(source, target);
+        } catch (SftpException e) {
+            if (e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE || nonNull(sftp.getExtension(POSIX_RENAME)) || !exists(sftp, target)) {
+                throw e;
+            }
+            sftp.rm(target);
+            sftp.rename(source, target);
+        }
+    }
+
+    private static boolean exists(final ChannelSftp sftp, final String path) {
+        try {
+            sftp.lstat(path);
+            return true;
+        } catch (SftpException e) {
+            return false;
+        }
+    }
+
+    private static void removeQuietly(final ChannelSftp sftp, final String path) {
+        try {
+            sftp.rm(path);
+        } catch (SftpException e) {
+            log.info("Remove temporary file failure. path: {}, cause: {}", path, e.getMessage());
+        }
+    }
+
+    private void put(final ChannelSftp sftp, final SftpOperation operation, final String targetPath, final InputStream inputStream) throws SftpException, IOException {
+        changeToRoot(sftp);
+        withParentDirs(sftp, targetPath, fileName -> {
+            putContent(sftp, operation, fileName, inputStream);
+            return null;
+        });
+    }
+
+    private void putContent(final ChannelSftp sftp, final SftpOperation operation, final String fileName, final InputStream inputStream) throws SftpException, IOException {
+        if (isPayloadCompressed()) {
+            try (OutputStream outputStream = new GZIPOutputStream(sftp.put(fileName, monitor(sftp, operation), ChannelSftp.OVERWRITE), GZIP_BUFFER_SIZE)) {
+                IOUtils.copy(inputStream, outputStream, properties.getTransferBufferSize());
+                TransferMonitor.checkInterrupted();
+            }
+            return;
+        }
+        sftp.put(inputStream, fileName, monitor(sftp, operation));
+        TransferMonitor.checkInterrupted();
+    }
+
+    /**
+     * Compressed payloads are written and read as one gzip stream, so resume and segmented download, which work on byte offsets of the remote file, are not used for them.
+     */
+    private boolean isPayloadCompressed() {
+        return properties.getPayloadCompression() == PayloadCompression.GZIP;
+    }
+
+    /**
+     * Upload many files at once. Files are grouped by target directory, each group is uploaded over a single pooled channel, and up to SftpProperties.parallelism groups are uploaded concurrently. Parent directories are created as in upload.
+     *
+     * @param uploadItems Collection {@literal <}UploadItem{@literal >}
+     * @return BatchResult {@literal <}Long{@literal >} of uploaded bytes keyed by target path
+     */
+    @Override
+    public BatchResult<Long> uploadAll(final Collection<UploadItem> uploadItems) throws JSchException {
+        final long start = System.nanoTime();
+        boolean success = false;
+        try {
+            final BatchResult<Long> result = uploadItems(uploadItems);
+            success = result.isAllSucceeded();
+            return result;
+        } finally {
+            recordOperation(SftpOperation.UPLOAD_ALL, start, success);
+        }
+    }
+
+    private BatchResult<Long> uploadItems(final Collection<UploadItem> uploadItems) throws JSchException {
+        final Map<String, List<UploadItem>> groups = new LinkedHashMap<>();
+        final List<String> targetPaths = new ArrayList<>();
+        for (UploadItem item : uploadItems) {
+            groups.computeIfAbsent(item.getTargetDir(), dir -> new ArrayList<>()).add(item);
+            targetPaths.add(item.getTargetPath());
+        }
+        final Map<String, Long> succeeded = new ConcurrentHashMap<>();
+        final Map<String, Exception> failed = new ConcurrentHashMap<>();
+        try {
+            forEachParallel(new ArrayList<>(groups.values()), properties.getParallelism(), (channel, group) -> {
+                for (UploadItem item : group) {
+                    ChannelSftp sftp = null;
+                    try (CountingInputStream inputStream = new CountingInputStream(item.openStream())) {
+                        sftp = channel.get();
+                        put(sftp, SftpOperation.UPLOAD_ALL, item.getTargetPath(), inputStream);
+                        succeeded.put(item.getTargetPath(), inputStream.getByteCount());
+                    } catch (Exception e) {
+                        log.error("Upload file failure. path: {}", item.getTargetPath());
+                        markFailed(sftp, e);
+                        invalidateUpstreamDirs(item.getTargetPath());
+                        recordFailure(SftpOperation.UPLOAD_ALL, e);
+                        failed.put(item.getTargetPath(), e);
+                    }
+                }
+            });
+        } finally {
+            uploadItems.forEach(UploadItem::closeQuietly);
+        }
+        return BatchResult.of(targetPaths, succeeded, failed);
+    }
+
+    /**
+     * Continue an interrupted upload from the size of the partial remote file instead of sending the whole file again.
+     */
+    private TransferResult uploadResumable(final String targetPath, final File uploadFile) throws JSchException {
+        final ChannelSftp sftp = getChannelSftp();
+        try (InputStream fileStream = FileChannelInputStream.open(uploadFile.toPath())) {
+            changeToRoot(sftp);
+            final long size = uploadFile.length();
+            final StreamChecksum checksum = properties.getChecksumAlgorithm().newChecksum();
+            final ChecksumInputStream inputStream = new ChecksumInputStream(fileStream, checksum);
+            withParentDirs(sftp, targetPath, fileName -> {
+                final long offset = getResumeOffset(sftp, fileName, uploadFile, getRemoteSize(sftp, fileName), size, false);
+                if (offset > 0) {
+                    log.info("Resume upload from {} bytes. path: {}", offset, targetPath);
+                }
+                sftp.put(inputStream, fileName, monitor(sftp, SftpOperation.UPLOAD), offset > 0 ? ChannelSftp.RESUME : ChannelSftp.OVERWRITE);
+                TransferMonitor.checkInterrupted();
+                checkSize(targetPath, getRemoteSize(sftp, fileName), size);
+                return null;
+            });
+            log.info("Upload file success. path: {}, sent: {} bytes, kept: {} bytes", targetPath, inputStream.getCount(), inputStream.getSkipped());
+            return uploaded(sftp, targetPath, inputStream.getCount(), checksum);
+        } catch (Exception e) {
+            log.error("Upload file failure. path: {}", targetPath);
+            markFailed(sftp, e);
+            invalidateUpstreamDirs(targetPath);
+            recordFailure(SftpOperation.UPLOAD, e);
+            return TransferResult.failed(targetPath, e);
+        } finally {
+            release(sftp);
+        }
+    }
+
+    private long getRemoteSize(final ChannelSftp sftp, final String remotePath) {
+        try {
+            return sftp.stat(remotePath).getSize();
+        } catch (SftpException e) {
+            markFailed(sftp, e);
+            return 0;
+        }
+    }
+
+    /**
+     * Returns how many leading bytes of an interrupted transfer can be kept, or 0 when the transfer has to start over. When resumeVerifyLength is set, the last bytes of the kept prefix are compared on both sides first. Without
+     * verification, a destination as large as the source is only taken as complete when completeProven, or when the caller opted in with resumeCompleteOnSameSize, since any file of the same size would pass.
+     */
+    private long getResumeOffset(final ChannelSftp sftp, final String remotePath, final File localFile, final long partialSize, final long fullSize, final boolean completeProven) {
+        if (partialSize <= 0 || partialSize > fullSize) {
+            return 0;
+        }
+        if (properties.getResumeVerifyLength() > 0) {
+            if (!isSamePrefix(sftp, remotePath, localFile, partialSize)) {
+                log.info("Partial file does not match, transfer starts over. path: {}", remotePath);
+                return 0;
+            }
+            return partialSize;
+        }
+        if (partialSize == fullSize && !completeProven && !properties.getResumeCompleteOnSameSize()) {
+            log.info("Existing file is as large as the source but not verified, transfer starts over. path: {}", remotePath);
+            return 0;
+        }
+        return partialSize;
+    }
+
+    /**
+     * Fail a transfer that moved fewer bytes than the size the server reported, so a file cut short is never reported as transferred.
+     */
+    private static void checkSize(final String targetPath, final long transferred, final long expected) throws EOFException {
+        if (transferred < expected) {
+            throw new EOFException(String.format("Transferred %d of %d bytes. target path: %s", transferred, expected, targetPath));
+        }
+    }
+
+    private boolean isSamePrefix(final ChannelSftp sftp, final String remotePath, final File localFile, final long prefixSize) {
+        final int length = (int) Math.min(properties.getResumeVerifyLength(), prefixSize);
+        final long offset = prefixSize - length;
+        final byte[] remote = new byte[length];
+        final byte[] local = new byte[length];
+        try (InputStream inputStream = sftp.get(remotePath, null, offset);
+             RandomAccessFile file = new RandomAccessFile(localFile, "r")) {
+            IOUtils.readFully(inputStream, remote);
+            file.seek(offset);
+            file.readFully(local);
+            return Arrays.equals(remote, local);
+        } catch (Exception e) {
+            log.error("Verify partial file failure. path: {}, cause: {}", remotePath, e.getMessage());
+            markFailed(sftp, e);
+            return false;
+        }
+    }
+
+    /**
+     * Make sure the parent directories of targetPath exist and return the path to put the file to, relative to the working directory of the channel. Directories found in the directory cache are neither visited nor created again. When a
+     * directory cannot be created the returned path still names the missing directories, so the put fails instead of writing into an ancestor.
+     */
+    private String getFileName(final String targetPath, final ChannelSftp sftp, final int index) {
+        if (index != -1) {
+            final String dirName = targetPath.substring(0, index);
+            final String fileName = targetPath.substring(index + 1);
+            final String[] dirs = splitDirs(dirName);
+            if (dirs.length > 0 && directoryCache.getCachedDepth(dirs) == dirs.length) {
+                return RemoteDirectoryCache.join(dirs, dirs.length) + "/" + fileName;
+            }
+            final int depth = createUpstreamDirs(dirName, sftp);
+            if (depth < dirs.length) {
+                return String.join("/", Arrays.copyOfRange(dirs, depth, dirs.length)) + "/" + fileName;
+            }
+            return fileName;
+        }
+        return targetPath;
+    }
+
+    /**
+     * Run task with the path getFileName returns for targetPath. A parent directory found in the directory cache is not visited, so when the server removed it the task fails with SSH_FX_NO_SUCH_FILE before it sends any content; then
+     * the cached directories are forgotten, walked and created again, and the task runs once more.
+     */
+    private <T> T withParentDirs(final ChannelSftp sftp, final String targetPath, final RemoteFileTask<T> task) throws SftpException, IOException {
+        final int index = targetPath.lastIndexOf("/");
+        final String[] dirs = index == -1 ? new String[0] : splitDirs(targetPath.substring(0, index));
+        final boolean cached = dirs.length > 0 && directoryCache.getCachedDepth(dirs) == dirs.length;
+        try {
+            return task.run(getFileName(targetPath, sftp, index));
+        } catch (SftpException e) {
+            if (!cached || e.id != ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+                throw e;
+            }
+            log.info("Cached directory was removed, create it again. target path: {}", targetPath);
+            directoryCache.invalidate(dirs);
+            changeToRoot(sftp);
+            return task.run(getFileName(targetPath, sftp, index));
+        }
+    }
+
+    /**
+     * Change into dirPath, creating missing directories on the way, and return how many of its segments were entered. Stops at the first directory that cannot be created and forgets the cached ancestors, which may have been removed.
+     */
+    private int createUpstreamDirs(final String dirPath, final ChannelSftp sftp) {
+        if (!isNonBlank(dirPath) || isNull(sftp)) {
+            return 0;
+        }
+        final String[] dirs = splitDirs(dirPath);
+        final int cachedDepth = directoryCache.getCachedDepth(dirs);
+        if (cachedDepth > 0 && !changeDirectory(sftp, RemoteDirectoryCache.join(dirs, cachedDepth))) {
+            directoryCache.invalidate(dirs);
+            return createUpstreamDirs(dirPath, sftp);
+        }
+        for (int depth = cachedDepth; depth < dirs.length; depth++) {
+            if (!mkdir(sftp, dirs[depth])) {
+                directoryCache.invalidate(dirs);
+                return depth;
+            }
+            directoryCache.put(dirs, depth + 1);
+        }
+        return dirs.length;
+    }
+
+    private static String[] splitDirs(final String dirPath) {
+        return stream(dirPath.split("/"))
+            .filter(StringUtils::isNotBlank)
+            .toArray(String[]::new);
+    }
+
+    private boolean changeDirectory(final ChannelSftp sftp, final String dir) {
+        try {
+            sftp.cd(dir);
+            log.info("Change directory {}", dir);
+            return true;
+        } catch (SftpException e) {
+            log.error("Change directory failure, directory:{}", dir);
+            return false;
+        }
+    }
+
+    private void invalidateUpstreamDirs(final String targetPath) {
+        final int index = targetPath.lastIndexOf("/");
+        if (index != -1) {
+            directoryCache.invalidate(splitDirs(targetPath.substring(0, index)));
+        }
+    }
+
+    private boolean isNonBlank(final String dirPath) {
+        return nonNull(dirPath) && !dirPath.isEmpty();
+    }
+
+    private boolean mkdir(final ChannelSftp sftp, final String dir) {
+        try {
+            sftp.cd(dir);
+            log.info("Change directory {}", dir);
+            return true;
+        } catch (Exception e) {
+            try {
+                sftp.mkdir(dir);
+                log.info("Create directory {}", dir);
+            } catch (SftpException e1) {
+                log.error("Create directory failure, directory:{}", dir);
+            }
+            return changeDirectory(sftp, dir);
+        }
+    }
+
+    /**
+     * If you pass the path to the file you want to remove as an argument, it will try to remove the file and return whether the removal succeeded or failed.
+     *
+     * @param targetPath String
+     * @return boolean
+     */
+    @Override
+    public boolean remove(final String targetPath) throws JSchException {
+        final long start = System.nanoTime();
+        boolean success = false;
+        try {
+            success = removeFile(targetPath);
+            return success;
+        } finally {
+            recordOperation(SftpOperation.REMOVE, start, success);
+        }
+    }
+
+    private boolean removeFile(final String targetPath) throws JSchException {
+        final ChannelSftp sftp = getChannelSftp();
+        try {
+            changeToRoot(sftp);
+            sftp.rm(targetPath);
+            return true;
+        } catch (SftpException e) {
+            log.error("Delete file failure. path: {}", targetPath);
+            markFailed(sftp, e);
+            recordFailure(SftpOperation.REMOVE, e);
+            return false;
+        } finally {
+            release(sftp);
+        }
+    }
+
+    /**
+     * Remove many files at once over up to SftpProperties.parallelism pooled channels, so each file costs one round trip instead of one connection. Paths are relative to the root of SftpProperties.
+     *
+     * @param targetPaths Collection {@literal <}String{@literal >}
+     * @return BatchResult {@literal <}RemoteEntry.Type{@literal >} keyed by path
+     */
+    @Override
+    public BatchResult<RemoteEntry.Type> removeAll(final Collection<String> targetPaths) throws JSchException {
+        final long start = System.nanoTime();
+        boolean success = false;
+        try {
+            final BatchResult<RemoteEntry.Type> result = removeEntries(new ArrayList<>(targetPaths), null, SftpOperation.REMOVE_ALL);
+            success = result.isAllSucceeded();
+            return result;
+        } finally {
+            recordOperation(SftpOperation.REMOVE_ALL, start, success);
+        }
+    }
+
+    /**
+     * Remove the files of a directory that match the glob and depth of options, as listed by listEntries. Directories are left in place.
+     *
+     * @param targetDirPath String
+     * @param options       ListOptions
+     * @return BatchResult {@literal <}RemoteEntry.Type{@literal >} keyed by path
+     */
+    @Override
+    public BatchResult<RemoteEntry.Type> removeAll(final String targetDirPath, final ListOptions options) throws JSchException, NoSuchFileException {
+        final long start = System.nanoTime();
+        boolean success = false;
+        try {
+            final List<String> paths = new ArrayList<>();
+            listEntries(targetDirPath, options, page -> {
+                page.stream().filter(entry -> !entry.isDirectory()).forEach(entry -> paths.add(entry.getPath()));
+                return true;
+            });
+            final BatchResult<RemoteEntry.Type> result = removeEntries(paths, null, SftpOperation.REMOVE_ALL);
+            success = result.isAllSucceeded();
+            return result;
+        } finally {
+            recordOperation(SftpOperation.REMOVE_ALL, start, success);
+        }
+    }
+
+    /**
+     * Remove a directory with everything below it. Files are removed concurrently over up to SftpProperties.parallelism pooled channels, then directories are removed bottom-up. Symbolic links are removed, not followed.
+     *
+     * @param targetDirPath String
+     * @return BatchResult {@literal <}RemoteEntry.Type{@literal >} keyed by path, including targetDirPath itself
+     */
+    @Override
+    public BatchResult<RemoteEntry.Type> removeDirectory(final String targetDirPath) throws JSchException, NoSuchFileException {
+        final long start = System.nanoTime();
+        boolean success = false;
+        try {
+            final BatchResult<RemoteEntry.Type> result = removeTree(targetDirPath);
+            success = result.isAllSucceeded();
+            return result;
+        } finally {
+            recordOperation(SftpOperation.REMOVE_DIRECTORY, start, success);
+        }
+    }
+
+    private BatchResult<RemoteEntry.Type> removeTree(final String targetDirPath) throws JSchException, NoSuchFileException {
+        final String root = StringUtils.removeEnd(targetDirPath, "/");
+        final List<String> files = new ArrayList<>();
+        final Map<String, RemoteEntry.Type> types = new HashMap<>();
+        final TreeMap<Integer, List<String>> dirsByDepth = new TreeMap<>(Comparator.reverseOrder());
+        dirsByDepth.computeIfAbsent(0, depth -> new ArrayList<>()).add(root);
+        listEntries(root, ListOptions.builder().recursive(true).build(), page -> {
+            for (RemoteEntry entry : page) {
+                if (entry.isDirectory()) {
+                    dirsByDepth.computeIfAbsent(StringUtils.countMatches(entry.getPath(), '/'), depth -> new ArrayList<>()).add(entry.getPath());
+                } else {
+                    files.add(entry.getPath());
+                    types.put(entry.getPath(), entry.getType());
+                }
+            }
             return true;
+        });
+        final List<String> paths = new ArrayList<>(files);
+        final Map<String, RemoteEntry.Type> succeeded = new ConcurrentHashMap<>();
+        final Map<String, Exception> failed = new ConcurrentHashMap<>();
+        collect(removeEntries(files, types, SftpOperation.REMOVE_DIRECTORY), succeeded, failed);
+        for (List<String> dirs : dirsByDepth.values()) {
+            paths.addAll(dirs);
+            forEachParallel(dirs, properties.getParallelism(), (channel, dir) -> {
+                ChannelSftp sftp = null;
+                try {
+                    sftp = channel.get();
+                    changeToRoot(sftp);
+                    sftp.rmdir(dir);
+                    succeeded.put(dir, RemoteEntry.Type.DIRECTORY);
+                } catch (SftpException | JSchException e) {
+                    log.error("Delete directory failure. path: {}", dir);
+                    markFailed(sftp, e);
+                    recordFailure(SftpOperation.REMOVE_DIRECTORY, e);
+                    failed.put(dir, e);
+                }
+            });
+        }
+        directoryCache.invalidateTree(splitDirs(root));
+        return BatchResult.of(paths, succeeded, failed);
+    }
+
+    /**
+     * Remove files over up to SftpProperties.parallelism channels. types gives the entry type reported for each path; FILE is assumed when it is null.
+     */
+    private BatchResult<RemoteEntry.Type> removeEntries(final List<String> paths, final Map<String, RemoteEntry.Type> types, final SftpOperation operation) throws JSchException {
+        final Map<String, RemoteEntry.Type> succeeded = new ConcurrentHashMap<>();
+        final Map<String, Exception> failed = new ConcurrentHashMap<>();
+        forEachParallel(paths, properties.getParallelism(), (channel, path) -> {
+            ChannelSftp sftp = null;
+            try {
+                sftp = channel.get();
+                changeToRoot(sftp);
+                sftp.rm(path);
+                succeeded.put(path, isNull(types) ? RemoteEntry.Type.FILE : types.getOrDefault(path, RemoteEntry.Type.FILE));
+            } catch (SftpException | JSchException e) {
+                log.error("Delete file failure. path: {}", path);
+                markFailed(sftp, e);
+                recordFailure(operation, e);
+                failed.put(path, e);
+            }
+        });
+        return BatchResult.of(paths, succeeded, failed);
+    }
+
+    private static <T> void collect(final BatchResult<T> result, final Map<String, T> succeeded, final Map<String, Exception> failed) {
+        succeeded.putAll(result.getSucceeded());
+        failed.putAll(result.getFailed());
+    }
+
+    /**
+     * Pass the path to the file you want to download from the remote server as the first argument. In this case, the all argument must include a file name. Enter the location where you want to save the downloaded file as the second argument. Returns
+     * true if the download is successful, false if it fails
+     *
+     * @param targetPath   String
+     * @param downloadPath Path
+     * @return boolean
+     */
+    @Override
+    public boolean download(final String targetPath, final Path downloadPath) throws JSchException {
+        return downloadWithResult(targetPath, downloadPath).isSucceeded();
+    }
+
+    /**
+     * Works like download, but returns the size and checksum of the downloaded content. The checksum is computed with SftpProperties.checksumAlgorithm while the file is received. When checksumSidecarSuffix is set and
+     * targetPath + checksumSidecarSuffix exists, the checksum is compared with it and a mismatch fails the download. Segmented downloads are not used while a checksum algorithm is set, because their segments arrive out of order.
+     *
+     * @param targetPath   String
+     * @param downloadPath Path
+     * @return TransferResult
+     */
+    @Override
+    public TransferResult downloadWithResult(final String targetPath, final Path downloadPath) throws JSchException {
+        final long start = System.nanoTime();
+        boolean success = false;
+        try {
+            final String path = downloadPath.toString();
+            final TransferResult result = isMkdir(path) ? download(targetPath, path) : TransferResult.failed(targetPath, new FileSystemException(getLocation(path), null, "Can't create folder"));
+            success = result.isSucceeded();
+            return result;
+        } finally {
+            recordOperation(SftpOperation.DOWNLOAD, start, success);
+        }
+    }
+
+    private boolean isMkdir(final String path) {
+        return createDownstreamDirs(getLocation(path));
+    }
+
+    private String getLocation(final String path) {
+        try {
+            return path.substring(0, path.lastIndexOf(File.separator));
+        } catch (IndexOutOfBoundsException e) {
+            throw new IndexOutOfBoundsException(
+                String.format("Invalid download path: %s. please check '/' or '\\'", path)
+            );
+        }
+    }
+
+    private boolean createDownstreamDirs(final String location) {
+        final File folder = new File(location);
+        if (!folder.exists()) {
+            try {
+                if (!folder.mkdirs() && !folder.isDirectory()) {
+                    log.error("Can't create folder: {}", folder.getPath());
+                    return false;
+                }
+                log.info("Create folder: {}", folder.getPath());
+                return true;
+            } catch (Exception e) {
+                log.error("{}. Can't create folder: {}", e.getMessage(), folder.getPath());
+                return false;
+            }
+        }
+        log.info("Folder already exists: {}", folder.getPath());
+        return true;
+    }
+
+    private TransferResult download(final String targetPath, final String path) throws JSchException {
+        final File localFile = new File(path);
+        if (properties.getResumeTransfers() && !isPayloadCompressed() && localFile.length() > 0) {
+            return downloadResumable(targetPath, localFile);
+        }
+        final SftpATTRS attrs = isPayloadCompressed() || properties.getChecksumAlgorithm() != ChecksumAlgorithm.NONE ? null : getSegmentedDownloadAttrs(targetPath);
+        if (nonNull(attrs) && attrs.getSize() > properties.getSegmentSize()) {
+            return downloadSegments(targetPath, path, attrs);
+        }
+        final ChannelSftp sftp = getChannelSftp();
+        try (FileChannel file = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            changeToRoot(sftp);
+            final String expected = readSidecar(sftp, targetPath);
+            final StreamChecksum checksum = properties.getChecksumAlgorithm().newChecksum();
+            final long bytes;
+            if (isPayloadCompressed()) {
+                try (InputStream inputStream = new ChecksumInputStream(getContent(sftp, targetPath, SftpOperation.DOWNLOAD), checksum)) {
+                    bytes = buffers.copy(inputStream, file);
+                }
+            } else {
+                final long size = sftp.stat(targetPath).getSize();
+                if (properties.getTransferPreallocate()) {
+                    preallocate(file, size);
+                }
+                bytes = copy(sftp, SftpOperation.DOWNLOAD, targetPath, file, 0, checksum);
+                checkSize(targetPath, bytes, size);
+            }
+            final String value = verifyDownload(targetPath, file, checksum, expected);
+            if (properties.getResumeTransfers()) {
+                markDownloaded(Paths.get(path), sftp.stat(targetPath).getMTime());
+            }
+            log.info("Download file success. download path: {}", path);
+            return TransferResult.of(targetPath, bytes, properties.getChecksumAlgorithm(), value, expected);
         } catch (Exception e) {
             log.error("Download file failure. download path: {}", path);
-            return false;
+            markFailed(sftp, e);
+            recordFailure(SftpOperation.DOWNLOAD, e);
+            return TransferResult.failed(targetPath, e);
+        } finally {
+            release(sftp);
+        }
+    }
+
+    /**
+     * Verify a downloaded file. A file that fails verification is cut to zero bytes, so a resumed download starts over instead of taking the corrupt file for a complete one.
+     */
+    private static String verifyDownload(final String targetPath, final FileChannel file, final StreamChecksum checksum, final String expected) throws IOException {
+        try {
+            return verify(targetPath, checksum, expected);
+        } catch (IOException e) {
+            file.truncate(0);
+            throw e;
+        }
+    }
+
+    /**
+     * Continue an interrupted download from the size of the partial local file instead of fetching the whole file again.
+     */
+    private TransferResult downloadResumable(final String targetPath, final File localFile) throws JSchException {
+        final ChannelSftp sftp = getChannelSftp();
+        try {
+            changeToRoot(sftp);
+            final SftpATTRS attrs = sftp.stat(targetPath);
+            final long remoteSize = attrs.getSize();
+            final long offset = getDownloadResumeOffset(sftp, targetPath, localFile, attrs);
+            final String expected = readSidecar(sftp, targetPath);
+            final StreamChecksum checksum = properties.getChecksumAlgorithm().newChecksum();
+            if (offset > 0 && offset < remoteSize) {
+                log.info("Resume download from {} bytes. download path: {}", offset, localFile.getPath());
+            }
+            try (FileChannel file = FileChannel.open(localFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                checksumLocal(file, offset, checksum);
+                long bytes = 0;
+                if (offset > 0 && offset == remoteSize) {
+                    log.info("Download file already completed. download path: {}", localFile.getPath());
+                } else {
+                    file.truncate(offset);
+                    if (properties.getTransferPreallocate()) {
+                        preallocate(file, remoteSize);
+                    }
+                    bytes = copy(sftp, SftpOperation.DOWNLOAD, targetPath, file, offset, checksum);
+                    checkSize(targetPath, offset + bytes, remoteSize);
+                    log.info("Download file success. download path: {}", localFile.getPath());
+                }
+                final String value = verifyDownload(targetPath, file, checksum, expected);
+                markDownloaded(localFile.toPath(), attrs.getMTime());
+                return TransferResult.of(targetPath, bytes, properties.getChecksumAlgorithm(), value, expected);
+            }
+        } catch (Exception e) {
+            log.error("Download file failure. download path: {}", localFile.getPath());
+            markFailed(sftp, e);
+            recordFailure(SftpOperation.DOWNLOAD, e);
+            return TransferResult.failed(targetPath, e);
+        } finally {
+            release(sftp);
+        }
+    }
+
+    /**
+     * A local file as large as the remote one is only complete when a download gave it the modification time of the remote file. Otherwise it may be a preallocated file left by a download that failed or was killed, so the
+     * transfer starts over.
+     */
+    private long getDownloadResumeOffset(final ChannelSftp sftp, final String targetPath, final File localFile, final SftpATTRS attrs) {
+        final long localSize = localFile.length();
+        if (localSize == attrs.getSize() && localFile.lastModified() / 1000 != attrs.getMTime()) {
+            log.info("Local file is not a completed download, transfer starts over. download path: {}", localFile.getPath());
+            return 0;
+        }
+        return getResumeOffset(sftp, targetPath, localFile, localSize, attrs.getSize(), localSize == attrs.getSize());
+    }
+
+    /**
+     * With resumeTransfers, give a completed download the modification time of the remote file, which getDownloadResumeOffset takes as the proof that it is complete.
+     */
+    private void markDownloaded(final Path localPath, final int mtime) throws IOException {
+        Files.setLastModifiedTime(localPath, FileTime.from(mtime, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Feed the part of the local file that is kept on resume into the checksum. Only local bytes are read; the remote file is still transferred once.
+     */
+    private void checksumLocal(final FileChannel file, final long length, final StreamChecksum checksum) throws IOException {
+        if (isNull(checksum) || length <= 0) {
+            return;
+        }
+        final byte[] buffer = new byte[properties.getTransferBufferSize()];
+        final ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        long position = 0;
+        while (position < length) {
+            byteBuffer.clear().limit((int) Math.min(buffer.length, length - position));
+            final int read = file.read(byteBuffer, position);
+            if (read == -1) {
+                throw new EOFException(String.format("Unexpected end of local file at %d", position));
+            }
+            checksum.update(buffer, 0, read);
+            position += read;
+        }
+    }
+
+    /**
+     * Copy the remote file from offset into the local file at the same position. When the copy fails the local file is cut back to the bytes actually written, so a preallocated file is never mistaken for a complete one on resume.
+     */
+    private long copy(final ChannelSftp sftp, final SftpOperation operation, final String targetPath, final FileChannel file, final long offset, final StreamChecksum checksum) throws SftpException, IOException {
+        file.position(offset);
+        try (InputStream inputStream = new ChecksumInputStream(new InterruptibleInputStream(sftp.get(targetPath, monitor(sftp, operation), offset)), checksum)) {
+            return buffers.copy(inputStream, file);
+        } finally {
+            file.truncate(file.position());
+        }
+    }
+
+    /**
+     * Extend the local file to its final size up front, so the file system can reserve the space before the data arrives instead of growing the file on every write.
+     */
+    private static void preallocate(final FileChannel file, final long size) throws IOException {
+        if (size > file.size()) {
+            file.write(ByteBuffer.wrap(new byte[1]), size - 1);
+        }
+    }
+
+    private SftpATTRS getSegmentedDownloadAttrs(final String targetPath) throws JSchException {
+        if (properties.getSegmentParallelism() <= 1) {
+            return null;
+        }
+        final ChannelSftp sftp = getChannelSftp();
+        try {
+            changeToRoot(sftp);
+            return sftp.stat(targetPath);
+        } catch (SftpException e) {
+            markFailed(sftp, e);
+            return null;
+        } finally {
+            release(sftp);
+        }
+    }
+
+    /**
+     * Split the remote file into segments of SftpProperties.segmentSize bytes and fetch them concurrently over up to segmentParallelism channels. Every segment is written at its own offset into a local file that is preallocated to the full size.
+     * When a segment fails, the file is cut back to the segments completed from its start, so it holds no holes and a resumed download continues after them.
+     */
+    private TransferResult downloadSegments(final String targetPath, final String path, final SftpATTRS attrs) throws JSchException {
+        final List<Segment> segments = Segment.split(attrs.getSize(), properties.getSegmentSize());
+        final Set<Segment> completed = ConcurrentHashMap.newKeySet();
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        try (FileChannel file = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            preallocate(file, attrs.getSize());
+            try {
+                forEachParallel(segments, properties.getSegmentParallelism(), (channel, segment) -> {
+                    if (nonNull(failure.get())) {
+                        return;
+                    }
+                    ChannelSftp sftp = null;
+                    try {
+                        sftp = channel.get();
+                        changeToRoot(sftp);
+                        downloadSegment(sftp, targetPath, file, segment);
+                        completed.add(segment);
+                    } catch (Exception e) {
+                        markFailed(sftp, e);
+                        failure.compareAndSet(null, e);
+                    }
+                });
+            } catch (JSchException e) {
+                failure.compareAndSet(null, e);
+            }
+            if (nonNull(failure.get())) {
+                file.truncate(getCompletedLength(segments, completed));
+            } else if (properties.getResumeTransfers()) {
+                markDownloaded(Paths.get(path), attrs.getMTime());
+            }
+        } catch (IOException e) {
+            failure.compareAndSet(null, e);
+        }
+        if (nonNull(failure.get())) {
+            log.error("Download file failure. download path: {}, cause: {}", path, failure.get().getMessage());
+            recordFailure(SftpOperation.DOWNLOAD, failure.get());
+            return TransferResult.failed(targetPath, failure.get());
+        }
+        log.info("Download file success. download path: {}, segments: {}", path, segments.size());
+        return TransferResult.of(targetPath, attrs.getSize(), ChecksumAlgorithm.NONE, null, null);
+    }
+
+    private static long getCompletedLength(final List<Segment> segments, final Set<Segment> completed) {
+        long length = 0;
+        for (Segment segment : segments) {
+            if (!completed.contains(segment)) {
+                break;
+            }
+            length += segment.length;
+        }
+        return length;
+    }
+
+    private void downloadSegment(final ChannelSftp sftp, final String targetPath, final FileChannel file, final Segment segment) throws SftpException, IOException {
+        try (InputStream inputStream = new InterruptibleInputStream(sftp.get(targetPath, monitor(sftp, SftpOperation.DOWNLOAD), segment.offset))) {
+            final long copied = buffers.copy(inputStream, file, segment.offset, segment.length);
+            if (copied < segment.length) {
+                throw new EOFException(String.format("Unexpected end of file. target path: %s, offset: %d", targetPath, segment.offset + copied));
+            }
+        }
+    }
+
+    private static final class Segment {
+
+        private final long offset;
+
+        private final long length;
+
+        private Segment(long offset, long length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        private static List<Segment> split(final long size, final long segmentSize) {
+            final List<Segment> segments = new ArrayList<>();
+            for (long offset = 0; offset < size; offset += segmentSize) {
+                segments.add(new Segment(offset, Math.min(segmentSize, size - offset)));
+            }
+            return segments;
+        }
+
+    }
+
+    /**
+     * Make one side of a directory match the other. The remote directory is relative to the root of SftpProperties. Only files that are missing on the destination or differ in size or modification time are transferred, and the source
+     * modification time is applied to the copy, so the next run skips it. With deleteExtraneous, files that only exist on the destination are deleted. Transfers are spread over up to SftpProperties.parallelism channels.
+     *
+     * @param remoteDirPath String
+     * @param localDirPath  Path
+     * @param options       SyncOptions
+     * @return BatchResult {@literal <}SyncAction{@literal >} keyed by file path relative to the synced directories
+     */
+    @Override
+    public BatchResult<SyncAction> sync(final String remoteDirPath, final Path localDirPath, final SyncOptions options) throws JSchException, IOException {
+        final long start = System.nanoTime();
+        boolean success = false;
+        try {
+            final BatchResult<SyncAction> result = syncDirectory(remoteDirPath, localDirPath, options);
+            success = result.isAllSucceeded();
+            return result;
         } finally {
-            disconnect(sftp);
-            log.info("Disconnected sftp connection.");
+            recordOperation(SftpOperation.SYNC, start, success);
         }
     }
 
+    private BatchResult<SyncAction> syncDirectory(final String remoteDirPath, final Path localDirPath, final SyncOptions options) throws JSchException, IOException {
+        final boolean download = options.getDirection() == SyncDirection.DOWNLOAD;
+        final Map<String, SftpATTRS> remoteFiles = listRemoteFiles(remoteDirPath, options.isRecursive(), !download);
+        final Map<String, BasicFileAttributes> localFiles = listLocalFiles(localDirPath, options.isRecursive(), download);
+        final Set<String> sourcePaths = download ? remoteFiles.keySet() : localFiles.keySet();
+        final Set<String> destinationPaths = download ? localFiles.keySet() : remoteFiles.keySet();
+
+        final List<String> paths = new ArrayList<>(sourcePaths);
+        final List<String> transfers = new ArrayList<>();
+        final List<String> deletions = new ArrayList<>();
+        final Map<String, SyncAction> succeeded = new ConcurrentHashMap<>();
+        final Map<String, Exception> failed = new ConcurrentHashMap<>();
+        for (String path : sourcePaths) {
+            if (destinationPaths.contains(path) && isSameFile(remoteFiles.get(path), localFiles.get(path))) {
+                succeeded.put(path, SyncAction.SKIPPED);
+            } else {
+                transfers.add(path);
+            }
+        }
+        if (options.isDeleteExtraneous()) {
+            for (String path : destinationPaths) {
+                if (!sourcePaths.contains(path)) {
+                    deletions.add(path);
+                    paths.add(path);
+                }
+            }
+        }
+        log.info("Sync {} {} and {}. transfer: {}, delete: {}, unchanged: {}", options.getDirection(), remoteDirPath, localDirPath, transfers.size(), deletions.size(), succeeded.size());
+
+        final List<String> changes = new ArrayList<>(transfers);
+        changes.addAll(deletions);
+        final Set<String> deletionSet = new HashSet<>(deletions);
+        forEachParallel(changes, properties.getParallelism(), (channel, path) -> {
+            final String remotePath = getRemotePath(remoteDirPath, path);
+            final Path localPath = localDirPath.resolve(path);
+            ChannelSftp sftp = null;
+            try {
+                sftp = channel.get();
+                changeToRoot(sftp);
+                if (deletionSet.contains(path)) {
+                    if (download) {
+                        Files.deleteIfExists(localPath);
+                    } else {
+                        sftp.rm(remotePath);
+                    }
+                    succeeded.put(path, SyncAction.DELETED);
+                    return;
+                }
+                if (download) {
+                    syncDownload(sftp, remotePath, localPath, remoteFiles.get(path));
+                } else {
+                    syncUpload(sftp, remotePath, localPath, localFiles.get(path));
+                }
+                succeeded.put(path, SyncAction.TRANSFERRED);
+            } catch (Exception e) {
+                log.error("Sync file failure. path: {}, cause: {}", path, e.getMessage());
+                markFailed(sftp, e);
+                if (!download) {
+                    invalidateUpstreamDirs(remotePath);
+                }
+                recordFailure(SftpOperation.SYNC, e);
+                failed.put(path, e);
+            }
+        });
+        return BatchResult.of(paths, succeeded, failed);
+    }
+
+    private void syncDownload(final ChannelSftp sftp, final String remotePath, final Path localPath, final SftpATTRS attrs) throws SftpException, IOException {
+        Files.createDirectories(localPath.toAbsolutePath().getParent());
+        try (FileChannel file = FileChannel.open(localPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (isPayloadCompressed()) {
+                try (InputStream inputStream = getContent(sftp, remotePath, SftpOperation.SYNC)) {
+                    buffers.copy(inputStream, file);
+                }
+            } else {
+                if (properties.getTransferPreallocate()) {
+                    preallocate(file, attrs.getSize());
+                }
+                copy(sftp, SftpOperation.SYNC, remotePath, file, 0, null);
+            }
+        }
+        Files.setLastModifiedTime(localPath, FileTime.from(attrs.getMTime(), TimeUnit.SECONDS));
+    }
+
+    private void syncUpload(final ChannelSftp sftp, final String remotePath, final Path localPath, final BasicFileAttributes attrs) throws SftpException, IOException {
+        try (InputStream inputStream = FileChannelInputStream.open(localPath)) {
+            withParentDirs(sftp, remotePath, fileName -> {
+                putContent(sftp, SftpOperation.SYNC, fileName, inputStream);
+                sftp.setMtime(fileName, (int) attrs.lastModifiedTime().to(TimeUnit.SECONDS));
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Sftp only keeps modification times in whole seconds, so the local time is compared at that precision. A GZIP payload is smaller on the server than on the local side, so only the modification time is compared for it.
+     */
+    private boolean isSameFile(final SftpATTRS remote, final BasicFileAttributes local) {
+        return (isPayloadCompressed() || remote.getSize() == local.size()) && remote.getMTime() == local.lastModifiedTime().to(TimeUnit.SECONDS);
+    }
+
+    private static String getRemotePath(final String remoteDirPath, final String relativePath) {
+        if (relativePath.isEmpty()) {
+            return StringUtils.isBlank(remoteDirPath) ? "." : remoteDirPath;
+        }
+        return StringUtils.isBlank(remoteDirPath) ? relativePath : remoteDirPath + "/" + relativePath;
+    }
+
+    /**
+     * Regular files below the remote directory keyed by their path relative to it. A missing directory is only an error when it is the source of the sync.
+     */
+    private Map<String, SftpATTRS> listRemoteFiles(final String remoteDirPath, final boolean recursive, final boolean missingAsEmpty) throws JSchException, NoSuchFileException {
+        final Map<String, SftpATTRS> files = new LinkedHashMap<>();
+        final ChannelSftp sftp = getChannelSftp();
+        try {
+            changeToRoot(sftp);
+            final Deque<String> dirs = new ArrayDeque<>();
+            dirs.add("");
+            while (!dirs.isEmpty()) {
+                final String dir = dirs.poll();
+                sftp.ls(getRemotePath(remoteDirPath, dir), entry -> {
+                    final String name = entry.getFilename();
+                    if (".".equals(name) || "..".equals(name)) {
+                        return LsEntrySelector.CONTINUE;
+                    }
+                    final String path = dir.isEmpty() ? name : dir + "/" + name;
+                    if (isFile(entry)) {
+                        files.put(path, entry.getAttrs());
+                    } else if (recursive) {
+                        dirs.add(path);
+                    }
+                    return LsEntrySelector.CONTINUE;
+                });
+            }
+            return files;
+        } catch (SftpException e) {
+            if (missingAsEmpty && e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE && files.isEmpty()) {
+                return files;
+            }
+            log.error("Sync file list failure. target path: {}", remoteDirPath);
+            markFailed(sftp, e);
+            recordFailure(SftpOperation.SYNC, e);
+            throw withCause(new NoSuchFileException(remoteDirPath), e);
+        } finally {
+            release(sftp);
+        }
+    }
+
+    /**
+     * Regular files below the local directory keyed by their path relative to it, with / as separator to match the remote side.
+     */
+    private static Map<String, BasicFileAttributes> listLocalFiles(final Path localDirPath, final boolean recursive, final boolean missingAsEmpty) throws IOException {
+        final Map<String, BasicFileAttributes> files = new LinkedHashMap<>();
+        if (!Files.isDirectory(localDirPath)) {
+            if (missingAsEmpty && !Files.exists(localDirPath)) {
+                return files;
+            }
+            throw new NoSuchFileException(localDirPath.toString());
+        }
+        Files.walkFileTree(localDirPath, EnumSet.noneOf(FileVisitOption.class), recursive ? Integer.MAX_VALUE : 1, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    files.put(localDirPath.relativize(file).toString().replace(File.separatorChar, '/'), attrs);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    /**
+     * Keep the original failure as the cause, so callers can tell a missing path from a lost connection with SftpErrorType.classify.
+     */
+    private static <T extends Exception> T withCause(final T exception, final Throwable cause) {
+        exception.initCause(cause);
+        return exception;
+    }
+
     private String getFileName(final String filePath) {
         int index = filePath.lastIndexOf("/");
         return filePath.substring(index + 1);
     }
 
+    /**
+     * Disconnect every pooled sftp connection. Channels that are still in use are disconnected as soon as they are released. Closing again has no effect.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        workers.shutdownNow();
+        pool.close();
+        bandwidthLimiter.unregister(properties.getBandwidthLimit());
+        log.info("Closed sftp channel pool.");
+    }
+
 }
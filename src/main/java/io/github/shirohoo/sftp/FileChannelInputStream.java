@@ -0,0 +1,60 @@
+package io.github.shirohoo.sftp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * InputStream over a local FileChannel. Unlike FileInputStream wrapped by Channels.newInputStream, skip only moves the position, so a resumed upload does not read the part of the file the server already has.
+ */
+final class FileChannelInputStream extends InputStream {
+
+    private final FileChannel channel;
+
+    FileChannelInputStream(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    static FileChannelInputStream open(final Path path) throws IOException {
+        return new FileChannelInputStream(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        return channel.read(ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        final long position = channel.position();
+        final long skipped = Math.min(n, Math.max(channel.size() - position, 0));
+        channel.position(position + skipped);
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(Math.max(channel.size() - channel.position(), 0), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -0,0 +1,187 @@
+package io.github.shirohoo.sftp;
+
+import static java.util.Objects.isNull;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SftpMetricsListener that keeps everything in memory, grouped by host. Useful for exposing metrics through an endpoint or logging them periodically without adding a metrics library.
+ */
+public final class InMemorySftpMetrics implements SftpMetricsListener {
+
+    private final ConcurrentMap<String, HostMetrics> hosts = new ConcurrentHashMap<>();
+
+    private HostMetrics host(final String host) {
+        return hosts.computeIfAbsent(String.valueOf(host), key -> new HostMetrics());
+    }
+
+    @Override
+    public void onPhase(final String host, final SftpPhase phase, final long elapsedNanos) {
+        final HostMetrics metrics = host(host);
+        metrics.phases.get(phase).record(elapsedNanos);
+        if (phase == SftpPhase.TRANSFER) {
+            metrics.onTransfer(System.nanoTime(), elapsedNanos);
+        }
+    }
+
+    @Override
+    public void onOperation(final String host, final SftpOperation operation, final long elapsedNanos, final boolean success) {
+        (success ? host(host).operations : host(host).failedOperations).get(operation).record(elapsedNanos);
+    }
+
+    @Override
+    public void onBytesTransferred(final String host, final SftpOperation operation, final long bytes) {
+        host(host).bytes.get(operation).add(bytes);
+    }
+
+    @Override
+    public void onFailure(final String host, final SftpOperation operation, final Throwable cause) {
+        final String key = (isNull(operation) ? "CONNECTION" : operation.name()) + ":" + cause.getClass().getSimpleName();
+        host(host).failures.computeIfAbsent(key, k -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void onPoolState(final String host, final int active, final int idle) {
+        final HostMetrics metrics = host(host);
+        metrics.activeConnections = active;
+        metrics.idleConnections = idle;
+    }
+
+    public Set<String> getHosts() {
+        return Collections.unmodifiableSet(hosts.keySet());
+    }
+
+    public HostMetrics getHostMetrics(final String host) {
+        return host(host);
+    }
+
+    @Override
+    public String toString() {
+        return new TreeMap<>(hosts).toString();
+    }
+
+    public static final class HostMetrics {
+
+        private final Map<SftpPhase, LatencyHistogram> phases = new EnumMap<>(SftpPhase.class);
+
+        private final Map<SftpOperation, LatencyHistogram> operations = new EnumMap<>(SftpOperation.class);
+
+        private final Map<SftpOperation, LatencyHistogram> failedOperations = new EnumMap<>(SftpOperation.class);
+
+        private final Map<SftpOperation, LongAdder> bytes = new EnumMap<>(SftpOperation.class);
+
+        private final ConcurrentMap<String, LongAdder> failures = new ConcurrentHashMap<>();
+
+        private volatile int activeConnections;
+
+        private volatile int idleConnections;
+
+        /**
+         * Start of the first and end of the last TRANSFER phase, guarded by this.
+         */
+        private long firstTransferStart;
+
+        private long lastTransferEnd;
+
+        private boolean transferred;
+
+        private HostMetrics() {
+            for (SftpPhase phase : SftpPhase.values()) {
+                phases.put(phase, new LatencyHistogram());
+            }
+            for (SftpOperation operation : SftpOperation.values()) {
+                operations.put(operation, new LatencyHistogram());
+                failedOperations.put(operation, new LatencyHistogram());
+                bytes.put(operation, new LongAdder());
+            }
+        }
+
+        public LatencyHistogram getPhase(final SftpPhase phase) {
+            return phases.get(phase);
+        }
+
+        /**
+         * Latencies of the calls of an operation that succeeded. A failure that returns quickly, like a missing file, would otherwise pull the percentiles down.
+         */
+        public LatencyHistogram getOperation(final SftpOperation operation) {
+            return operations.get(operation);
+        }
+
+        /**
+         * Latencies of the calls of an operation that failed or reported false; its count is the number of failed calls.
+         */
+        public LatencyHistogram getFailedOperation(final SftpOperation operation) {
+            return failedOperations.get(operation);
+        }
+
+        public long getBytes(final SftpOperation operation) {
+            return bytes.get(operation).sum();
+        }
+
+        public long getTotalBytes() {
+            return bytes.values().stream().mapToLong(LongAdder::sum).sum();
+        }
+
+        private synchronized void onTransfer(final long endNanos, final long elapsedNanos) {
+            final long startNanos = endNanos - elapsedNanos;
+            if (!transferred || startNanos - firstTransferStart < 0) {
+                firstTransferStart = startNanos;
+            }
+            if (!transferred || endNanos - lastTransferEnd > 0) {
+                lastTransferEnd = endNanos;
+            }
+            transferred = true;
+        }
+
+        /**
+         * Bytes per second of the host, that is total bytes divided by the wall-clock time from the start of the first transfer to the end of the last one. Concurrent transfers add up, and pauses between transfers count as
+         * time.
+         */
+        public double getThroughput() {
+            final long nanos;
+            synchronized (this) {
+                nanos = lastTransferEnd - firstTransferStart;
+            }
+            return nanos <= 0 ? 0 : getTotalBytes() * 1_000_000_000d / nanos;
+        }
+
+        /**
+         * Bytes per second of a single transfer on average, that is total bytes divided by the summed time of every TRANSFER phase. With n concurrent transfers this is about 1/n of getThroughput.
+         */
+        public double getStreamThroughput() {
+            final long nanos = phases.get(SftpPhase.TRANSFER).getTotalNanos();
+            return nanos == 0 ? 0 : getTotalBytes() * 1_000_000_000d / nanos;
+        }
+
+        /**
+         * Failure counts keyed by operation and exception class, for example UPLOAD:SftpException.
+         */
+        public Map<String, Long> getFailures() {
+            final Map<String, Long> counts = new TreeMap<>();
+            failures.forEach((key, count) -> counts.put(key, count.sum()));
+            return counts;
+        }
+
+        public int getActiveConnections() {
+            return activeConnections;
+        }
+
+        public int getIdleConnections() {
+            return idleConnections;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("{operations=%s, failedOperations=%s, phases=%s, bytes=%d, throughput=%.0fB/s, streamThroughput=%.0fB/s, failures=%s, active=%d, idle=%d}",
+                operations, failedOperations, phases, getTotalBytes(), getThroughput(), getStreamThroughput(), getFailures(), activeConnections, idleConnections);
+        }
+
+    }
+
+}
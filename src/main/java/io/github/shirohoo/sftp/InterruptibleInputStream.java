@@ -0,0 +1,34 @@
+package io.github.shirohoo.sftp;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Stream returned by ChannelSftp.get that fails with InterruptedIOException where JSch would report the end of the file, when TransferMonitor stopped the transfer because the thread was interrupted.
+ */
+final class InterruptibleInputStream extends FilterInputStream {
+
+    InterruptibleInputStream(InputStream inputStream) {
+        super(inputStream);
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int read = super.read();
+        if (read == -1) {
+            TransferMonitor.checkInterrupted();
+        }
+        return read;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        final int read = super.read(b, off, len);
+        if (read == -1) {
+            TransferMonitor.checkInterrupted();
+        }
+        return read;
+    }
+
+}
@@ -0,0 +1,79 @@
+package io.github.shirohoo.sftp;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power-of-two microsecond buckets. Percentiles are approximate: they return the upper bound of the bucket that holds the requested rank.
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private volatile long maxNanos;
+
+    void record(final long elapsedNanos) {
+        final long micros = Math.max(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), 1);
+        counts.incrementAndGet(BUCKETS - 1 - Long.numberOfLeadingZeros(micros));
+        count.increment();
+        totalNanos.add(elapsedNanos);
+        if (elapsedNanos > maxNanos) {
+            synchronized (this) {
+                if (elapsedNanos > maxNanos) {
+                    maxNanos = elapsedNanos;
+                }
+            }
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public double getMeanMillis() {
+        final long total = count.sum();
+        return total == 0 ? 0 : totalNanos.sum() / (double) total / 1_000_000;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos / 1_000_000d;
+    }
+
+    /**
+     * @param quantile double between 0 and 1, for example 0.99
+     * @return double upper bound in milliseconds
+     */
+    public double getPercentileMillis(final double quantile) {
+        final long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min((1L << (bucket + 1)) / 1_000d, getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%.2fms, p50=%.2fms, p99=%.2fms, max=%.2fms",
+            getCount(), getMeanMillis(), getPercentileMillis(0.5), getPercentileMillis(0.99), getMaxMillis());
+    }
+
+}
@@ -0,0 +1,137 @@
+package io.github.shirohoo.sftp;
+
+import java.nio.file.FileSystems;
+import java.nio.file.InvalidPathException;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Options of SftpClient.listEntries. By default every entry of the directory itself is listed, in pages of 1000 entries.
+ */
+public final class ListOptions {
+
+    private final String glob;
+
+    private final PathMatcher matcher;
+
+    private final Set<RemoteEntry.Type> types;
+
+    private final boolean recursive;
+
+    private final int maxDepth;
+
+    private final int pageSize;
+
+    private ListOptions(ListOptionsBuilder builder) {
+        this.glob = builder.glob;
+        this.matcher = Objects.isNull(builder.glob) ? null : FileSystems.getDefault().getPathMatcher("glob:" + builder.glob);
+        this.types = Collections.unmodifiableSet(EnumSet.copyOf(builder.types));
+        this.recursive = builder.recursive;
+        this.maxDepth = builder.maxDepth;
+        this.pageSize = builder.pageSize;
+    }
+
+    public static ListOptions defaults() {
+        return builder().build();
+    }
+
+    public static ListOptionsBuilder builder() {
+        return new ListOptionsBuilder();
+    }
+
+    public String getGlob() {
+        return glob;
+    }
+
+    public Set<RemoteEntry.Type> getTypes() {
+        return types;
+    }
+
+    public boolean isRecursive() {
+        return recursive;
+    }
+
+    /**
+     * Levels listed, where 1 is the directory itself. Always 1 when not recursive.
+     */
+    public int getMaxDepth() {
+        return recursive ? maxDepth : 1;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Whether the entry is delivered. Directories are still descended into when they do not match.
+     */
+    boolean matches(final String name, final RemoteEntry.Type type) {
+        if (!types.contains(type)) {
+            return false;
+        }
+        try {
+            return Objects.isNull(matcher) || matcher.matches(Paths.get(name));
+        } catch (InvalidPathException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ListOptions{glob=%s, types=%s, recursive=%s, maxDepth=%d, pageSize=%d}", glob, types, recursive, maxDepth, pageSize);
+    }
+
+    public static class ListOptionsBuilder {
+        private String glob;
+        private Set<RemoteEntry.Type> types = EnumSet.allOf(RemoteEntry.Type.class);
+        private boolean recursive;
+        private int maxDepth = Integer.MAX_VALUE;
+        private int pageSize = 1000;
+
+        ListOptionsBuilder() {}
+
+        /**
+         * Glob matched against entry names, for example *.csv. null matches every name.
+         */
+        public ListOptionsBuilder glob(String glob) {
+            this.glob = glob;
+            return this;
+        }
+
+        public ListOptionsBuilder types(RemoteEntry.Type first, RemoteEntry.Type... rest) {
+            this.types = EnumSet.of(first, rest);
+            return this;
+        }
+
+        public ListOptionsBuilder recursive(boolean recursive) {
+            this.recursive = recursive;
+            return this;
+        }
+
+        public ListOptionsBuilder maxDepth(int maxDepth) {
+            if (maxDepth < 1) {
+                throw new IllegalArgumentException(String.format("maxDepth must be at least 1. maxDepth: %d", maxDepth));
+            }
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        public ListOptionsBuilder pageSize(int pageSize) {
+            if (pageSize < 1) {
+                throw new IllegalArgumentException(String.format("pageSize must be at least 1. pageSize: %d", pageSize));
+            }
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        public ListOptions build() {
+            return new ListOptions(this);
+        }
+
+    }
+
+}
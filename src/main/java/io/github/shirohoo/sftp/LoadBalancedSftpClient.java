@@ -0,0 +1,562 @@
+package io.github.shirohoo.sftp;
+
+import com.jcraft.jsch.JSchException;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+
+/**
+ * SftpClient over several equivalent endpoints. Each operation goes to the healthy endpoint with the lowest load, scored as in-flight operations times observed latency. Streams and channels returned by openRead,
+ * openReadChannel, openWrite and streamFiles count as in flight until they are closed. Latency is only sampled from listings, removes and opens, whose duration does not grow with the size of a file, and an endpoint
+ * without samples is scored with the mean latency of the sampled ones. Endpoints whose operations fail or return an unsuccessful result ejectAfterFailures times in a row are skipped for ejectionMillis. Only connection
+ * failures, timeouts, open circuits and rejected logins count; a missing file, a denied permission or any other failure the server answered with would fail the same way on every endpoint, so it is returned to the caller
+ * as is, without failing over and without touching the health of the endpoint. Unsuccessful results without a cause, such as false from remove, never count against an endpoint. read, readContent, openRead,
+ * openReadChannel, listEntries, listFiles, listFilesWithResult, download and downloadWithResult are idempotent and fail over to the next endpoint; other operations, including paged listEntries whose pages may already
+ * have been handled, run on one endpoint only.
+ */
+public final class LoadBalancedSftpClient implements SftpClient {
+
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(LoadBalancedSftpClient.class);
+
+    private static final int DEFAULT_EJECT_AFTER_FAILURES = 3;
+
+    private static final long DEFAULT_EJECTION_MILLIS = 30_000L;
+
+    private final List<Endpoint> endpoints;
+
+    private final int ejectAfterFailures;
+
+    private final long ejectionNanos;
+
+    public LoadBalancedSftpClient(Collection<SftpProperties> endpoints) {
+        this(endpoints, SftpMetricsListener.NO_OP);
+    }
+
+    public LoadBalancedSftpClient(Collection<SftpProperties> endpoints, SftpMetricsListener listener) {
+        this(createClients(endpoints, listener), DEFAULT_EJECT_AFTER_FAILURES, DEFAULT_EJECTION_MILLIS);
+    }
+
+    /**
+     * @param clients            List {@literal <}SftpClient{@literal >} one client per endpoint, closed together with this client
+     * @param ejectAfterFailures int consecutive failures before an endpoint is ejected
+     * @param ejectionMillis     long how long an ejected endpoint is skipped
+     */
+    public LoadBalancedSftpClient(List<SftpClient> clients, int ejectAfterFailures, long ejectionMillis) {
+        if (clients.isEmpty()) {
+            throw new IllegalArgumentException("At least one endpoint is required");
+        }
+        final List<Endpoint> list = new ArrayList<>();
+        for (int i = 0; i < clients.size(); i++) {
+            list.add(new Endpoint(i, clients.get(i)));
+        }
+        this.endpoints = Collections.unmodifiableList(list);
+        this.ejectAfterFailures = Math.max(ejectAfterFailures, 1);
+        this.ejectionNanos = TimeUnit.MILLISECONDS.toNanos(ejectionMillis);
+    }
+
+    private static List<SftpClient> createClients(final Collection<SftpProperties> endpoints, final SftpMetricsListener listener) {
+        final List<SftpClient> clients = new ArrayList<>();
+        for (SftpProperties properties : endpoints) {
+            clients.add(new DefaultSftpClient(properties, listener));
+        }
+        return clients;
+    }
+
+    @Override
+    public File read(final String targetPath) throws JSchException, NotDirectoryException {
+        return failover(client -> client.read(targetPath), file -> true, Kind.TRANSFER, null);
+    }
+
+    @Override
+    public RemoteContent readContent(final String targetPath) throws JSchException, NoSuchFileException {
+        return failover(client -> client.readContent(targetPath), content -> true, Kind.TRANSFER, null);
+    }
+
+    @Override
+    public InputStream openRead(final String targetPath) throws JSchException, NoSuchFileException {
+        return failover(client -> client.openRead(targetPath), inputStream -> true, Kind.METADATA, (inputStream, release) -> new RemoteInputStream(inputStream, failed -> release.run()));
+    }
+
+    @Override
+    public SeekableByteChannel openReadChannel(final String targetPath) throws JSchException, NoSuchFileException {
+        return failover(client -> client.openReadChannel(targetPath), channel -> true, Kind.METADATA, ReleasingChannel::new);
+    }
+
+    @Override
+    public List<File> listFiles(final String targetDirPath) throws JSchException, NoSuchFileException {
+        return failover(client -> client.listFiles(targetDirPath), files -> true, Kind.TRANSFER, null);
+    }
+
+    @Override
+    public BatchResult<File> listFilesWithResult(final String targetDirPath) throws JSchException, NoSuchFileException {
+        return failover(client -> client.listFilesWithResult(targetDirPath), BatchResult::isAllSucceeded, Kind.TRANSFER, null);
+    }
+
+    @Override
+    public Stream<File> streamFiles(final String targetDirPath) throws JSchException {
+        final Endpoint endpoint = select(Collections.emptyList());
+        endpoint.inFlight.incrementAndGet();
+        final long start = System.nanoTime();
+        try {
+            final Stream<File> stream = endpoint.client.streamFiles(targetDirPath);
+            endpoint.onSuccess(System.nanoTime() - start, Kind.TRANSFER);
+            return stream.onClose(endpoint::release);
+        } catch (JSchException | RuntimeException e) {
+            endpoint.inFlight.decrementAndGet();
+            if (isEndpointFailure(e)) {
+                onFailure(endpoint, e.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public List<RemoteEntry> listEntries(final String targetDirPath, final ListOptions options) throws JSchException, NoSuchFileException {
+        return failover(client -> client.listEntries(targetDirPath, options), entries -> true, Kind.METADATA, null);
+    }
+
+    @Override
+    public void listEntries(final String targetDirPath, final ListOptions options, final Predicate<List<RemoteEntry>> pageHandler) throws JSchException, NoSuchFileException {
+        route(client -> {
+            client.listEntries(targetDirPath, options, pageHandler);
+            return null;
+        }, ignored -> true, Kind.METADATA, null);
+    }
+
+    @Override
+    public boolean upload(final String targetPath, final File uploadFile) throws JSchException {
+        return uploadWithResult(targetPath, uploadFile).isSucceeded();
+    }
+
+    @Override
+    public TransferResult uploadWithResult(final String targetPath, final File uploadFile) throws JSchException {
+        return route(client -> client.uploadWithResult(targetPath, uploadFile), TransferResult::isSucceeded, Kind.TRANSFER, null);
+    }
+
+    @Override
+    public boolean upload(final String targetPath, final InputStream uploadFileStream) throws IOException, JSchException {
+        return uploadWithResult(targetPath, uploadFileStream).isSucceeded();
+    }
+
+    @Override
+    public TransferResult uploadWithResult(final String targetPath, final InputStream uploadFileStream) throws IOException, JSchException {
+        return route(client -> client.uploadWithResult(targetPath, uploadFileStream), TransferResult::isSucceeded, Kind.TRANSFER, null);
+    }
+
+    @Override
+    public OutputStream openWrite(final String targetPath) throws JSchException {
+        return route(client -> client.openWrite(targetPath), outputStream -> true, Kind.METADATA, ReleasingOutputStream::new);
+    }
+
+    @Override
+    public BatchResult<Long> uploadAll(final Collection<UploadItem> uploadItems) throws JSchException {
+        return route(client -> client.uploadAll(uploadItems), BatchResult::isAllSucceeded, Kind.TRANSFER, null);
+    }
+
+    @Override
+    public boolean remove(final String targetPath) throws JSchException {
+        return route(client -> client.remove(targetPath), removed -> true, Kind.METADATA, null);
+    }
+
+    @Override
+    public BatchResult<RemoteEntry.Type> removeAll(final Collection<String> targetPaths) throws JSchException {
+        return route(client -> client.removeAll(targetPaths), BatchResult::isAllSucceeded, Kind.TRANSFER, null);
+    }
+
+    @Override
+    public BatchResult<RemoteEntry.Type> removeAll(final String targetDirPath, final ListOptions options) throws JSchException, NoSuchFileException {
+        return route(client -> client.removeAll(targetDirPath, options), BatchResult::isAllSucceeded, Kind.TRANSFER, null);
+    }
+
+    @Override
+    public BatchResult<RemoteEntry.Type> removeDirectory(final String targetDirPath) throws JSchException, NoSuchFileException {
+        return route(client -> client.removeDirectory(targetDirPath), BatchResult::isAllSucceeded, Kind.TRANSFER, null);
+    }
+
+    @Override
+    public boolean download(final String targetPath, final Path downloadPath) throws JSchException {
+        return downloadWithResult(targetPath, downloadPath).isSucceeded();
+    }
+
+    @Override
+    public TransferResult downloadWithResult(final String targetPath, final Path downloadPath) throws JSchException {
+        return failover(client -> client.downloadWithResult(targetPath, downloadPath), TransferResult::isSucceeded, Kind.TRANSFER, null);
+    }
+
+    @Override
+    public BatchResult<SyncAction> sync(final String remoteDirPath, final Path localDirPath, final SyncOptions options) throws JSchException, IOException {
+        return route(client -> client.sync(remoteDirPath, localDirPath, options), BatchResult::isAllSucceeded, Kind.TRANSFER, null);
+    }
+
+    /**
+     * Number of endpoints that are not ejected right now.
+     */
+    public int getHealthyEndpointCount() {
+        final long now = System.nanoTime();
+        return (int) endpoints.stream().filter(endpoint -> endpoint.isHealthy(now)).count();
+    }
+
+    /**
+     * Try endpoints from the least loaded one until the call succeeds or fails for a reason that is not the endpoint's. The result of the last attempt, or its exception, is returned when every endpoint failed. With a holder, the endpoint
+     * stays in flight until the returned resource is closed.
+     */
+    private <T, E extends Exception> T failover(final EndpointCall<T, E> call, final Predicate<T> succeeded, final Kind kind, final InFlightHolder<T> holder) throws JSchException, E {
+        final List<Endpoint> tried = new ArrayList<>();
+        Exception failure = null;
+        T result = null;
+        while (tried.size() < endpoints.size()) {
+            final Endpoint endpoint = select(tried);
+            tried.add(endpoint);
+            endpoint.inFlight.incrementAndGet();
+            final long start = System.nanoTime();
+            boolean held = false;
+            try {
+                result = call.call(endpoint.client);
+                failure = null;
+                if (succeeded.test(result)) {
+                    endpoint.onSuccess(System.nanoTime() - start, kind);
+                    held = holder != null;
+                    return held ? holder.hold(result, endpoint::release) : result;
+                }
+                if (!countsAgainstEndpoint(result)) {
+                    return result;
+                }
+                onFailure(endpoint, "unsuccessful result");
+            } catch (RuntimeException e) {
+                if (isEndpointFailure(e)) {
+                    onFailure(endpoint, e.getMessage());
+                }
+                throw e;
+            } catch (Exception e) {
+                if (!isEndpointFailure(e)) {
+                    throw e;
+                }
+                failure = e;
+                onFailure(endpoint, e.getMessage());
+            } finally {
+                if (!held) {
+                    endpoint.inFlight.decrementAndGet();
+                }
+            }
+            if (tried.size() < endpoints.size()) {
+                log.info("Fail over from endpoint {}. tried: {}/{}", endpoint.index, tried.size(), endpoints.size());
+            }
+        }
+        if (failure instanceof JSchException) {
+            throw (JSchException) failure;
+        }
+        if (failure != null) {
+            throw EndpointCall.<E>cast(failure);
+        }
+        return result;
+    }
+
+    /**
+     * Run the call on the least loaded endpoint only. An unsuccessful result counts against the endpoint like an exception does, but is still returned.
+     */
+    private <T, E extends Exception> T route(final EndpointCall<T, E> call, final Predicate<T> succeeded, final Kind kind, final InFlightHolder<T> holder) throws JSchException, E {
+        final Endpoint endpoint = select(Collections.emptyList());
+        endpoint.inFlight.incrementAndGet();
+        final long start = System.nanoTime();
+        boolean held = false;
+        try {
+            final T result = call.call(endpoint.client);
+            if (succeeded.test(result)) {
+                endpoint.onSuccess(System.nanoTime() - start, kind);
+            } else if (countsAgainstEndpoint(result)) {
+                onFailure(endpoint, "unsuccessful result");
+            }
+            held = holder != null;
+            return held ? holder.hold(result, endpoint::release) : result;
+        } catch (Exception e) {
+            if (isEndpointFailure(e)) {
+                onFailure(endpoint, e.getMessage());
+            }
+            throw e;
+        } finally {
+            if (!held) {
+                endpoint.inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * The healthy endpoint with the lowest load that was not tried yet. When every candidate is ejected, the one that comes back first is used rather than failing without trying.
+     */
+    private Endpoint select(final List<Endpoint> tried) {
+        final long now = System.nanoTime();
+        final double unsampledLatency = getMeanLatency();
+        Endpoint best = null;
+        Endpoint soonest = null;
+        for (Endpoint endpoint : endpoints) {
+            if (tried.contains(endpoint)) {
+                continue;
+            }
+            if (endpoint.isHealthy(now)) {
+                if (best == null || endpoint.getLoad(unsampledLatency) < best.getLoad(unsampledLatency)) {
+                    best = endpoint;
+                }
+            } else if (soonest == null || endpoint.ejectedUntil - soonest.ejectedUntil < 0) {
+                soonest = endpoint;
+            }
+        }
+        return best != null ? best : soonest;
+    }
+
+    /**
+     * Mean latency of the endpoints that have samples, so an endpoint that was never sampled is neither preferred nor avoided for it. 1 until any endpoint was sampled.
+     */
+    private double getMeanLatency() {
+        double sum = 0;
+        int sampled = 0;
+        for (Endpoint endpoint : endpoints) {
+            final double latency = endpoint.getLatencyNanos();
+            if (latency > 0) {
+                sum += latency;
+                sampled++;
+            }
+        }
+        return sampled == 0 ? 1 : sum / sampled;
+    }
+
+    /**
+     * Whether the failure is the endpoint's rather than the request's. A missing file or a denied permission fails the same way on every endpoint, while a lost connection, a timeout, an open circuit or a rejected login may not.
+     */
+    private static boolean isEndpointFailure(final Throwable failure) {
+        final SftpErrorType type = SftpErrorType.classify(failure);
+        return type == SftpErrorType.TRANSIENT || type == SftpErrorType.CIRCUIT_OPEN || type == SftpErrorType.AUTHENTICATION;
+    }
+
+    /**
+     * Whether an unsuccessful result is the endpoint's failure. Results are judged by the failures they carry; a result without a cause says nothing about the endpoint and does not count.
+     */
+    private static boolean countsAgainstEndpoint(final Object result) {
+        if (result instanceof TransferResult) {
+            final Exception failure = ((TransferResult) result).getFailure();
+            return failure != null && isEndpointFailure(failure);
+        }
+        if (result instanceof BatchResult) {
+            return ((BatchResult<?>) result).getFailed().values().stream().anyMatch(LoadBalancedSftpClient::isEndpointFailure);
+        }
+        return false;
+    }
+
+    private void onFailure(final Endpoint endpoint, final String cause) {
+        if (endpoint.onFailure(ejectAfterFailures, ejectionNanos)) {
+            log.error("Ejected endpoint {} for {} ms. cause: {}", endpoint.index, TimeUnit.NANOSECONDS.toMillis(ejectionNanos), cause);
+        }
+    }
+
+    @Override
+    public void close() {
+        endpoints.forEach(endpoint -> endpoint.client.close());
+    }
+
+    @FunctionalInterface
+    private interface EndpointCall<T, E extends Exception> {
+
+        T call(SftpClient client) throws JSchException, E;
+
+        @SuppressWarnings("unchecked")
+        static <E extends Exception> E cast(final Exception e) {
+            return (E) e;
+        }
+
+    }
+
+    /**
+     * Whether the duration of an operation says something about the endpoint. The duration of a transfer mostly depends on the size of the file, so mixing it into the latency average would make an endpoint look slow just because it
+     * served a large file.
+     */
+    private enum Kind {
+        METADATA,
+        TRANSFER
+    }
+
+    @FunctionalInterface
+    private interface InFlightHolder<T> {
+
+        /**
+         * Wrap result so that release runs once when it is closed.
+         */
+        T hold(T result, Runnable release);
+
+    }
+
+    private static final class ReleasingChannel implements SeekableByteChannel {
+
+        private final SeekableByteChannel channel;
+
+        private final Runnable release;
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private ReleasingChannel(SeekableByteChannel channel, Runnable release) {
+            this.channel = channel;
+            this.release = release;
+        }
+
+        @Override
+        public int read(final ByteBuffer dst) throws IOException {
+            return channel.read(dst);
+        }
+
+        @Override
+        public int write(final ByteBuffer src) throws IOException {
+            return channel.write(src);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return channel.position();
+        }
+
+        @Override
+        public SeekableByteChannel position(final long newPosition) throws IOException {
+            channel.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public SeekableByteChannel truncate(final long size) throws IOException {
+            channel.truncate(size);
+            return this;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                channel.close();
+            } finally {
+                release.run();
+            }
+        }
+
+    }
+
+    private static final class ReleasingOutputStream extends FilterOutputStream {
+
+        private final Runnable release;
+
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private ReleasingOutputStream(OutputStream outputStream, Runnable release) {
+            super(outputStream);
+            this.release = release;
+        }
+
+        @Override
+        public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+            out.write(bytes, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                out.close();
+            } finally {
+                release.run();
+            }
+        }
+
+    }
+
+    private static final class Endpoint {
+
+        /**
+         * Weight of the newest sample in the latency average.
+         */
+        private static final double LATENCY_DECAY = 0.2;
+
+        private final int index;
+
+        private final SftpClient client;
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private double latencyNanos;
+
+        private int consecutiveFailures;
+
+        private volatile long ejectedUntil;
+
+        private volatile boolean ejected;
+
+        private Endpoint(int index, SftpClient client) {
+            this.index = index;
+            this.client = client;
+        }
+
+        private boolean isHealthy(final long now) {
+            return !ejected || now - ejectedUntil >= 0;
+        }
+
+        private synchronized double getLatencyNanos() {
+            return latencyNanos;
+        }
+
+        private synchronized double getLoad(final double unsampledLatency) {
+            return (inFlight.get() + 1) * (latencyNanos == 0 ? unsampledLatency : latencyNanos);
+        }
+
+        private synchronized void onSuccess(final long elapsedNanos, final Kind kind) {
+            if (kind == Kind.METADATA) {
+                latencyNanos = latencyNanos == 0 ? elapsedNanos : latencyNanos + LATENCY_DECAY * (elapsedNanos - latencyNanos);
+            }
+            consecutiveFailures = 0;
+            ejected = false;
+        }
+
+        private void release() {
+            inFlight.decrementAndGet();
+        }
+
+        /**
+         * Returns true when this failure ejected the endpoint.
+         */
+        private synchronized boolean onFailure(final int ejectAfterFailures, final long ejectionNanos) {
+            if (++consecutiveFailures < ejectAfterFailures) {
+                return false;
+            }
+            consecutiveFailures = 0;
+            ejectedUntil = System.nanoTime() + ejectionNanos;
+            ejected = true;
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,11 @@
+package io.github.shirohoo.sftp;
+
+/**
+ * Client-side compression of file content for upload and download. Unlike session compression the remote file itself holds the compressed bytes, so it also saves disk space on the server and works with servers that refuse zlib.
+ * Every read path of SftpClient decompresses, except openReadChannel, which can not seek in a gzip stream and rejects compressed payloads. sync can not compare the size of a compressed file with the local one and compares only
+ * the modification time.
+ */
+public enum PayloadCompression {
+    NONE,
+    GZIP
+}
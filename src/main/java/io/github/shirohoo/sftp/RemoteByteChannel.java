@@ -0,0 +1,173 @@
+package io.github.shirohoo.sftp;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.SftpException;
+import com.jcraft.jsch.SftpProgressMonitor;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Read-only SeekableByteChannel over a remote file that holds its pooled channel until it is closed. Reads are served from one sequential sftp stream; changing the position only reopens that stream at the new offset on the next read.
+ * size is the size of the file when the channel was opened. onClose is called with whether reading failed, so the channel is not lent again while it may hold replies to reads of this channel.
+ */
+final class RemoteByteChannel implements SeekableByteChannel {
+
+    private static final int MAX_CHUNK_SIZE = 64 * 1024;
+
+    private final ChannelSftp sftp;
+
+    private final String targetPath;
+
+    private final long size;
+
+    private final Supplier<SftpProgressMonitor> monitors;
+
+    private final Consumer<Boolean> onClose;
+
+    private InputStream inputStream;
+
+    private long streamPosition;
+
+    private long position;
+
+    private boolean failed;
+
+    private boolean open = true;
+
+    RemoteByteChannel(ChannelSftp sftp, String targetPath, long size, Supplier<SftpProgressMonitor> monitors, Consumer<Boolean> onClose) {
+        this.sftp = sftp;
+        this.targetPath = targetPath;
+        this.size = size;
+        this.monitors = monitors;
+        this.onClose = onClose;
+    }
+
+    @Override
+    public synchronized int read(final ByteBuffer dst) throws IOException {
+        checkOpen();
+        if (position >= size) {
+            return -1;
+        }
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+        try {
+            return readStream(dst);
+        } catch (IOException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    private int readStream(final ByteBuffer dst) throws IOException {
+        final InputStream stream = getStream();
+        final int length = (int) Math.min(dst.remaining(), size - position);
+        final int read;
+        if (dst.hasArray()) {
+            read = stream.read(dst.array(), dst.arrayOffset() + dst.position(), length);
+            if (read > 0) {
+                dst.position(dst.position() + read);
+            }
+        } else {
+            final byte[] chunk = new byte[Math.min(length, MAX_CHUNK_SIZE)];
+            read = stream.read(chunk, 0, chunk.length);
+            if (read > 0) {
+                dst.put(chunk, 0, read);
+            }
+        }
+        if (read < 0) {
+            return -1;
+        }
+        position += read;
+        streamPosition += read;
+        return read;
+    }
+
+    private InputStream getStream() throws IOException {
+        if (inputStream != null && streamPosition == position) {
+            return inputStream;
+        }
+        closeStream();
+        try {
+            inputStream = new InterruptibleInputStream(sftp.get(targetPath, monitors.get(), position));
+            streamPosition = position;
+            return inputStream;
+        } catch (SftpException e) {
+            throw new IOException(String.format("Open remote file failure. target path: %s, offset: %d", targetPath, position), e);
+        }
+    }
+
+    private void closeStream() throws IOException {
+        if (inputStream != null) {
+            final InputStream stream = inputStream;
+            inputStream = null;
+            stream.close();
+        }
+    }
+
+    @Override
+    public int write(final ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized long position() throws IOException {
+        checkOpen();
+        return position;
+    }
+
+    @Override
+    public synchronized SeekableByteChannel position(final long newPosition) throws IOException {
+        checkOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException(String.format("Negative position: %d", newPosition));
+        }
+        position = newPosition;
+        return this;
+    }
+
+    @Override
+    public synchronized long size() throws IOException {
+        checkOpen();
+        return size;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(final long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!open) {
+            return;
+        }
+        open = false;
+        try {
+            closeStream();
+        } catch (IOException e) {
+            failed = true;
+            throw e;
+        } finally {
+            onClose.accept(failed);
+        }
+    }
+
+    private void checkOpen() throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+
+}
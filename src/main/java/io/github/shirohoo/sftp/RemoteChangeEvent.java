@@ -0,0 +1,46 @@
+package io.github.shirohoo.sftp;
+
+/**
+ * Change of a single entry of a directory watched by RemoteDirectoryWatcher. For DELETED, entry holds the attributes last seen before the entry disappeared.
+ */
+public final class RemoteChangeEvent {
+
+    public enum Type {
+        CREATED,
+        MODIFIED,
+        DELETED
+    }
+
+    private final Type type;
+
+    private final String directory;
+
+    private final RemoteEntry entry;
+
+    RemoteChangeEvent(Type type, String directory, RemoteEntry entry) {
+        this.type = type;
+        this.directory = directory;
+        this.entry = entry;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * The watched directory, as passed to RemoteDirectoryWatcher.watch.
+     */
+    public String getDirectory() {
+        return directory;
+    }
+
+    public RemoteEntry getEntry() {
+        return entry;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RemoteChangeEvent{type=%s, directory=%s, entry=%s}", type, directory, entry);
+    }
+
+}
@@ -0,0 +1,17 @@
+package io.github.shirohoo.sftp;
+
+/**
+ * Receives the changes found by RemoteDirectoryWatcher. Calls for one watched directory never overlap, so an implementation only needs to be thread-safe when it is shared by several directories.
+ */
+@FunctionalInterface
+public interface RemoteChangeListener {
+
+    void onChange(RemoteChangeEvent event);
+
+    /**
+     * Called when listing the directory failed. The watcher keeps polling at the longest interval until listing works again.
+     */
+    default void onError(final String directory, final Exception cause) {
+    }
+
+}
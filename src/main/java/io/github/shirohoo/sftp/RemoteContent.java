@@ -0,0 +1,192 @@
+package io.github.shirohoo.sftp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import org.slf4j.Logger;
+
+/**
+ * Content of a remote file read by SftpClient.readContent. Small files are held in a heap or direct ByteBuffer, larger files are spilled to a temp file that is deleted when this object is closed.
+ */
+public final class RemoteContent implements Closeable {
+
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(RemoteContent.class);
+
+    private static final int COPY_BUFFER_SIZE = 32 * 1024;
+
+    /**
+     * Largest content a ByteBuffer can hold; larger files are always spilled, whatever the threshold.
+     */
+    static final long MAX_IN_MEMORY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final ByteBuffer buffer;
+
+    private final Path spillFile;
+
+    private final long size;
+
+    private volatile boolean closed;
+
+    private RemoteContent(ByteBuffer buffer, Path spillFile, long size) {
+        this.buffer = buffer;
+        this.spillFile = spillFile;
+        this.size = size;
+    }
+
+    /**
+     * Read the whole stream. Up to threshold bytes, and never more than MAX_IN_MEMORY_SIZE, are kept in memory; when the stream turns out to be longer, everything is written to a temp file instead.
+     */
+    static RemoteContent read(final InputStream inputStream, final long expectedSize, final long threshold, final boolean direct) throws IOException {
+        if (expectedSize > Math.min(threshold, MAX_IN_MEMORY_SIZE)) {
+            return spill(null, inputStream);
+        }
+        final int capacity = Math.toIntExact(Math.max(expectedSize, 0));
+        final ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        final byte[] chunk = new byte[COPY_BUFFER_SIZE];
+        int read;
+        while (buffer.hasRemaining() && (read = inputStream.read(chunk, 0, Math.min(chunk.length, buffer.remaining()))) != -1) {
+            buffer.put(chunk, 0, read);
+        }
+        buffer.flip();
+        final int next = inputStream.read();
+        if (next == -1) {
+            return new RemoteContent(buffer.asReadOnlyBuffer(), null, buffer.remaining());
+        }
+        final ByteBuffer head = ByteBuffer.allocate(buffer.remaining() + 1);
+        head.put(buffer).put((byte) next).flip();
+        return spill(head, inputStream);
+    }
+
+    private static RemoteContent spill(final ByteBuffer head, final InputStream inputStream) throws IOException {
+        final Path file = Files.createTempFile("sftp-", ".tmp");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            if (head != null) {
+                while (head.hasRemaining()) {
+                    channel.write(head);
+                }
+            }
+            final OutputStream outputStream = Channels.newOutputStream(channel);
+            final byte[] chunk = new byte[COPY_BUFFER_SIZE];
+            int read;
+            while ((read = inputStream.read(chunk)) != -1) {
+                outputStream.write(chunk, 0, read);
+            }
+            log.info("Spilled remote content to {}", file);
+            return new RemoteContent(null, file, channel.size());
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public boolean isInMemory() {
+        return buffer != null;
+    }
+
+    /**
+     * Temp file holding the content when it was larger than SftpProperties.readSpillThreshold. The file is deleted by close.
+     */
+    public Optional<Path> getSpillFile() {
+        return Optional.ofNullable(spillFile);
+    }
+
+    /**
+     * Read-only view of the content. Spilled content is memory mapped, so the view must not be used after close.
+     */
+    public ByteBuffer asByteBuffer() throws IOException {
+        checkOpen();
+        if (isInMemory()) {
+            return buffer.duplicate();
+        }
+        try (FileChannel channel = FileChannel.open(spillFile, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size).asReadOnlyBuffer();
+        }
+    }
+
+    public byte[] toByteArray() throws IOException {
+        checkOpen();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException(String.format("Content is too large for a byte array. size: %d", size));
+        }
+        if (isInMemory()) {
+            final byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            return bytes;
+        }
+        return Files.readAllBytes(spillFile);
+    }
+
+    public InputStream openStream() throws IOException {
+        checkOpen();
+        if (isInMemory()) {
+            return new ByteBufferInputStream(buffer.duplicate());
+        }
+        return Files.newInputStream(spillFile);
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Remote content is closed");
+        }
+    }
+
+    /**
+     * Delete the spill file, if any. In-memory content is released to the garbage collector.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (spillFile != null) {
+            Files.deleteIfExists(spillFile);
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            final int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+    }
+
+}
@@ -0,0 +1,79 @@
+package io.github.shirohoo.sftp;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size and TTL bounded set of remote directories, relative to root, that are known to exist. Lets upload skip the cd/mkdir walk for directories it has already created or visited.
+ */
+final class RemoteDirectoryCache {
+
+    private final int maxSize;
+
+    private final long ttl;
+
+    private final Map<String, Long> expirations;
+
+    RemoteDirectoryCache(int maxSize, long ttl) {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.expirations = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Long> eldest) {
+                return size() > RemoteDirectoryCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns how many leading segments of the given directory are known to exist.
+     */
+    synchronized int getCachedDepth(final String[] dirs) {
+        if (maxSize <= 0) {
+            return 0;
+        }
+        final long now = System.currentTimeMillis();
+        for (int depth = dirs.length; depth > 0; depth--) {
+            final String key = join(dirs, depth);
+            final Long expiration = expirations.get(key);
+            if (expiration == null) {
+                continue;
+            }
+            if (expiration > now) {
+                return depth;
+            }
+            expirations.remove(key);
+        }
+        return 0;
+    }
+
+    synchronized void put(final String[] dirs, final int depth) {
+        if (maxSize > 0) {
+            expirations.put(join(dirs, depth), ttl > 0 ? System.currentTimeMillis() + ttl : Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Forget the directory and all of its ancestors, because any of them may have been removed.
+     */
+    synchronized void invalidate(final String[] dirs) {
+        for (int depth = dirs.length; depth > 0; depth--) {
+            expirations.remove(join(dirs, depth));
+        }
+    }
+
+    /**
+     * Forget the directory, its ancestors and everything below it, after the directory itself was removed.
+     */
+    synchronized void invalidateTree(final String[] dirs) {
+        invalidate(dirs);
+        final String prefix = join(dirs, dirs.length) + "/";
+        expirations.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    static String join(final String[] dirs, final int depth) {
+        return String.join("/", Arrays.copyOf(dirs, depth));
+    }
+
+}
@@ -0,0 +1,225 @@
+package io.github.shirohoo.sftp;
+
+import com.jcraft.jsch.JSchException;
+import java.io.Closeable;
+import java.nio.file.NoSuchFileException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+
+/**
+ * Watches remote directories by polling their metadata with SftpClient.listEntries and comparing it with the previous poll, keyed by path and compared by size and modified time. No content is transferred. All watched directories share
+ * a small pool of polling threads and the channel pool of the client, so at most threads channels are used for listing however many directories are watched. Directories that stay unchanged are polled less and less often.
+ */
+public final class RemoteDirectoryWatcher implements Closeable {
+
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(RemoteDirectoryWatcher.class);
+
+    private final SftpClient client;
+
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    /**
+     * @param client  SftpClient used for listing, not closed by this watcher
+     * @param threads int number of directories listed at the same time
+     */
+    public RemoteDirectoryWatcher(SftpClient client, int threads) {
+        this.client = client;
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.scheduler = new ScheduledThreadPoolExecutor(Math.max(threads, 1), runnable -> {
+            Thread thread = new Thread(runnable, "sftp-watcher-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.setRemoveOnCancelPolicy(true);
+        this.scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    public Closeable watch(final String remoteDirPath, final RemoteChangeListener listener) {
+        return watch(remoteDirPath, listener, WatchOptions.defaults());
+    }
+
+    /**
+     * Start watching a directory. The first poll takes the snapshot the following polls are compared with, and is spread randomly over minInterval so that many directories added at once are not listed at the same moment. Close the
+     * returned handle to stop watching; once close returns nothing more is reported for the directory.
+     *
+     * @param remoteDirPath String directory relative to the root of SftpProperties
+     * @param listener      RemoteChangeListener
+     * @param options       WatchOptions
+     * @return Closeable
+     */
+    public Closeable watch(final String remoteDirPath, final RemoteChangeListener listener, final WatchOptions options) {
+        final Watch watch = new Watch(remoteDirPath, Objects.requireNonNull(listener, "listener"), options);
+        watch.schedule(ThreadLocalRandom.current().nextLong(options.getMinInterval()));
+        log.info("Watch remote directory {}. options: {}", remoteDirPath, options);
+        return watch;
+    }
+
+    /**
+     * Stop every watch. Nothing is reported after this returns, except by a poll that was already reporting changes.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+    }
+
+    private final class Watch implements Closeable {
+
+        private final String directory;
+
+        private final RemoteChangeListener listener;
+
+        private final WatchOptions options;
+
+        /**
+         * Entries already reported, or taken by the first poll. null until the first poll succeeded.
+         */
+        private Map<String, RemoteEntry> snapshot;
+
+        /**
+         * New or changed entries waiting to look the same for stableChecks polls.
+         */
+        private final Map<String, Pending> pending = new HashMap<>();
+
+        private long interval;
+
+        private volatile ScheduledFuture<?> next;
+
+        private volatile boolean closed;
+
+        private Watch(String directory, RemoteChangeListener listener, WatchOptions options) {
+            this.directory = directory;
+            this.listener = listener;
+            this.options = options;
+            this.interval = options.getMinInterval();
+        }
+
+        private synchronized void schedule(final long delay) {
+            if (!closed && !scheduler.isShutdown()) {
+                next = scheduler.schedule(this::poll, delay, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void poll() {
+            if (closed) {
+                return;
+            }
+            try {
+                final List<RemoteEntry> entries = client.listEntries(directory, options.getListOptions());
+                final boolean changed;
+                synchronized (this) {
+                    if (closed || scheduler.isShutdown()) {
+                        return;
+                    }
+                    changed = diff(entries);
+                }
+                interval = changed || !pending.isEmpty() ? options.getMinInterval() : Math.min(interval * 2, options.getMaxInterval());
+            } catch (JSchException | NoSuchFileException | RuntimeException e) {
+                log.error("Watch remote directory failure. directory: {}, cause: {}", directory, e.getMessage());
+                interval = options.getMaxInterval();
+                notifyError(e);
+            }
+            schedule(interval);
+        }
+
+        /**
+         * Compare a listing with the snapshot and report what changed. Returns true when anything differs from the previous poll.
+         */
+        private boolean diff(final List<RemoteEntry> entries) {
+            final Map<String, RemoteEntry> current = new HashMap<>();
+            for (RemoteEntry entry : entries) {
+                current.put(entry.getPath(), entry);
+            }
+            if (snapshot == null) {
+                snapshot = new HashMap<>();
+                if (!options.isEmitExisting()) {
+                    snapshot.putAll(current);
+                    return false;
+                }
+            }
+            boolean changed = pending.keySet().retainAll(current.keySet());
+            final Iterator<Map.Entry<String, RemoteEntry>> iterator = snapshot.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final RemoteEntry known = iterator.next().getValue();
+                if (!current.containsKey(known.getPath())) {
+                    iterator.remove();
+                    notifyChange(RemoteChangeEvent.Type.DELETED, known);
+                    changed = true;
+                }
+            }
+            for (RemoteEntry entry : current.values()) {
+                final RemoteEntry known = snapshot.get(entry.getPath());
+                if (known != null && isSame(known, entry)) {
+                    changed |= pending.remove(entry.getPath()) != null;
+                    continue;
+                }
+                Pending waiting = pending.get(entry.getPath());
+                if (waiting == null || !isSame(waiting.entry, entry)) {
+                    waiting = new Pending(entry);
+                    pending.put(entry.getPath(), waiting);
+                    changed = true;
+                } else {
+                    waiting.stablePolls++;
+                }
+                if (waiting.stablePolls >= options.getStableChecks()) {
+                    pending.remove(entry.getPath());
+                    snapshot.put(entry.getPath(), entry);
+                    notifyChange(known == null ? RemoteChangeEvent.Type.CREATED : RemoteChangeEvent.Type.MODIFIED, entry);
+                    changed = true;
+                }
+            }
+            return changed;
+        }
+
+        private boolean isSame(final RemoteEntry previous, final RemoteEntry current) {
+            return previous.getSize() == current.getSize() && Objects.equals(previous.getModifiedTime(), current.getModifiedTime());
+        }
+
+        private void notifyChange(final RemoteChangeEvent.Type type, final RemoteEntry entry) {
+            try {
+                listener.onChange(new RemoteChangeEvent(type, directory, entry));
+            } catch (RuntimeException e) {
+                log.error("Remote change listener failure. directory: {}, cause: {}", directory, e.getMessage(), e);
+            }
+        }
+
+        private void notifyError(final Exception cause) {
+            try {
+                listener.onError(directory, cause);
+            } catch (RuntimeException e) {
+                log.error("Remote change listener failure. directory: {}, cause: {}", directory, e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public synchronized void close() {
+            closed = true;
+            if (next != null) {
+                next.cancel(false);
+            }
+            log.info("Stopped watching remote directory {}", directory);
+        }
+
+    }
+
+    private static final class Pending {
+
+        private final RemoteEntry entry;
+
+        private int stablePolls;
+
+        private Pending(RemoteEntry entry) {
+            this.entry = entry;
+        }
+
+    }
+
+}
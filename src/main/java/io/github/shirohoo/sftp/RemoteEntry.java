@@ -0,0 +1,99 @@
+package io.github.shirohoo.sftp;
+
+import com.jcraft.jsch.SftpATTRS;
+import java.time.Instant;
+
+/**
+ * Attributes of one remote directory entry returned by SftpClient.listEntries. No content is transferred to build it.
+ */
+public final class RemoteEntry {
+
+    public enum Type {
+        FILE,
+        DIRECTORY,
+        SYMLINK,
+        OTHER
+    }
+
+    private final String path;
+
+    private final String name;
+
+    private final Type type;
+
+    private final long size;
+
+    private final Instant modifiedTime;
+
+    private final String permissions;
+
+    private RemoteEntry(String path, String name, Type type, long size, Instant modifiedTime, String permissions) {
+        this.path = path;
+        this.name = name;
+        this.type = type;
+        this.size = size;
+        this.modifiedTime = modifiedTime;
+        this.permissions = permissions;
+    }
+
+    static RemoteEntry of(final String path, final String name, final SftpATTRS attrs) {
+        return new RemoteEntry(path, name, getType(attrs), attrs.getSize(), Instant.ofEpochSecond(attrs.getMTime() & 0xFFFFFFFFL), attrs.getPermissionsString());
+    }
+
+    static Type getType(final SftpATTRS attrs) {
+        if (attrs.isLink()) {
+            return Type.SYMLINK;
+        }
+        if (attrs.isDir()) {
+            return Type.DIRECTORY;
+        }
+        return attrs.isReg() ? Type.FILE : Type.OTHER;
+    }
+
+    /**
+     * Path relative to the root of SftpProperties, usable with the other operations of SftpClient.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public boolean isFile() {
+        return type == Type.FILE;
+    }
+
+    public boolean isDirectory() {
+        return type == Type.DIRECTORY;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Sftp keeps modification times in whole seconds.
+     */
+    public Instant getModifiedTime() {
+        return modifiedTime;
+    }
+
+    /**
+     * Permissions in ls -l form, for example -rw-r--r--.
+     */
+    public String getPermissions() {
+        return permissions;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RemoteEntry{path=%s, type=%s, size=%d, modifiedTime=%s}", path, type, size, modifiedTime);
+    }
+
+}
@@ -0,0 +1,11 @@
+package io.github.shirohoo.sftp;
+
+import com.jcraft.jsch.SftpException;
+import java.io.IOException;
+
+@FunctionalInterface
+interface RemoteFileTask<T> {
+
+    T run(String fileName) throws SftpException, IOException;
+
+}
@@ -0,0 +1,70 @@
+package io.github.shirohoo.sftp;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Stream over a remote file that holds its pooled channel until it is closed. onClose is called with whether a read or the close failed, so the channel is not lent again while it may hold replies to reads of this stream.
+ */
+final class RemoteInputStream extends FilterInputStream {
+
+    private final Consumer<Boolean> onClose;
+
+    private boolean failed;
+
+    private boolean closed;
+
+    RemoteInputStream(InputStream inputStream, Consumer<Boolean> onClose) {
+        super(inputStream);
+        this.onClose = onClose;
+    }
+
+    @Override
+    public synchronized int read() throws IOException {
+        try {
+            return super.read();
+        } catch (IOException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized int read(final byte[] b, final int off, final int len) throws IOException {
+        try {
+            return super.read(b, off, len);
+        } catch (IOException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized long skip(final long n) throws IOException {
+        try {
+            return super.skip(n);
+        } catch (IOException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            super.close();
+        } catch (IOException e) {
+            failed = true;
+            throw e;
+        } finally {
+            onClose.accept(failed);
+        }
+    }
+
+}
@@ -0,0 +1,220 @@
+package io.github.shirohoo.sftp;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind stream to a remote file. Written bytes are collected in a bounded ring of buffers that a sender thread pushes to the remote stream, so the producer keeps writing while earlier buffers are on the wire. When all buffers are
+ * in flight the producer blocks, which bounds memory. The completion callback decides what happens to the remote file once the stream is closed.
+ */
+final class RemoteOutputStream extends OutputStream {
+
+    private static final Chunk END_OF_STREAM = new Chunk(0);
+
+    private static final long POLL_MILLIS = 100;
+
+    private final OutputStream remote;
+
+    private final Completion completion;
+
+    private final BlockingQueue<Chunk> filled;
+
+    private final BlockingQueue<Chunk> free;
+
+    private final Future<?> sender;
+
+    private Chunk current;
+
+    private volatile Exception failure;
+
+    private boolean closed;
+
+    RemoteOutputStream(OutputStream remote, ExecutorService executor, int bufferSize, int bufferCount, Completion completion) {
+        this.remote = remote;
+        this.completion = completion;
+        final int count = Math.max(bufferCount, 2);
+        this.filled = new ArrayBlockingQueue<>(count + 1);
+        this.free = new ArrayBlockingQueue<>(count);
+        for (int i = 1; i < count; i++) {
+            free.add(new Chunk(bufferSize));
+        }
+        this.current = new Chunk(bufferSize);
+        this.sender = executor.submit(this::send);
+    }
+
+    private Void send() throws IOException, InterruptedException {
+        try {
+            Chunk chunk;
+            while ((chunk = filled.take()) != END_OF_STREAM) {
+                remote.write(chunk.data, 0, chunk.length);
+                chunk.length = 0;
+                free.put(chunk);
+            }
+            TransferMonitor.checkInterrupted();
+            remote.close();
+            return null;
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            failure = e;
+            throw e;
+        }
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        checkOpen();
+        if (current == null || current.isFull()) {
+            handOver();
+        }
+        current.data[current.length++] = (byte) b;
+    }
+
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        checkOpen();
+        int written = 0;
+        while (written < length) {
+            if (current == null || current.isFull()) {
+                handOver();
+            }
+            final int count = Math.min(length - written, current.data.length - current.length);
+            System.arraycopy(bytes, offset + written, current.data, current.length, count);
+            current.length += count;
+            written += count;
+        }
+    }
+
+    /**
+     * Hands the buffered bytes to the sender without waiting for them to be written.
+     */
+    @Override
+    public void flush() throws IOException {
+        checkOpen();
+        if (current != null && current.length > 0) {
+            handOver();
+        }
+    }
+
+    /**
+     * Pass the current buffer to the sender and take a free one. current stays null when waiting is interrupted, and the next write takes a free buffer again.
+     */
+    private void handOver() throws IOException {
+        if (current != null) {
+            enqueue(current);
+            current = null;
+        }
+        try {
+            Chunk next;
+            while ((next = free.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                checkFailure();
+            }
+            current = next;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a free write buffer");
+        }
+    }
+
+    private void enqueue(final Chunk chunk) throws IOException {
+        try {
+            while (!filled.offer(chunk, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                checkFailure();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while handing a buffer to the sender");
+        }
+    }
+
+    /**
+     * Wait until every buffer is written, then complete the remote file. When anything failed the completion is told so and the failure is rethrown, with a failure of the completion itself added as suppressed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            finish();
+        } catch (IOException | RuntimeException e) {
+            sender.cancel(true);
+            closeQuietly();
+            try {
+                completion.complete(false);
+            } catch (IOException | RuntimeException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        completion.complete(true);
+    }
+
+    private void finish() throws IOException {
+        try {
+            checkFailure();
+            if (current != null && current.length > 0) {
+                enqueue(current);
+            }
+            enqueue(END_OF_STREAM);
+            sender.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the upload to finish");
+        } catch (ExecutionException e) {
+            throw new IOException(String.format("Upload failure. cause: %s", e.getCause().getMessage()), e.getCause());
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            remote.close();
+        } catch (IOException | RuntimeException ignored) {
+            // the upload already failed and the temp file is removed
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream is closed");
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() throws IOException {
+        final Exception e = failure;
+        if (e != null) {
+            throw new IOException(String.format("Upload failure. cause: %s", e.getMessage()), e);
+        }
+    }
+
+    @FunctionalInterface
+    interface Completion {
+
+        void complete(boolean success) throws IOException;
+
+    }
+
+    private static final class Chunk {
+
+        private final byte[] data;
+
+        private int length;
+
+        private Chunk(int size) {
+            this.data = new byte[size];
+        }
+
+        private boolean isFull() {
+            return length == data.length;
+        }
+
+    }
+
+}
@@ -0,0 +1,373 @@
+package io.github.shirohoo.sftp;
+
+import static java.util.Objects.isNull;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+
+/**
+ * Bounded, thread-safe pool of connected sftp channels. Each pooled channel owns its own session, so a borrowed channel can be used without any coordination with other borrowers. Leased, idle and connecting channels together never
+ * exceed poolMaxTotal.
+ */
+final class SftpChannelPool implements Closeable {
+
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(SftpChannelPool.class);
+
+    /**
+     * Returned by takeIdleOrSlot when the caller does not wait and neither an idle channel nor a slot is free.
+     */
+    private static final PooledChannel NONE = new PooledChannel(null);
+
+    private final SftpConnectionFactory factory;
+
+    private final SftpProperties properties;
+
+    private final BlockingDeque<PooledChannel> idle = new LinkedBlockingDeque<>();
+
+    private final Map<ChannelSftp, PooledChannel> leased = new ConcurrentHashMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+
+    /**
+     * Signalled when a channel becomes idle or a slot is freed.
+     */
+    private final Condition available = lock.newCondition();
+
+    /**
+     * Leased, idle and connecting channels, guarded by lock.
+     */
+    private int total;
+
+    private final ScheduledExecutorService evictor;
+
+    private volatile boolean closed;
+
+    SftpChannelPool(SftpConnectionFactory factory, SftpProperties properties) {
+        this.factory = factory;
+        this.properties = properties;
+        this.evictor = createEvictor(properties.getPoolEvictionInterval());
+    }
+
+    private ScheduledExecutorService createEvictor(final long interval) {
+        if (interval <= 0) {
+            return null;
+        }
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sftp-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::evict, interval, interval, TimeUnit.MILLISECONDS);
+        return executor;
+    }
+
+    /**
+     * Borrow a connected channel, reusing an idle one when possible. Blocks up to poolMaxWait milliseconds when poolMaxTotal channels are already leased.
+     */
+    ChannelSftp borrow() throws JSchException {
+        return borrow(true);
+    }
+
+    /**
+     * Borrow a connected channel only if one is idle or a slot is free right now, and return null otherwise. For callers that already hold a channel and would block every other borrower while they wait for a second one.
+     */
+    ChannelSftp tryBorrow() throws JSchException {
+        return borrow(false);
+    }
+
+    private ChannelSftp borrow(final boolean wait) throws JSchException {
+        if (closed) {
+            throw new JSchException("Sftp channel pool is closed");
+        }
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getPoolMaxWait());
+        while (true) {
+            final PooledChannel pooled = takeIdleOrSlot(deadline, wait);
+            if (pooled == NONE) {
+                return null;
+            }
+            if (isNull(pooled)) {
+                try {
+                    return lease(new PooledChannel(factory.create()));
+                } catch (JSchException | RuntimeException e) {
+                    freeSlot();
+                    throw e;
+                }
+            }
+            if (isUsable(pooled, properties.getPoolTestOnBorrow())) {
+                return lease(pooled);
+            }
+            discard(pooled);
+        }
+    }
+
+    /**
+     * Take an idle channel, or reserve a slot for a new one and return null. Waits until the deadline while every slot is taken by a leased or connecting channel, or returns NONE at once when the caller does not wait.
+     */
+    private PooledChannel takeIdleOrSlot(final long deadline, final boolean wait) throws JSchException {
+        lock.lock();
+        try {
+            while (true) {
+                if (closed) {
+                    throw new JSchException("Sftp channel pool is closed");
+                }
+                final PooledChannel pooled = idle.pollFirst();
+                if (pooled != null) {
+                    return pooled;
+                }
+                if (total < properties.getPoolMaxTotal()) {
+                    total++;
+                    return null;
+                }
+                if (!wait) {
+                    return NONE;
+                }
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    final JSchException e = new JSchException(String.format("Timeout waiting for sftp channel. max total: %d", properties.getPoolMaxTotal()));
+                    factory.getListener().onFailure(factory.getHost(), null, e);
+                    throw e;
+                }
+                available.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JSchException("Interrupted while waiting for sftp channel", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean reserveSlot() {
+        lock.lock();
+        try {
+            if (total >= properties.getPoolMaxTotal()) {
+                return false;
+            }
+            total++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void freeSlot() {
+        lock.lock();
+        try {
+            total--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Put a channel back to idle unless the pool is closed or already holds poolMaxIdle idle channels. Checked under the same lock as the offer, so concurrent releases never exceed poolMaxIdle.
+     */
+    private boolean offerIdle(final PooledChannel pooled, final boolean first) {
+        lock.lock();
+        try {
+            if (closed || idle.size() >= properties.getPoolMaxIdle()) {
+                return false;
+            }
+            if (first) {
+                idle.offerFirst(pooled);
+            } else {
+                idle.offerLast(pooled);
+            }
+            available.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void discard(final PooledChannel pooled) {
+        factory.destroy(pooled.channel);
+        freeSlot();
+    }
+
+    private ChannelSftp lease(final PooledChannel pooled) {
+        leased.put(pooled.channel, pooled);
+        publishState();
+        return pooled.channel;
+    }
+
+    private void publishState() {
+        factory.getListener().onPoolState(factory.getHost(), leased.size(), idle.size());
+    }
+
+    /**
+     * Return a borrowed channel to the pool. Channels that are broken, expired or exceed poolMaxIdle are disconnected instead. A channel this pool did not lend, or one released twice, is ignored, since disconnecting it could cut off
+     * whoever really owns it.
+     */
+    void release(final ChannelSftp sftp) {
+        if (isNull(sftp)) {
+            return;
+        }
+        final PooledChannel pooled = leased.remove(sftp);
+        if (isNull(pooled)) {
+            log.error("Ignored release of a sftp channel that is not leased from this pool.");
+            return;
+        }
+        pooled.lastUsedAt = System.currentTimeMillis();
+        if (!isUsable(pooled, false) || !offerIdle(pooled, true)) {
+            discard(pooled);
+        }
+        publishState();
+    }
+
+    /**
+     * Disconnect a borrowed channel that must not be reused, for example after a protocol error.
+     */
+    void invalidate(final ChannelSftp sftp) {
+        if (isNull(sftp)) {
+            return;
+        }
+        final PooledChannel pooled = leased.remove(sftp);
+        factory.destroy(sftp);
+        if (pooled != null) {
+            freeSlot();
+        }
+        publishState();
+    }
+
+    int getActiveCount() {
+        return leased.size();
+    }
+
+    int getIdleCount() {
+        return idle.size();
+    }
+
+    private boolean isUsable(final PooledChannel pooled, final boolean validate) {
+        if (pooled.isExpired(properties.getPoolMaxLifetime()) || !pooled.isConnected()) {
+            return false;
+        }
+        if (!validate) {
+            return true;
+        }
+        try {
+            pooled.channel.realpath(".");
+            return true;
+        } catch (Exception e) {
+            log.info("Sftp channel validation failed. {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void evict() {
+        try {
+            final long now = System.currentTimeMillis();
+            final Iterator<PooledChannel> iterator = idle.descendingIterator();
+            while (iterator.hasNext()) {
+                final PooledChannel pooled = iterator.next();
+                final boolean idleTooLong = now - pooled.lastUsedAt > properties.getPoolMaxIdleTime() && idle.size() > properties.getPoolMinIdle();
+                if ((idleTooLong || !isUsable(pooled, false)) && idle.remove(pooled)) {
+                    discard(pooled);
+                    log.info("Evicted idle sftp channel to {}", properties.getHost());
+                }
+            }
+            fillMinIdle();
+            publishState();
+        } catch (RuntimeException e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Connect channels up front so the first operations do not pay for the handshake. Creates poolMinIdle channels, or one when poolMinIdle is 0.
+     */
+    void warmUp() {
+        fillIdle(Math.max(properties.getPoolMinIdle(), 1));
+        publishState();
+    }
+
+    private void fillMinIdle() {
+        fillIdle(properties.getPoolMinIdle());
+    }
+
+    /**
+     * Idle channels take a slot like leased ones, so filling stops when the pool is full.
+     */
+    private void fillIdle(final int target) {
+        while (!closed && idle.size() < target && reserveSlot()) {
+            try {
+                final PooledChannel pooled = new PooledChannel(factory.create());
+                if (!offerIdle(pooled, false)) {
+                    discard(pooled);
+                    return;
+                }
+            } catch (JSchException | RuntimeException e) {
+                freeSlot();
+                log.error("Create idle sftp channel failure. {}", e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Disconnect the idle channels and wake every borrower that waits for a channel, so it fails at once instead of waiting out poolMaxWait. Leased channels are disconnected when they are released.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        PooledChannel pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    private static final class PooledChannel {
+
+        private final ChannelSftp channel;
+
+        private final long createdAt;
+
+        private volatile long lastUsedAt;
+
+        private PooledChannel(ChannelSftp channel) {
+            this.channel = channel;
+            this.createdAt = System.currentTimeMillis();
+            this.lastUsedAt = createdAt;
+        }
+
+        private boolean isExpired(final long maxLifetime) {
+            return maxLifetime > 0 && System.currentTimeMillis() - createdAt > maxLifetime;
+        }
+
+        private boolean isConnected() {
+            if (!channel.isConnected()) {
+                return false;
+            }
+            try {
+                final Session session = channel.getSession();
+                return session != null && session.isConnected();
+            } catch (JSchException e) {
+                return false;
+            }
+        }
+
+    }
+
+}
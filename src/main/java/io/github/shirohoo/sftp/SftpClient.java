@@ -1,25 +1,67 @@
 package io.github.shirohoo.sftp;
 
 import com.jcraft.jsch.JSchException;
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.NotDirectoryException;
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
-public interface SftpClient {
+/**
+ * Every method added after 2.4 has a default implementation, so implementations written against 2.4 keep compiling. Most defaults are built on the methods of 2.4, download through read and handle one file at a time;
+ * listEntries(String, ListOptions), removeDirectory and sync can not be built on them and throw SftpClientException instead. DefaultSftpClient overrides all of them.
+ */
+public interface SftpClient extends Closeable {
 
     /**
      * Pass the path of the file you want to read as an argument. The starting path is the root of SftpProperties. For example, if root is ~/ and the path passed as an argument is user/temp/someFile.txt , SftpClient reads ~/user/temp/someFile.txt and
-     * returns it as a File object. At this time, the transferred file is not saved on the client hard disk, but only in client memory.
+     * returns it as a File object. The file is written to the working directory and deleted when the JVM exits. Use readContent to keep the content in memory instead.
      *
      * @param targetPath String
      * @return File
      */
     File read(final String targetPath) throws JSchException, NotDirectoryException;
 
+    /**
+     * Pass the path of the file you want to read as an argument. The starting path is the root of SftpProperties. Unlike read, the content is kept in memory and nothing is written to the working directory. Files larger than
+     * SftpProperties.readSpillThreshold are spilled to a temp file that is deleted when the returned RemoteContent is closed.
+     *
+     * @param targetPath String
+     * @return RemoteContent
+     */
+    default RemoteContent readContent(final String targetPath) throws JSchException, NoSuchFileException {
+        return SftpClientDefaults.readContent(this, targetPath);
+    }
+
+    /**
+     * Open the remote file for reading without writing it anywhere. The starting path is the root of SftpProperties. The returned stream reads the live remote file and holds a pooled channel until it is closed, so close it, for
+     * example with try-with-resources.
+     *
+     * @param targetPath String
+     * @return InputStream
+     */
+    default InputStream openRead(final String targetPath) throws JSchException, NoSuchFileException {
+        return SftpClientDefaults.openRead(this, targetPath);
+    }
+
+    /**
+     * Like openRead, but returns a read-only SeekableByteChannel, so the file can be read from any offset. size is the size of the file when it was opened. Holds a pooled channel until it is closed.
+     *
+     * @param targetPath String
+     * @return SeekableByteChannel
+     */
+    default SeekableByteChannel openReadChannel(final String targetPath) throws JSchException, NoSuchFileException {
+        return SftpClientDefaults.openReadChannel(this, targetPath);
+    }
+
     /**
      * Pass the path of the file you want to read as an argument. The starting path is the root of SftpProperties. For example, if root is ~/ and the path passed as an argument is user/temp/someDir (last args is directory name) , SftpClient reads
      * ~/user/temp/someDir and returns it as a List {@literal <}File{@literal >} object.
@@ -29,6 +71,50 @@ public interface SftpClient {
      */
     List<File> listFiles(final String targetDirPath) throws JSchException, NoSuchFileException;
 
+    /**
+     * Works like listFiles, but reports the outcome of every file instead of leaving failed files out. When SftpProperties.parallelism is greater than 1, files are downloaded concurrently over that many pooled channels.
+     *
+     * @param targetDirPath String
+     * @return BatchResult {@literal <}File{@literal >} keyed by remote file path
+     */
+    default BatchResult<File> listFilesWithResult(final String targetDirPath) throws JSchException, NoSuchFileException {
+        return SftpClientDefaults.listFilesWithResult(this, targetDirPath);
+    }
+
+    /**
+     * Pass the path of the directory you want to read as an argument. The starting path is the root of SftpProperties. Unlike listFiles, entries are listed in the background and each file is downloaded only when the stream pulls it, so
+     * memory stays bounded for very large directories. The returned stream holds pooled channels and must be closed, for example with try-with-resources.
+     *
+     * @param targetDirPath String
+     * @return Stream {@literal <}File{@literal >}
+     */
+    default Stream<File> streamFiles(final String targetDirPath) throws JSchException {
+        return SftpClientDefaults.streamFiles(this, targetDirPath);
+    }
+
+    /**
+     * List the attributes of the entries of a directory without transferring any content. The starting path is the root of SftpProperties. Entries are filtered by the glob and types of options as they arrive.
+     *
+     * @param targetDirPath String
+     * @param options       ListOptions
+     * @return List {@literal <}RemoteEntry{@literal >}
+     * @throws SftpClientException with SftpErrorType.FAILURE when the implementation does not support listing attributes, as the default implementation does
+     */
+    default List<RemoteEntry> listEntries(final String targetDirPath, final ListOptions options) throws JSchException, NoSuchFileException {
+        throw SftpClientDefaults.unsupported(this, "listEntries");
+    }
+
+    /**
+     * Like listEntries, but delivers the entries to pageHandler in pages of ListOptions.pageSize while the listing is still running, so huge directories are never held in memory at once. Listing stops when pageHandler returns false.
+     *
+     * @param targetDirPath String
+     * @param options       ListOptions
+     * @param pageHandler   Predicate {@literal <}List {@literal <}RemoteEntry{@literal >}{@literal >} returns whether to continue
+     */
+    default void listEntries(final String targetDirPath, final ListOptions options, final Predicate<List<RemoteEntry>> pageHandler) throws JSchException, NoSuchFileException {
+        SftpClientDefaults.listEntries(this, targetDirPath, options, pageHandler);
+    }
+
     /**
      * The location where you want to upload the file is passed as the first argument, and the file you want to upload as the second argument. In this case, the first argument must also include the name of the file.
      *
@@ -38,6 +124,18 @@ public interface SftpClient {
      */
     boolean upload(final String targetPath, final File uploadFile) throws JSchException;
 
+    /**
+     * Works like upload, but returns the size and checksum of the uploaded content. The checksum is computed with SftpProperties.checksumAlgorithm while the file is sent. When checksumSidecarSuffix is set, the checksum is also written
+     * to targetPath + checksumSidecarSuffix, so downloads can verify the file.
+     *
+     * @param targetPath String
+     * @param uploadFile File
+     * @return TransferResult
+     */
+    default TransferResult uploadWithResult(final String targetPath, final File uploadFile) throws JSchException {
+        return SftpClientDefaults.uploadWithResult(this, targetPath, uploadFile);
+    }
+
     /**
      * The location where you want to upload the file is passed as the first argument, and the InputStream of file you want to upload as the second argument. In this case, the first argument must also include the name of the file.
      *
@@ -47,6 +145,38 @@ public interface SftpClient {
      */
     boolean upload(final String targetPath, final InputStream uploadFileStream) throws IOException, JSchException;
 
+    /**
+     * Works like upload with an InputStream, but returns the size and checksum of the uploaded content, and the cause when the upload failed.
+     *
+     * @param targetPath       String
+     * @param uploadFileStream InputStream
+     * @return TransferResult
+     */
+    default TransferResult uploadWithResult(final String targetPath, final InputStream uploadFileStream) throws IOException, JSchException {
+        return SftpClientDefaults.uploadWithResult(this, targetPath, uploadFileStream);
+    }
+
+    /**
+     * Open the remote file for writing. Parent directories are created as in upload. Written bytes are buffered in SftpProperties.writeBehindBuffers buffers of transferBufferSize bytes and sent in the background while the caller keeps
+     * writing. The bytes go to a temporary file next to targetPath that is renamed to targetPath on close, so readers never see a partial file. Holds a pooled channel until it is closed.
+     *
+     * @param targetPath String
+     * @return OutputStream
+     */
+    default OutputStream openWrite(final String targetPath) throws JSchException {
+        return SftpClientDefaults.openWrite(this, targetPath);
+    }
+
+    /**
+     * Upload many files at once. Files are grouped by target directory, each group is uploaded over a single pooled channel, and up to SftpProperties.parallelism groups are uploaded concurrently. Parent directories are created as in upload.
+     *
+     * @param uploadItems Collection {@literal <}UploadItem{@literal >}
+     * @return BatchResult {@literal <}Long{@literal >} of uploaded bytes keyed by target path
+     */
+    default BatchResult<Long> uploadAll(final Collection<UploadItem> uploadItems) throws JSchException {
+        return SftpClientDefaults.uploadAll(this, uploadItems);
+    }
+
     /**
      * If you pass the path to the file you want to remove as an argument, it will try to remove the file and return whether the removal succeeded or failed.
      *
@@ -55,6 +185,38 @@ public interface SftpClient {
      */
     boolean remove(final String targetPath) throws JSchException;
 
+    /**
+     * Remove many files at once over up to SftpProperties.parallelism pooled channels, so each file costs one round trip instead of one connection. Paths are relative to the root of SftpProperties.
+     *
+     * @param targetPaths Collection {@literal <}String{@literal >}
+     * @return BatchResult {@literal <}RemoteEntry.Type{@literal >} keyed by path
+     */
+    default BatchResult<RemoteEntry.Type> removeAll(final Collection<String> targetPaths) throws JSchException {
+        return SftpClientDefaults.removeAll(this, targetPaths);
+    }
+
+    /**
+     * Remove the files of a directory that match the glob and depth of options, as listed by listEntries. Directories are left in place.
+     *
+     * @param targetDirPath String
+     * @param options       ListOptions
+     * @return BatchResult {@literal <}RemoteEntry.Type{@literal >} keyed by path
+     */
+    default BatchResult<RemoteEntry.Type> removeAll(final String targetDirPath, final ListOptions options) throws JSchException, NoSuchFileException {
+        return SftpClientDefaults.removeAll(this, targetDirPath, options);
+    }
+
+    /**
+     * Remove a directory with everything below it. Files are removed concurrently over up to SftpProperties.parallelism pooled channels, then directories are removed bottom-up. Symbolic links are removed, not followed.
+     *
+     * @param targetDirPath String
+     * @return BatchResult {@literal <}RemoteEntry.Type{@literal >} keyed by path, including targetDirPath itself
+     * @throws SftpClientException with SftpErrorType.FAILURE when the implementation does not support removing directories, as the default implementation does
+     */
+    default BatchResult<RemoteEntry.Type> removeDirectory(final String targetDirPath) throws JSchException, NoSuchFileException {
+        throw SftpClientDefaults.unsupported(this, "removeDirectory");
+    }
+
     /**
      * Pass the path to the file you want to download from the remote server as the first argument. In this case, the all argument must include a file name. Enter the location where you want to save the downloaded file as the second argument. Returns
      * true if the download is successful, false if it fails
@@ -65,4 +227,38 @@ public interface SftpClient {
      */
     boolean download(final String targetPath, Path downloadPath) throws JSchException;
 
+    /**
+     * Works like download, but returns the size and checksum of the downloaded content. The checksum is computed with SftpProperties.checksumAlgorithm while the file is received. When checksumSidecarSuffix is set and
+     * targetPath + checksumSidecarSuffix exists, the checksum is compared with it and a mismatch fails the download. Segmented downloads are not used while a checksum algorithm is set, because their segments arrive out of order.
+     *
+     * @param targetPath   String
+     * @param downloadPath Path
+     * @return TransferResult
+     */
+    default TransferResult downloadWithResult(final String targetPath, final Path downloadPath) throws JSchException {
+        return SftpClientDefaults.downloadWithResult(this, targetPath, downloadPath);
+    }
+
+    /**
+     * Make one side of a directory match the other. The remote directory is relative to the root of SftpProperties. Only files that are missing on the destination or differ in size or modification time are transferred, and the source
+     * modification time is applied to the copy, so the next run skips it. With deleteExtraneous, files that only exist on the destination are deleted. With GZIP payload compression the remote size is the compressed size, so only
+     * the modification time is compared and a change that keeps the modification time to the second goes unnoticed.
+     *
+     * @param remoteDirPath String
+     * @param localDirPath  Path
+     * @param options       SyncOptions
+     * @return BatchResult {@literal <}SyncAction{@literal >} keyed by file path relative to the synced directories
+     * @throws SftpClientException with SftpErrorType.FAILURE when the implementation does not support sync, as the default implementation does
+     */
+    default BatchResult<SyncAction> sync(final String remoteDirPath, final Path localDirPath, final SyncOptions options) throws JSchException, IOException {
+        throw SftpClientDefaults.unsupported(this, "sync");
+    }
+
+    /**
+     * Release every connection held by this client. Call it once when the client is no longer used, for example on application shutdown.
+     */
+    @Override
+    default void close() {
+    }
+
 }
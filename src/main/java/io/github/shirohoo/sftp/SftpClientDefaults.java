@@ -0,0 +1,204 @@
+package io.github.shirohoo.sftp;
+
+import com.jcraft.jsch.JSchException;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.commons.io.input.CountingInputStream;
+
+/**
+ * Default implementations of the SftpClient methods added after 2.4, built on the methods every implementation already had, so implementations written against 2.4 keep compiling. They download through read instead of streaming and
+ * run one file at a time; methods that need file attributes the 2.4 methods do not expose are reported as unsupported. DefaultSftpClient overrides all of them.
+ */
+final class SftpClientDefaults {
+
+    private static final long SPILL_THRESHOLD = 16_777_216L;
+
+    private SftpClientDefaults() {}
+
+    static RemoteContent readContent(final SftpClient client, final String targetPath) throws JSchException, NoSuchFileException {
+        final File file = read(client, targetPath);
+        try (InputStream inputStream = Files.newInputStream(file.toPath(), StandardOpenOption.DELETE_ON_CLOSE)) {
+            return RemoteContent.read(inputStream, file.length(), SPILL_THRESHOLD, false);
+        } catch (IOException e) {
+            throw withCause(new NoSuchFileException(targetPath, null, e.getMessage()), e);
+        }
+    }
+
+    static InputStream openRead(final SftpClient client, final String targetPath) throws JSchException, NoSuchFileException {
+        final File file = read(client, targetPath);
+        try {
+            return Files.newInputStream(file.toPath(), StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException e) {
+            throw withCause(new NoSuchFileException(targetPath, null, e.getMessage()), e);
+        }
+    }
+
+    static SeekableByteChannel openReadChannel(final SftpClient client, final String targetPath) throws JSchException, NoSuchFileException {
+        final File file = read(client, targetPath);
+        try {
+            return Files.newByteChannel(file.toPath(), StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException e) {
+            throw withCause(new NoSuchFileException(targetPath, null, e.getMessage()), e);
+        }
+    }
+
+    private static File read(final SftpClient client, final String targetPath) throws JSchException, NoSuchFileException {
+        try {
+            return client.read(targetPath);
+        } catch (NotDirectoryException e) {
+            throw withCause(new NoSuchFileException(targetPath, null, e.getMessage()), e);
+        }
+    }
+
+    static BatchResult<File> listFilesWithResult(final SftpClient client, final String targetDirPath) throws JSchException, NoSuchFileException {
+        final Map<String, File> succeeded = new HashMap<>();
+        for (File file : client.listFiles(targetDirPath)) {
+            succeeded.put(targetDirPath + "/" + file.getName(), file);
+        }
+        return BatchResult.of(succeeded.keySet(), succeeded, new HashMap<>());
+    }
+
+    static Stream<File> streamFiles(final SftpClient client, final String targetDirPath) throws JSchException {
+        try {
+            return client.listFiles(targetDirPath).stream();
+        } catch (NoSuchFileException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void listEntries(final SftpClient client, final String targetDirPath, final ListOptions options, final Predicate<List<RemoteEntry>> pageHandler) throws JSchException, NoSuchFileException {
+        final List<RemoteEntry> entries = client.listEntries(targetDirPath, options);
+        for (int from = 0; from < entries.size(); from += options.getPageSize()) {
+            if (!pageHandler.test(new ArrayList<>(entries.subList(from, Math.min(from + options.getPageSize(), entries.size()))))) {
+                return;
+            }
+        }
+    }
+
+    static TransferResult uploadWithResult(final SftpClient client, final String targetPath, final File uploadFile) throws JSchException {
+        return client.upload(targetPath, uploadFile) ? TransferResult.of(targetPath, uploadFile.length(), ChecksumAlgorithm.NONE, null, null) : TransferResult.failed(targetPath);
+    }
+
+    static TransferResult uploadWithResult(final SftpClient client, final String targetPath, final InputStream uploadFileStream) throws IOException, JSchException {
+        final CountingInputStream inputStream = new CountingInputStream(uploadFileStream);
+        return client.upload(targetPath, inputStream) ? TransferResult.of(targetPath, inputStream.getByteCount(), ChecksumAlgorithm.NONE, null, null) : TransferResult.failed(targetPath);
+    }
+
+    static TransferResult downloadWithResult(final SftpClient client, final String targetPath, final Path downloadPath) throws JSchException {
+        if (!client.download(targetPath, downloadPath)) {
+            return TransferResult.failed(targetPath);
+        }
+        return TransferResult.of(targetPath, downloadPath.toFile().length(), ChecksumAlgorithm.NONE, null, null);
+    }
+
+    /**
+     * Buffers the content in a local temp file and uploads it on close.
+     */
+    static OutputStream openWrite(final SftpClient client, final String targetPath) throws JSchException {
+        final Path temp;
+        final OutputStream outputStream;
+        try {
+            temp = Files.createTempFile("sftp-write-", ".tmp");
+            outputStream = Files.newOutputStream(temp);
+        } catch (IOException e) {
+            throw new JSchException(String.format("Open write failure. target path: %s", targetPath), e);
+        }
+        return new FilterOutputStream(outputStream) {
+
+            private boolean closed;
+
+            @Override
+            public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+                out.write(bytes, offset, length);
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    super.close();
+                    if (!client.upload(targetPath, temp.toFile())) {
+                        throw new IOException(String.format("Upload file failure. target path: %s", targetPath));
+                    }
+                } catch (JSchException e) {
+                    throw new IOException(String.format("Upload file failure. target path: %s", targetPath), e);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
+
+        };
+    }
+
+    static BatchResult<Long> uploadAll(final SftpClient client, final Collection<UploadItem> uploadItems) throws JSchException {
+        final List<String> paths = new ArrayList<>();
+        final Map<String, Long> succeeded = new HashMap<>();
+        final Map<String, Exception> failed = new HashMap<>();
+        for (UploadItem item : uploadItems) {
+            paths.add(item.getTargetPath());
+            try (CountingInputStream inputStream = new CountingInputStream(item.openStream())) {
+                if (client.upload(item.getTargetPath(), inputStream)) {
+                    succeeded.put(item.getTargetPath(), inputStream.getByteCount());
+                } else {
+                    failed.put(item.getTargetPath(), new IOException(String.format("Upload file failure. target path: %s", item.getTargetPath())));
+                }
+            } catch (IOException e) {
+                failed.put(item.getTargetPath(), e);
+            } finally {
+                item.closeQuietly();
+            }
+        }
+        return BatchResult.of(paths, succeeded, failed);
+    }
+
+    static BatchResult<RemoteEntry.Type> removeAll(final SftpClient client, final Collection<String> targetPaths) throws JSchException {
+        final Map<String, RemoteEntry.Type> succeeded = new HashMap<>();
+        final Map<String, Exception> failed = new HashMap<>();
+        for (String path : targetPaths) {
+            if (client.remove(path)) {
+                succeeded.put(path, RemoteEntry.Type.FILE);
+            } else {
+                failed.put(path, new NoSuchFileException(path));
+            }
+        }
+        return BatchResult.of(targetPaths, succeeded, failed);
+    }
+
+    static BatchResult<RemoteEntry.Type> removeAll(final SftpClient client, final String targetDirPath, final ListOptions options) throws JSchException, NoSuchFileException {
+        return removeAll(client, client.listEntries(targetDirPath, options).stream()
+            .filter(entry -> !entry.isDirectory())
+            .map(RemoteEntry::getPath)
+            .collect(Collectors.toList()));
+    }
+
+    static SftpClientException unsupported(final SftpClient client, final String method) {
+        return new SftpClientException(SftpErrorType.FAILURE, String.format("%s is not supported by %s", method, client.getClass().getName()), null);
+    }
+
+    private static <T extends Exception> T withCause(final T exception, final Throwable cause) {
+        exception.initCause(cause);
+        return exception;
+    }
+
+}
@@ -0,0 +1,23 @@
+package io.github.shirohoo.sftp;
+
+import com.jcraft.jsch.JSchException;
+
+/**
+ * JSchException that carries the SftpErrorType of the failure, thrown when a connection could not be established or was refused by the circuit breaker of the host.
+ */
+public class SftpClientException extends JSchException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final SftpErrorType errorType;
+
+    public SftpClientException(SftpErrorType errorType, String message, Throwable cause) {
+        super(message, cause);
+        this.errorType = errorType;
+    }
+
+    public SftpErrorType getErrorType() {
+        return errorType;
+    }
+
+}
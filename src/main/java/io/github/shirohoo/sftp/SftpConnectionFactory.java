@@ -0,0 +1,224 @@
+package io.github.shirohoo.sftp;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import com.jcraft.jsch.Channel;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSch;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+
+final class SftpConnectionFactory {
+
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(SftpConnectionFactory.class);
+
+    private static final String STRICT_HOST_KEY_CHECKING = "StrictHostKeyChecking";
+
+    private static final String COMPRESSION_S2C = "compression.s2c";
+
+    private static final String COMPRESSION_C2S = "compression.c2s";
+
+    private static final String COMPRESSION_LEVEL = "compression_level";
+
+    /**
+     * Preference order offered to the server. none keeps servers without compression usable.
+     */
+    private static final String COMPRESSION_ALGORITHMS = "zlib@openssh.com,zlib,none";
+
+    private final SftpProperties properties;
+
+    private final SftpMetricsListener listener;
+
+    /**
+     * Built once per factory, so the private key is read and decrypted once and every session shares the identity repository and host key repository.
+     */
+    private final JSch jsch;
+
+    private final CircuitBreaker circuitBreaker;
+
+    SftpConnectionFactory(SftpProperties properties, SftpMetricsListener listener) {
+        this.properties = properties;
+        this.listener = listener;
+        this.jsch = properties.getKeyMode() ? getJsch() : new JSch();
+        this.circuitBreaker = CircuitBreaker.forEndpoint(properties.getHost(), properties.getPort(), properties.getCircuitBreakerFailureThreshold(), properties.getCircuitBreakerOpenTime());
+    }
+
+    String getHost() {
+        return properties.getHost();
+    }
+
+    SftpMetricsListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Connect a new channel. Transient failures are retried up to retryMaxAttempts times with exponential backoff and full jitter; a channel that fails to open is retried on the session already connected, and the session is
+     * connected again only when it was lost. When the circuit breaker of host and port is open, fails immediately without connecting.
+     */
+    ChannelSftp create() throws JSchException {
+        if (!circuitBreaker.tryAcquire()) {
+            throw new SftpClientException(SftpErrorType.CIRCUIT_OPEN, String.format("Circuit is open for %s", properties.getHost()), null);
+        }
+        Session session = null;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (isNull(session) || !session.isConnected()) {
+                    session = connect();
+                }
+                final ChannelSftp sftp = getChannel(session);
+                circuitBreaker.onSuccess();
+                return sftp;
+            } catch (JSchException | RuntimeException e) {
+                final SftpErrorType type = SftpErrorType.classify(e);
+                listener.onFailure(properties.getHost(), null, e);
+                if (!type.isRetryable() || attempt >= properties.getRetryMaxAttempts()) {
+                    disconnect(session);
+                    circuitBreaker.onFailure();
+                    throw e instanceof SftpClientException ? (SftpClientException) e : new SftpClientException(type, e.getMessage(), e);
+                }
+                final long backoff = getBackoff(attempt);
+                log.info("{} to {} failed, retry in {} ms. attempt: {}, cause: {}", nonNull(session) && session.isConnected() ? "Channel open" : "Connect", properties.getHost(), backoff, attempt, e.getMessage());
+                try {
+                    sleep(backoff);
+                } catch (JSchException interrupted) {
+                    disconnect(session);
+                    throw interrupted;
+                }
+            }
+        }
+    }
+
+    private long getBackoff(final int attempt) {
+        final long ceiling = Math.min(properties.getRetryMaxBackoff(), properties.getRetryBackoff() << Math.min(attempt - 1, 30));
+        return ThreadLocalRandom.current().nextLong(Math.max(ceiling, 0) + 1);
+    }
+
+    private void sleep(final long millis) throws JSchException {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            circuitBreaker.onFailure();
+            throw new JSchException("Interrupted while waiting to retry sftp connection", e);
+        }
+    }
+
+    void destroy(final ChannelSftp sftp) {
+        if (isNull(sftp)) {
+            return;
+        }
+        if (sftp.isConnected()) {
+            sftp.disconnect();
+        }
+        if (sftp.isClosed()) {
+            log.info("Sftp is closed already");
+        }
+        try {
+            if (nonNull(sftp.getSession())) {
+                sftp.getSession().disconnect();
+            }
+        } catch (JSchException e) {
+            log.error(e.getMessage(), e);
+        }
+        log.info("Disconnected sftp connection.");
+    }
+
+    private void disconnect(final Session session) {
+        if (nonNull(session)) {
+            session.disconnect();
+        }
+    }
+
+    private Session connect() throws JSchException {
+        return properties.getKeyMode() ? connectByPrivateKey() : connectByPassword();
+    }
+
+    private Session connectByPassword() throws JSchException {
+        log.info("Try to connect sftp[{}@{}], use password", properties.getUsername(), properties.getHost());
+        final Session session = createSession(jsch, properties.getHost(), properties.getUsername(), properties.getPort());
+        session.setPassword(properties.getPassword());
+        return connectSession(session);
+    }
+
+    private Session connectByPrivateKey() throws JSchException {
+        log.info("Try to connect sftp[{}@{}], use private key[{}]", properties.getUsername(), properties.getHost(), properties.getPrivateKey());
+        return connectSession(createSession(jsch, properties.getHost(), properties.getUsername(), properties.getPort()));
+    }
+
+    private JSch getJsch() {
+        final JSch jsch = new JSch();
+        if (StringUtils.isNotBlank(properties.getPrivateKey())) {
+            addIdentity(jsch);
+        }
+        return jsch;
+    }
+
+    private void addIdentity(final JSch jsch) {
+        try {
+            if (StringUtils.isNotBlank(properties.getPassphrase())) {
+                jsch.addIdentity(properties.getPrivateKey(), properties.getPassphrase());
+            } else {
+                jsch.addIdentity(properties.getPrivateKey());
+            }
+        } catch (JSchException e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    private Session createSession(final JSch jsch, final String host, final String username, final int port) throws JSchException {
+        final Session session = getSession(jsch, host, username, port);
+        session.setConfig(STRICT_HOST_KEY_CHECKING, properties.getSessionStrictHostKeyChecking());
+        if (properties.getSessionCompression()) {
+            session.setConfig(COMPRESSION_S2C, COMPRESSION_ALGORITHMS);
+            session.setConfig(COMPRESSION_C2S, COMPRESSION_ALGORITHMS);
+            session.setConfig(COMPRESSION_LEVEL, String.valueOf(properties.getSessionCompressionLevel()));
+        }
+        if (properties.getServerAliveInterval() > 0) {
+            session.setServerAliveInterval(properties.getServerAliveInterval());
+            session.setServerAliveCountMax(properties.getServerAliveCountMax());
+        }
+        return session;
+    }
+
+    private Session getSession(final JSch jsch, final String host, final String username, final int port) throws JSchException {
+        return port <= 0 ? jsch.getSession(username, host) : jsch.getSession(username, host, port);
+    }
+
+    private Session connectSession(final Session session) throws JSchException {
+        final TimedSocketFactory socketFactory = new TimedSocketFactory(properties.getSessionConnectTimeout());
+        session.setSocketFactory(socketFactory);
+        final long start = System.nanoTime();
+        try {
+            session.connect(properties.getSessionConnectTimeout());
+            final long connectNanos = socketFactory.getConnectNanos();
+            listener.onPhase(properties.getHost(), SftpPhase.CONNECT, connectNanos);
+            listener.onPhase(properties.getHost(), SftpPhase.AUTH, System.nanoTime() - start - connectNanos);
+        } catch (JSchException e) {
+            log.error("Session connect failure to {}. cause: {}", properties.getHost(), e.getMessage());
+            session.disconnect();
+            throw e;
+        }
+        log.info("Session connected to {}", properties.getHost());
+        return session;
+    }
+
+    private ChannelSftp getChannel(final Session session) throws JSchException {
+        final long start = System.nanoTime();
+        final Channel channel = session.openChannel(properties.getProtocol());
+        try {
+            channel.connect(properties.getChannelConnectedTimeout());
+        } catch (JSchException e) {
+            log.error("Channel open failure to {}. cause: {}", properties.getHost(), e.getMessage());
+            channel.disconnect();
+            throw e;
+        }
+        listener.onPhase(properties.getHost(), SftpPhase.CHANNEL_OPEN, System.nanoTime() - start);
+        log.info("Channel created to {}", properties.getHost());
+        return (ChannelSftp) channel;
+    }
+
+}
@@ -0,0 +1,128 @@
+package io.github.shirohoo.sftp;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.SftpException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.file.FileSystemException;
+import java.nio.file.NoSuchFileException;
+import java.util.Locale;
+
+/**
+ * Classification of a failure by what the caller can do about it. Only TRANSIENT failures are worth retrying; AUTHENTICATION failures also count against the circuit breaker of the host but are never retried, so an account is not
+ * locked by repeated attempts.
+ */
+public enum SftpErrorType {
+    TRANSIENT(true),
+    AUTHENTICATION(false),
+    NOT_FOUND(false),
+    PERMISSION_DENIED(false),
+    CIRCUIT_OPEN(false),
+    FAILURE(false);
+
+    private final boolean retryable;
+
+    SftpErrorType(boolean retryable) {
+        this.retryable = retryable;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+
+    /**
+     * Classify an exception thrown by SftpClient or by JSch, following causes until a known type is found.
+     */
+    public static SftpErrorType classify(final Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            final SftpErrorType type = classifyOne(cause);
+            if (type != null) {
+                return type;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return FAILURE;
+    }
+
+    private static SftpErrorType classifyOne(final Throwable cause) {
+        if (cause instanceof SftpClientException) {
+            return ((SftpClientException) cause).getErrorType();
+        }
+        if (cause instanceof SftpException) {
+            return classify((SftpException) cause);
+        }
+        if (cause instanceof JSchException) {
+            return classify((JSchException) cause);
+        }
+        if (cause instanceof NoSuchFileException) {
+            return cause.getCause() == null ? NOT_FOUND : null;
+        }
+        if (cause instanceof FileSystemException) {
+            return cause.getCause() == null ? FAILURE : null;
+        }
+        if (isConnectionLoss(cause)) {
+            return TRANSIENT;
+        }
+        if (cause instanceof IOException) {
+            return cause.getCause() == null ? FAILURE : null;
+        }
+        return null;
+    }
+
+    /**
+     * Whether the network under the session failed: a socket error or timeout, a stream that ended early, or one of the IOExceptions JSch throws when the channel or session went away. Other IOExceptions, such as a full disk, a
+     * checksum mismatch or content that is too large, fail the same way when tried again.
+     */
+    private static boolean isConnectionLoss(final Throwable cause) {
+        if (cause instanceof SocketException || cause instanceof SocketTimeoutException || cause instanceof EOFException) {
+            return true;
+        }
+        if (!(cause instanceof IOException) || cause.getMessage() == null) {
+            return false;
+        }
+        final String message = cause.getMessage().toLowerCase(Locale.ROOT);
+        return message.contains("inputstream is closed") || message.contains("channel is down") || message.contains("channel is broken") || message.contains("session is down")
+            || message.contains("end of io stream") || message.contains("pipe closed") || message.contains("pipe broken") || message.contains("write end dead");
+    }
+
+    private static SftpErrorType classify(final SftpException e) {
+        switch (e.id) {
+            case ChannelSftp.SSH_FX_NO_SUCH_FILE:
+                return NOT_FOUND;
+            case ChannelSftp.SSH_FX_PERMISSION_DENIED:
+                return PERMISSION_DENIED;
+            case ChannelSftp.SSH_FX_NO_CONNECTION:
+            case ChannelSftp.SSH_FX_CONNECTION_LOST:
+                return TRANSIENT;
+            default:
+                if (isConnectionLoss(e.getCause())) {
+                    return TRANSIENT;
+                }
+                return e.getCause() == null ? FAILURE : null;
+        }
+    }
+
+    /**
+     * JSch reports most session failures as a JSchException with a message only, so the message is inspected when there is no cause.
+     */
+    private static SftpErrorType classify(final JSchException e) {
+        if (isConnectionLoss(e.getCause())) {
+            return TRANSIENT;
+        }
+        final String message = e.getMessage() == null ? "" : e.getMessage().toLowerCase(Locale.ROOT);
+        if (message.contains("auth fail") || message.contains("auth cancel") || message.contains("userauth fail")) {
+            return AUTHENTICATION;
+        }
+        if (message.contains("timeout") || message.contains("session is down") || message.contains("session is not connected") || message.contains("channel is not opened")
+            || message.contains("connection") || message.contains("socket") || message.contains("end of io stream")) {
+            return TRANSIENT;
+        }
+        return e.getCause() == null ? FAILURE : null;
+    }
+
+}
@@ -0,0 +1,57 @@
+package io.github.shirohoo.sftp;
+
+/**
+ * Receives timings, byte counts, failures and connection pool state from DefaultSftpClient. All methods have no-op defaults, so an implementation only overrides what it needs. Methods are called on the thread doing the work and must return
+ * quickly.
+ */
+public interface SftpMetricsListener {
+
+    SftpMetricsListener NO_OP = new SftpMetricsListener() {};
+
+    /**
+     * Called when a phase of a connection or a transfer completed.
+     *
+     * @param host         String
+     * @param phase        SftpPhase
+     * @param elapsedNanos long
+     */
+    default void onPhase(final String host, final SftpPhase phase, final long elapsedNanos) {}
+
+    /**
+     * Called when a public SftpClient operation returned or threw.
+     *
+     * @param host         String
+     * @param operation    SftpOperation
+     * @param elapsedNanos long
+     * @param success      boolean
+     */
+    default void onOperation(final String host, final SftpOperation operation, final long elapsedNanos, final boolean success) {}
+
+    /**
+     * Called when a transfer of an operation completed.
+     *
+     * @param host      String
+     * @param operation SftpOperation
+     * @param bytes     long
+     */
+    default void onBytesTransferred(final String host, final SftpOperation operation, final long bytes) {}
+
+    /**
+     * Called for every failure, including failures that an operation reports as false or leaves out of its result.
+     *
+     * @param host      String
+     * @param operation SftpOperation, null when connecting failed outside of an operation
+     * @param cause     Throwable
+     */
+    default void onFailure(final String host, final SftpOperation operation, final Throwable cause) {}
+
+    /**
+     * Called when the number of leased or idle pooled connections changed.
+     *
+     * @param host   String
+     * @param active int
+     * @param idle   int
+     */
+    default void onPoolState(final String host, final int active, final int idle) {}
+
+}
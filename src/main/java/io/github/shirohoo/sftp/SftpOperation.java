@@ -0,0 +1,18 @@
+package io.github.shirohoo.sftp;
+
+public enum SftpOperation {
+    READ,
+    READ_CONTENT,
+    LIST_FILES,
+    STREAM_FILES,
+    UPLOAD,
+    UPLOAD_ALL,
+    REMOVE,
+    DOWNLOAD,
+    SYNC,
+    OPEN_READ,
+    LIST_ENTRIES,
+    REMOVE_ALL,
+    REMOVE_DIRECTORY,
+    OPEN_WRITE
+}
@@ -0,0 +1,20 @@
+package io.github.shirohoo.sftp;
+
+public enum SftpPhase {
+    /**
+     * TCP connect to the server.
+     */
+    CONNECT,
+    /**
+     * SSH version exchange, key exchange and user authentication.
+     */
+    AUTH,
+    /**
+     * Opening the sftp channel on an authenticated session.
+     */
+    CHANNEL_OPEN,
+    /**
+     * Moving the content of one file, or one segment of it.
+     */
+    TRANSFER
+}
@@ -15,24 +15,110 @@ public class SftpProperties {
     private String privateKey;
     private String passphrase;
     private String root;
+    private Integer poolMaxTotal;
+    private Integer poolMinIdle;
+    private Integer poolMaxIdle;
+    private Long poolMaxLifetime;
+    private Long poolMaxIdleTime;
+    private Long poolEvictionInterval;
+    private Long poolMaxWait;
+    private Boolean poolTestOnBorrow;
+    private Integer parallelism;
+    private Long segmentSize;
+    private Integer segmentParallelism;
+    private Boolean resumeTransfers;
+    private Integer resumeVerifyLength;
+    private Boolean resumeCompleteOnSameSize;
+    private Long readSpillThreshold;
+    private Boolean readDirectBuffer;
+    private Integer directoryCacheSize;
+    private Long directoryCacheTtl;
+    private Integer transferBufferSize;
+    private Boolean transferDirectBuffer;
+    private Boolean transferPreallocate;
+    private Boolean sessionCompression;
+    private Integer sessionCompressionLevel;
+    private PayloadCompression payloadCompression;
+    private Long bandwidthLimit;
+    private Integer serverAliveInterval;
+    private Integer serverAliveCountMax;
+    private Boolean poolWarmUp;
+    private Integer retryMaxAttempts;
+    private Long retryBackoff;
+    private Long retryMaxBackoff;
+    private Integer circuitBreakerFailureThreshold;
+    private Long circuitBreakerOpenTime;
+    private Integer writeBehindBuffers;
+    private ChecksumAlgorithm checksumAlgorithm;
+    private String checksumSidecarSuffix;
+
+    /**
+     * Properties with the defaults of builder(). Connection settings such as host, username and root stay null; a null root is the login directory of the user.
+     */
+    public SftpProperties() {
+        this(builder().complete());
+    }
 
-    public SftpProperties() {}
-
+    /**
+     * Properties with the given connection settings and the defaults of builder() for everything else, including null arguments.
+     */
     public SftpProperties(Boolean keyMode, String protocol, Integer port, String sessionStrictHostKeyChecking,
             Integer sessionConnectTimeout, Integer channelConnectedTimeout, String host, String username,
             String password, String privateKey, String passphrase, String root) {
-        this.keyMode = keyMode;
-        this.protocol = protocol;
-        this.port = port;
-        this.sessionStrictHostKeyChecking = sessionStrictHostKeyChecking;
-        this.sessionConnectTimeout = sessionConnectTimeout;
-        this.channelConnectedTimeout = channelConnectedTimeout;
-        this.host = host;
-        this.username = username;
-        this.password = password;
-        this.privateKey = privateKey;
-        this.passphrase = passphrase;
-        this.root = root;
+        this(builder().keyMode(keyMode).protocol(protocol).port(port).sessionStrictHostKeyChecking(sessionStrictHostKeyChecking)
+                .sessionConnectTimeout(sessionConnectTimeout).channelConnectedTimeout(channelConnectedTimeout).host(host).username(username)
+                .password(password).privateKey(privateKey).passphrase(passphrase).root(root).complete());
+    }
+
+    private SftpProperties(SftpPropertiesBuilder builder) {
+        this.keyMode = builder.keyMode;
+        this.protocol = builder.protocol;
+        this.port = builder.port;
+        this.sessionStrictHostKeyChecking = builder.sessionStrictHostKeyChecking;
+        this.sessionConnectTimeout = builder.sessionConnectTimeout;
+        this.channelConnectedTimeout = builder.channelConnectedTimeout;
+        this.host = builder.host;
+        this.username = builder.username;
+        this.password = builder.password;
+        this.privateKey = builder.privateKey;
+        this.passphrase = builder.passphrase;
+        this.root = builder.root;
+        this.poolMaxTotal = builder.poolMaxTotal;
+        this.poolMinIdle = builder.poolMinIdle;
+        this.poolMaxIdle = builder.poolMaxIdle;
+        this.poolMaxLifetime = builder.poolMaxLifetime;
+        this.poolMaxIdleTime = builder.poolMaxIdleTime;
+        this.poolEvictionInterval = builder.poolEvictionInterval;
+        this.poolMaxWait = builder.poolMaxWait;
+        this.poolTestOnBorrow = builder.poolTestOnBorrow;
+        this.parallelism = builder.parallelism;
+        this.segmentSize = builder.segmentSize;
+        this.segmentParallelism = builder.segmentParallelism;
+        this.resumeTransfers = builder.resumeTransfers;
+        this.resumeVerifyLength = builder.resumeVerifyLength;
+        this.resumeCompleteOnSameSize = builder.resumeCompleteOnSameSize;
+        this.readSpillThreshold = builder.readSpillThreshold;
+        this.readDirectBuffer = builder.readDirectBuffer;
+        this.directoryCacheSize = builder.directoryCacheSize;
+        this.directoryCacheTtl = builder.directoryCacheTtl;
+        this.transferBufferSize = builder.transferBufferSize;
+        this.transferDirectBuffer = builder.transferDirectBuffer;
+        this.transferPreallocate = builder.transferPreallocate;
+        this.sessionCompression = builder.sessionCompression;
+        this.sessionCompressionLevel = builder.sessionCompressionLevel;
+        this.payloadCompression = builder.payloadCompression;
+        this.bandwidthLimit = builder.bandwidthLimit;
+        this.serverAliveInterval = builder.serverAliveInterval;
+        this.serverAliveCountMax = builder.serverAliveCountMax;
+        this.poolWarmUp = builder.poolWarmUp;
+        this.retryMaxAttempts = builder.retryMaxAttempts;
+        this.retryBackoff = builder.retryBackoff;
+        this.retryMaxBackoff = builder.retryMaxBackoff;
+        this.circuitBreakerFailureThreshold = builder.circuitBreakerFailureThreshold;
+        this.circuitBreakerOpenTime = builder.circuitBreakerOpenTime;
+        this.writeBehindBuffers = builder.writeBehindBuffers;
+        this.checksumAlgorithm = builder.checksumAlgorithm;
+        this.checksumSidecarSuffix = builder.checksumSidecarSuffix;
     }
 
     public Boolean getKeyMode() {
@@ -83,6 +169,150 @@ public class SftpProperties {
         return root;
     }
 
+    public Integer getPoolMaxTotal() {
+        return poolMaxTotal;
+    }
+
+    public Integer getPoolMinIdle() {
+        return poolMinIdle;
+    }
+
+    public Integer getPoolMaxIdle() {
+        return poolMaxIdle;
+    }
+
+    public Long getPoolMaxLifetime() {
+        return poolMaxLifetime;
+    }
+
+    public Long getPoolMaxIdleTime() {
+        return poolMaxIdleTime;
+    }
+
+    public Long getPoolEvictionInterval() {
+        return poolEvictionInterval;
+    }
+
+    public Long getPoolMaxWait() {
+        return poolMaxWait;
+    }
+
+    public Boolean getPoolTestOnBorrow() {
+        return poolTestOnBorrow;
+    }
+
+    public Integer getParallelism() {
+        return parallelism;
+    }
+
+    public Long getSegmentSize() {
+        return segmentSize;
+    }
+
+    public Integer getSegmentParallelism() {
+        return segmentParallelism;
+    }
+
+    public Boolean getResumeTransfers() {
+        return resumeTransfers;
+    }
+
+    public Integer getResumeVerifyLength() {
+        return resumeVerifyLength;
+    }
+
+    public Boolean getResumeCompleteOnSameSize() {
+        return resumeCompleteOnSameSize;
+    }
+
+    public Long getReadSpillThreshold() {
+        return readSpillThreshold;
+    }
+
+    public Boolean getReadDirectBuffer() {
+        return readDirectBuffer;
+    }
+
+    public Integer getDirectoryCacheSize() {
+        return directoryCacheSize;
+    }
+
+    public Long getDirectoryCacheTtl() {
+        return directoryCacheTtl;
+    }
+
+    public Integer getTransferBufferSize() {
+        return transferBufferSize;
+    }
+
+    public Boolean getTransferDirectBuffer() {
+        return transferDirectBuffer;
+    }
+
+    public Boolean getTransferPreallocate() {
+        return transferPreallocate;
+    }
+
+    public Boolean getSessionCompression() {
+        return sessionCompression;
+    }
+
+    public Integer getSessionCompressionLevel() {
+        return sessionCompressionLevel;
+    }
+
+    public PayloadCompression getPayloadCompression() {
+        return payloadCompression;
+    }
+
+    public Long getBandwidthLimit() {
+        return bandwidthLimit;
+    }
+
+    public Integer getServerAliveInterval() {
+        return serverAliveInterval;
+    }
+
+    public Integer getServerAliveCountMax() {
+        return serverAliveCountMax;
+    }
+
+    public Boolean getPoolWarmUp() {
+        return poolWarmUp;
+    }
+
+    public Integer getRetryMaxAttempts() {
+        return retryMaxAttempts;
+    }
+
+    public Long getRetryBackoff() {
+        return retryBackoff;
+    }
+
+    public Long getRetryMaxBackoff() {
+        return retryMaxBackoff;
+    }
+
+    public Integer getCircuitBreakerFailureThreshold() {
+        return circuitBreakerFailureThreshold;
+    }
+
+    public Long getCircuitBreakerOpenTime() {
+        return circuitBreakerOpenTime;
+    }
+
+    public Integer getWriteBehindBuffers() {
+        return writeBehindBuffers;
+    }
+
+    public ChecksumAlgorithm getChecksumAlgorithm() {
+        return checksumAlgorithm;
+    }
+
+    public String getChecksumSidecarSuffix() {
+        return checksumSidecarSuffix;
+    }
+
     public static SftpPropertiesBuilder builder() {
         return new SftpPropertiesBuilder();
     }
@@ -100,6 +330,42 @@ public class SftpProperties {
         private String privateKey;
         private String passphrase;
         private String root;
+        private Integer poolMaxTotal;
+        private Integer poolMinIdle;
+        private Integer poolMaxIdle;
+        private Long poolMaxLifetime;
+        private Long poolMaxIdleTime;
+        private Long poolEvictionInterval;
+        private Long poolMaxWait;
+        private Boolean poolTestOnBorrow;
+        private Integer parallelism;
+        private Long segmentSize;
+        private Integer segmentParallelism;
+        private Boolean resumeTransfers;
+        private Integer resumeVerifyLength;
+        private Boolean resumeCompleteOnSameSize;
+        private Long readSpillThreshold;
+        private Boolean readDirectBuffer;
+        private Integer directoryCacheSize;
+        private Long directoryCacheTtl;
+        private Integer transferBufferSize;
+        private Boolean transferDirectBuffer;
+        private Boolean transferPreallocate;
+        private Boolean sessionCompression;
+        private Integer sessionCompressionLevel;
+        private PayloadCompression payloadCompression;
+        private Long bandwidthLimit;
+        private Integer serverAliveInterval;
+        private Integer serverAliveCountMax;
+        private Boolean poolWarmUp;
+        private Integer retryMaxAttempts;
+        private Long retryBackoff;
+        private Long retryMaxBackoff;
+        private Integer circuitBreakerFailureThreshold;
+        private Long circuitBreakerOpenTime;
+        private Integer writeBehindBuffers;
+        private ChecksumAlgorithm checksumAlgorithm;
+        private String checksumSidecarSuffix;
 
         SftpPropertiesBuilder() {}
 
@@ -163,7 +429,200 @@ public class SftpProperties {
             return this;
         }
 
+        public SftpPropertiesBuilder poolMaxTotal(Integer poolMaxTotal) {
+            this.poolMaxTotal = poolMaxTotal;
+            return this;
+        }
+
+        public SftpPropertiesBuilder poolMinIdle(Integer poolMinIdle) {
+            this.poolMinIdle = poolMinIdle;
+            return this;
+        }
+
+        public SftpPropertiesBuilder poolMaxIdle(Integer poolMaxIdle) {
+            this.poolMaxIdle = poolMaxIdle;
+            return this;
+        }
+
+        public SftpPropertiesBuilder poolMaxLifetime(Long poolMaxLifetime) {
+            this.poolMaxLifetime = poolMaxLifetime;
+            return this;
+        }
+
+        public SftpPropertiesBuilder poolMaxIdleTime(Long poolMaxIdleTime) {
+            this.poolMaxIdleTime = poolMaxIdleTime;
+            return this;
+        }
+
+        public SftpPropertiesBuilder poolEvictionInterval(Long poolEvictionInterval) {
+            this.poolEvictionInterval = poolEvictionInterval;
+            return this;
+        }
+
+        public SftpPropertiesBuilder poolMaxWait(Long poolMaxWait) {
+            this.poolMaxWait = poolMaxWait;
+            return this;
+        }
+
+        public SftpPropertiesBuilder poolTestOnBorrow(Boolean poolTestOnBorrow) {
+            this.poolTestOnBorrow = poolTestOnBorrow;
+            return this;
+        }
+
+        public SftpPropertiesBuilder parallelism(Integer parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        public SftpPropertiesBuilder segmentSize(Long segmentSize) {
+            this.segmentSize = segmentSize;
+            return this;
+        }
+
+        public SftpPropertiesBuilder segmentParallelism(Integer segmentParallelism) {
+            this.segmentParallelism = segmentParallelism;
+            return this;
+        }
+
+        public SftpPropertiesBuilder resumeTransfers(Boolean resumeTransfers) {
+            this.resumeTransfers = resumeTransfers;
+            return this;
+        }
+
+        public SftpPropertiesBuilder resumeVerifyLength(Integer resumeVerifyLength) {
+            this.resumeVerifyLength = resumeVerifyLength;
+            return this;
+        }
+
+        public SftpPropertiesBuilder resumeCompleteOnSameSize(Boolean resumeCompleteOnSameSize) {
+            this.resumeCompleteOnSameSize = resumeCompleteOnSameSize;
+            return this;
+        }
+
+        public SftpPropertiesBuilder readSpillThreshold(Long readSpillThreshold) {
+            this.readSpillThreshold = readSpillThreshold;
+            return this;
+        }
+
+        public SftpPropertiesBuilder readDirectBuffer(Boolean readDirectBuffer) {
+            this.readDirectBuffer = readDirectBuffer;
+            return this;
+        }
+
+        public SftpPropertiesBuilder directoryCacheSize(Integer directoryCacheSize) {
+            this.directoryCacheSize = directoryCacheSize;
+            return this;
+        }
+
+        public SftpPropertiesBuilder directoryCacheTtl(Long directoryCacheTtl) {
+            this.directoryCacheTtl = directoryCacheTtl;
+            return this;
+        }
+
+        public SftpPropertiesBuilder transferBufferSize(Integer transferBufferSize) {
+            this.transferBufferSize = transferBufferSize;
+            return this;
+        }
+
+        public SftpPropertiesBuilder transferDirectBuffer(Boolean transferDirectBuffer) {
+            this.transferDirectBuffer = transferDirectBuffer;
+            return this;
+        }
+
+        public SftpPropertiesBuilder transferPreallocate(Boolean transferPreallocate) {
+            this.transferPreallocate = transferPreallocate;
+            return this;
+        }
+
+        public SftpPropertiesBuilder sessionCompression(Boolean sessionCompression) {
+            this.sessionCompression = sessionCompression;
+            return this;
+        }
+
+        public SftpPropertiesBuilder sessionCompressionLevel(Integer sessionCompressionLevel) {
+            this.sessionCompressionLevel = sessionCompressionLevel;
+            return this;
+        }
+
+        public SftpPropertiesBuilder payloadCompression(PayloadCompression payloadCompression) {
+            this.payloadCompression = payloadCompression;
+            return this;
+        }
+
+        public SftpPropertiesBuilder bandwidthLimit(Long bandwidthLimit) {
+            this.bandwidthLimit = bandwidthLimit;
+            return this;
+        }
+
+        public SftpPropertiesBuilder serverAliveInterval(Integer serverAliveInterval) {
+            this.serverAliveInterval = serverAliveInterval;
+            return this;
+        }
+
+        public SftpPropertiesBuilder serverAliveCountMax(Integer serverAliveCountMax) {
+            this.serverAliveCountMax = serverAliveCountMax;
+            return this;
+        }
+
+        public SftpPropertiesBuilder poolWarmUp(Boolean poolWarmUp) {
+            this.poolWarmUp = poolWarmUp;
+            return this;
+        }
+
+        public SftpPropertiesBuilder retryMaxAttempts(Integer retryMaxAttempts) {
+            this.retryMaxAttempts = retryMaxAttempts;
+            return this;
+        }
+
+        public SftpPropertiesBuilder retryBackoff(Long retryBackoff) {
+            this.retryBackoff = retryBackoff;
+            return this;
+        }
+
+        public SftpPropertiesBuilder retryMaxBackoff(Long retryMaxBackoff) {
+            this.retryMaxBackoff = retryMaxBackoff;
+            return this;
+        }
+
+        public SftpPropertiesBuilder circuitBreakerFailureThreshold(Integer circuitBreakerFailureThreshold) {
+            this.circuitBreakerFailureThreshold = circuitBreakerFailureThreshold;
+            return this;
+        }
+
+        public SftpPropertiesBuilder circuitBreakerOpenTime(Long circuitBreakerOpenTime) {
+            this.circuitBreakerOpenTime = circuitBreakerOpenTime;
+            return this;
+        }
+
+        public SftpPropertiesBuilder writeBehindBuffers(Integer writeBehindBuffers) {
+            this.writeBehindBuffers = writeBehindBuffers;
+            return this;
+        }
+
+        public SftpPropertiesBuilder checksumAlgorithm(ChecksumAlgorithm checksumAlgorithm) {
+            this.checksumAlgorithm = checksumAlgorithm;
+            return this;
+        }
+
+        public SftpPropertiesBuilder checksumSidecarSuffix(String checksumSidecarSuffix) {
+            this.checksumSidecarSuffix = checksumSidecarSuffix;
+            return this;
+        }
+
         public SftpProperties build() {
+            return new SftpProperties(complete());
+        }
+
+        /**
+         * Fill in the defaults and validate, so every constructor of SftpProperties goes through the same defaults and checks.
+         */
+        private SftpPropertiesBuilder complete() {
+            applyDefaults();
+            validate();
+            return this;
+        }
+
+        private void applyDefaults() {
             if (Objects.isNull(keyMode)) {
                 keyMode = false;
             }
@@ -182,8 +641,168 @@ public class SftpProperties {
             if (Objects.isNull(channelConnectedTimeout)) {
                 channelConnectedTimeout = 15_000;
             }
-            return new SftpProperties(keyMode, protocol, port, sessionStrictHostKeyChecking, sessionConnectTimeout,
-                    channelConnectedTimeout, host, username, password, privateKey, passphrase, root);
+            if (Objects.isNull(poolMaxTotal)) {
+                poolMaxTotal = 8;
+            }
+            if (Objects.isNull(poolMinIdle)) {
+                poolMinIdle = 0;
+            }
+            if (Objects.isNull(poolMaxIdle)) {
+                poolMaxIdle = poolMaxTotal;
+            }
+            if (Objects.isNull(poolMaxLifetime)) {
+                poolMaxLifetime = 1_800_000L;
+            }
+            if (Objects.isNull(poolMaxIdleTime)) {
+                poolMaxIdleTime = 300_000L;
+            }
+            if (Objects.isNull(poolEvictionInterval)) {
+                poolEvictionInterval = 60_000L;
+            }
+            if (Objects.isNull(poolMaxWait)) {
+                poolMaxWait = 30_000L;
+            }
+            if (Objects.isNull(poolTestOnBorrow)) {
+                poolTestOnBorrow = true;
+            }
+            if (Objects.isNull(parallelism)) {
+                parallelism = 1;
+            }
+            if (Objects.isNull(segmentSize)) {
+                segmentSize = 16_777_216L;
+            }
+            if (Objects.isNull(segmentParallelism)) {
+                segmentParallelism = 1;
+            }
+            if (Objects.isNull(resumeTransfers)) {
+                resumeTransfers = false;
+            }
+            if (Objects.isNull(resumeVerifyLength)) {
+                resumeVerifyLength = 0;
+            }
+            if (Objects.isNull(resumeCompleteOnSameSize)) {
+                resumeCompleteOnSameSize = false;
+            }
+            if (Objects.isNull(readSpillThreshold)) {
+                readSpillThreshold = 16_777_216L;
+            }
+            if (Objects.isNull(readDirectBuffer)) {
+                readDirectBuffer = false;
+            }
+            if (Objects.isNull(directoryCacheSize)) {
+                directoryCacheSize = 1024;
+            }
+            if (Objects.isNull(directoryCacheTtl)) {
+                directoryCacheTtl = 300_000L;
+            }
+            if (Objects.isNull(transferBufferSize)) {
+                transferBufferSize = 262_144;
+            }
+            if (Objects.isNull(transferDirectBuffer)) {
+                transferDirectBuffer = false;
+            }
+            if (Objects.isNull(transferPreallocate)) {
+                transferPreallocate = false;
+            }
+            if (Objects.isNull(sessionCompression)) {
+                sessionCompression = false;
+            }
+            if (Objects.isNull(sessionCompressionLevel)) {
+                sessionCompressionLevel = 6;
+            }
+            if (Objects.isNull(payloadCompression)) {
+                payloadCompression = PayloadCompression.NONE;
+            }
+            if (Objects.isNull(bandwidthLimit)) {
+                bandwidthLimit = 0L;
+            }
+            if (Objects.isNull(serverAliveInterval)) {
+                serverAliveInterval = 0;
+            }
+            if (Objects.isNull(serverAliveCountMax)) {
+                serverAliveCountMax = 3;
+            }
+            if (Objects.isNull(poolWarmUp)) {
+                poolWarmUp = false;
+            }
+            if (Objects.isNull(retryMaxAttempts)) {
+                retryMaxAttempts = 3;
+            }
+            if (Objects.isNull(retryBackoff)) {
+                retryBackoff = 200L;
+            }
+            if (Objects.isNull(retryMaxBackoff)) {
+                retryMaxBackoff = 5_000L;
+            }
+            if (Objects.isNull(circuitBreakerFailureThreshold)) {
+                circuitBreakerFailureThreshold = 5;
+            }
+            if (Objects.isNull(circuitBreakerOpenTime)) {
+                circuitBreakerOpenTime = 30_000L;
+            }
+            if (Objects.isNull(writeBehindBuffers)) {
+                writeBehindBuffers = 4;
+            }
+            if (Objects.isNull(checksumAlgorithm)) {
+                checksumAlgorithm = ChecksumAlgorithm.NONE;
+            }
+            if (Objects.isNull(checksumSidecarSuffix)) {
+                checksumSidecarSuffix = "";
+            }
+        }
+
+        /**
+         * Reject values the client can not work with, such as a segment size that never advances, before any connection is made.
+         */
+        private void validate() {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException(String.format("parallelism must be at least 1. parallelism: %d", parallelism));
+            }
+            if (transferBufferSize < 1) {
+                throw new IllegalArgumentException(String.format("transferBufferSize must be at least 1. transferBufferSize: %d", transferBufferSize));
+            }
+            if (sessionCompressionLevel < 1 || sessionCompressionLevel > 9) {
+                throw new IllegalArgumentException(String.format("sessionCompressionLevel must be between 1 and 9. sessionCompressionLevel: %d", sessionCompressionLevel));
+            }
+            if (retryMaxAttempts < 1) {
+                throw new IllegalArgumentException(String.format("retryMaxAttempts must be at least 1. retryMaxAttempts: %d", retryMaxAttempts));
+            }
+            if (writeBehindBuffers < 1) {
+                throw new IllegalArgumentException(String.format("writeBehindBuffers must be at least 1. writeBehindBuffers: %d", writeBehindBuffers));
+            }
+            if (poolMaxTotal < 1) {
+                throw new IllegalArgumentException(String.format("poolMaxTotal must be at least 1. poolMaxTotal: %d", poolMaxTotal));
+            }
+            if (poolMinIdle < 0) {
+                throw new IllegalArgumentException(String.format("poolMinIdle must not be negative. poolMinIdle: %d", poolMinIdle));
+            }
+            if (poolMaxIdle < poolMinIdle || poolMaxIdle > poolMaxTotal) {
+                throw new IllegalArgumentException(String.format("poolMaxIdle must be between poolMinIdle and poolMaxTotal. poolMinIdle: %d, poolMaxIdle: %d, poolMaxTotal: %d", poolMinIdle, poolMaxIdle, poolMaxTotal));
+            }
+            if (segmentSize < 1) {
+                throw new IllegalArgumentException(String.format("segmentSize must be at least 1. segmentSize: %d", segmentSize));
+            }
+            if (segmentParallelism < 1) {
+                throw new IllegalArgumentException(String.format("segmentParallelism must be at least 1. segmentParallelism: %d", segmentParallelism));
+            }
+            if (readSpillThreshold < 0 || readSpillThreshold > RemoteContent.MAX_IN_MEMORY_SIZE) {
+                throw new IllegalArgumentException(String.format("readSpillThreshold must be between 0 and %d. readSpillThreshold: %d", RemoteContent.MAX_IN_MEMORY_SIZE, readSpillThreshold));
+            }
+            requireNotNegative("poolMaxLifetime", poolMaxLifetime);
+            requireNotNegative("poolMaxWait", poolMaxWait);
+            requireNotNegative("retryBackoff", retryBackoff);
+            requireNotNegative("retryMaxBackoff", retryMaxBackoff);
+            requireNotNegative("bandwidthLimit", bandwidthLimit);
+            requireNotNegative("directoryCacheSize", directoryCacheSize);
+            requireNotNegative("resumeVerifyLength", resumeVerifyLength);
+            requireNotNegative("circuitBreakerFailureThreshold", circuitBreakerFailureThreshold);
+            requireNotNegative("circuitBreakerOpenTime", circuitBreakerOpenTime);
+        }
+
+        private static void requireNotNegative(final String name, final long value) {
+            if (value < 0) {
+                throw new IllegalArgumentException(String.format("%s must not be negative. %s: %d", name, name, value));
+            }
         }
     }
 }
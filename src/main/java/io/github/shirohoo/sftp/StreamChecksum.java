@@ -0,0 +1,91 @@
+package io.github.shirohoo.sftp;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+/**
+ * Running checksum of one transfer. CRC values are formatted as 8 hex digits and message digests as lower case hex, as written by crc32 and sha256sum.
+ */
+final class StreamChecksum {
+
+    private static final String CRC32C_CLASS = "java.util.zip.CRC32C";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final ChecksumAlgorithm algorithm;
+
+    private final Checksum checksum;
+
+    private final MessageDigest digest;
+
+    private StreamChecksum(ChecksumAlgorithm algorithm, Checksum checksum, MessageDigest digest) {
+        this.algorithm = algorithm;
+        this.checksum = checksum;
+        this.digest = digest;
+    }
+
+    static StreamChecksum of(final ChecksumAlgorithm algorithm) {
+        switch (algorithm) {
+            case CRC32:
+                return new StreamChecksum(algorithm, new CRC32(), null);
+            case CRC32C:
+                return new StreamChecksum(algorithm, newCrc32c(), null);
+            case MD5:
+                return new StreamChecksum(algorithm, null, getDigest("MD5"));
+            case SHA_256:
+                return new StreamChecksum(algorithm, null, getDigest("SHA-256"));
+            default:
+                throw new IllegalArgumentException(String.format("Unsupported checksum algorithm: %s", algorithm));
+        }
+    }
+
+    /**
+     * CRC32C is looked up at runtime because the library still targets Java 8.
+     */
+    private static Checksum newCrc32c() {
+        try {
+            return (Checksum) Class.forName(CRC32C_CLASS).getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("CRC32C checksum requires Java 9 or later", e);
+        }
+    }
+
+    private static MessageDigest getDigest(final String name) {
+        try {
+            return MessageDigest.getInstance(name);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(String.format("Unsupported checksum algorithm: %s", name), e);
+        }
+    }
+
+    ChecksumAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    void update(final byte[] bytes, final int offset, final int length) {
+        if (checksum != null) {
+            checksum.update(bytes, offset, length);
+        } else {
+            digest.update(bytes, offset, length);
+        }
+    }
+
+    /**
+     * The checksum of every byte so far. Message digests are reset by this call, so call it once, after the transfer.
+     */
+    String getValue() {
+        if (checksum != null) {
+            return String.format("%08x", checksum.getValue());
+        }
+        final byte[] bytes = digest.digest();
+        final char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+}
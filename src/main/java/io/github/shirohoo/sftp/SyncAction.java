@@ -0,0 +1,10 @@
+package io.github.shirohoo.sftp;
+
+/**
+ * What SftpClient.sync did with one file.
+ */
+public enum SyncAction {
+    TRANSFERRED,
+    SKIPPED,
+    DELETED
+}
@@ -0,0 +1,9 @@
+package io.github.shirohoo.sftp;
+
+/**
+ * Which side of SftpClient.sync is the source. The other side is changed to match it.
+ */
+public enum SyncDirection {
+    DOWNLOAD,
+    UPLOAD
+}
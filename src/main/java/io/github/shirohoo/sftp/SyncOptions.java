@@ -0,0 +1,74 @@
+package io.github.shirohoo.sftp;
+
+import java.util.Objects;
+
+/**
+ * Options of SftpClient.sync. By default the remote directory is downloaded without descending into subdirectories and without deleting anything.
+ */
+public final class SyncOptions {
+
+    private final SyncDirection direction;
+
+    private final boolean recursive;
+
+    private final boolean deleteExtraneous;
+
+    private SyncOptions(SyncOptionsBuilder builder) {
+        this.direction = builder.direction;
+        this.recursive = builder.recursive;
+        this.deleteExtraneous = builder.deleteExtraneous;
+    }
+
+    public SyncDirection getDirection() {
+        return direction;
+    }
+
+    public boolean isRecursive() {
+        return recursive;
+    }
+
+    public boolean isDeleteExtraneous() {
+        return deleteExtraneous;
+    }
+
+    public static SyncOptionsBuilder builder() {
+        return new SyncOptionsBuilder();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SyncOptions{direction=%s, recursive=%s, deleteExtraneous=%s}", direction, recursive, deleteExtraneous);
+    }
+
+    public static class SyncOptionsBuilder {
+        private SyncDirection direction = SyncDirection.DOWNLOAD;
+        private boolean recursive;
+        private boolean deleteExtraneous;
+
+        SyncOptionsBuilder() {}
+
+        public SyncOptionsBuilder direction(SyncDirection direction) {
+            this.direction = Objects.requireNonNull(direction, "direction");
+            return this;
+        }
+
+        public SyncOptionsBuilder recursive(boolean recursive) {
+            this.recursive = recursive;
+            return this;
+        }
+
+        /**
+         * Delete files on the destination side that do not exist on the source side. Directories are never deleted.
+         */
+        public SyncOptionsBuilder deleteExtraneous(boolean deleteExtraneous) {
+            this.deleteExtraneous = deleteExtraneous;
+            return this;
+        }
+
+        public SyncOptions build() {
+            return new SyncOptions(this);
+        }
+
+    }
+
+}
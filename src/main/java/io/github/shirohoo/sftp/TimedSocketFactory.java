@@ -0,0 +1,51 @@
+package io.github.shirohoo.sftp;
+
+import com.jcraft.jsch.SocketFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Opens the session socket itself so that the TCP connect can be timed apart from the key exchange and authentication that JSch performs in the same Session.connect call.
+ */
+final class TimedSocketFactory implements SocketFactory {
+
+    private final int connectTimeout;
+
+    private long connectNanos;
+
+    TimedSocketFactory(int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    @Override
+    public Socket createSocket(final String host, final int port) throws IOException {
+        final long start = System.nanoTime();
+        final Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), Math.max(connectTimeout, 0));
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        connectNanos = System.nanoTime() - start;
+        return socket;
+    }
+
+    @Override
+    public InputStream getInputStream(final Socket socket) throws IOException {
+        return socket.getInputStream();
+    }
+
+    @Override
+    public OutputStream getOutputStream(final Socket socket) throws IOException {
+        return socket.getOutputStream();
+    }
+
+    long getConnectNanos() {
+        return connectNanos;
+    }
+
+}
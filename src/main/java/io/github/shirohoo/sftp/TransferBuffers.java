@@ -0,0 +1,128 @@
+package io.github.shirohoo.sftp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of transfer buffers of SftpProperties.transferBufferSize bytes, shared by every transfer of one client. Keeps large and direct buffers from being allocated per file.
+ */
+final class TransferBuffers {
+
+    private static final int SCRATCH_SIZE = 64 * 1024;
+
+    private final int bufferSize;
+
+    private final boolean direct;
+
+    private final int maxPooled;
+
+    private final Queue<ByteBuffer> pooled = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger pooledCount = new AtomicInteger();
+
+    TransferBuffers(int bufferSize, boolean direct, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.direct = direct;
+        this.maxPooled = maxPooled;
+    }
+
+    ByteBuffer acquire() {
+        final ByteBuffer buffer = pooled.poll();
+        if (buffer == null) {
+            return direct ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+        }
+        pooledCount.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    void release(final ByteBuffer buffer) {
+        if (pooledCount.incrementAndGet() <= maxPooled) {
+            pooled.offer(buffer);
+        } else {
+            pooledCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Copy the whole stream into the file at its current position, advancing the position, so after a failure the position tells how much was written. Fails with InterruptedIOException once the thread is interrupted. Returns the number of bytes copied.
+     */
+    long copy(final InputStream inputStream, final FileChannel file) throws IOException {
+        final ByteBuffer buffer = acquire();
+        final byte[] scratch = scratchFor(buffer);
+        long written = 0;
+        try {
+            int read;
+            while ((read = fill(inputStream, buffer, scratch, buffer.capacity())) > 0) {
+                TransferMonitor.checkInterrupted();
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    file.write(buffer);
+                }
+                written += read;
+                buffer.clear();
+            }
+            return written;
+        } finally {
+            release(buffer);
+        }
+    }
+
+    /**
+     * Copy up to length bytes of the stream into the file at the given position without touching the position of the channel, so several copies can share one channel. Fails with InterruptedIOException once the thread is interrupted. Returns the number of bytes copied.
+     */
+    long copy(final InputStream inputStream, final FileChannel file, final long position, final long length) throws IOException {
+        final ByteBuffer buffer = acquire();
+        final byte[] scratch = scratchFor(buffer);
+        long written = 0;
+        try {
+            while (written < length) {
+                final int read = fill(inputStream, buffer, scratch, (int) Math.min(buffer.capacity(), length - written));
+                if (read == 0) {
+                    break;
+                }
+                TransferMonitor.checkInterrupted();
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    file.write(buffer, position + written + buffer.position());
+                }
+                written += read;
+                buffer.clear();
+            }
+            return written;
+        } finally {
+            release(buffer);
+        }
+    }
+
+    private byte[] scratchFor(final ByteBuffer buffer) {
+        return buffer.hasArray() ? null : new byte[Math.min(bufferSize, SCRATCH_SIZE)];
+    }
+
+    /**
+     * Fill the buffer with up to length bytes, so every file write covers a whole buffer rather than one sftp packet.
+     */
+    private static int fill(final InputStream inputStream, final ByteBuffer buffer, final byte[] scratch, final int length) throws IOException {
+        while (buffer.position() < length) {
+            final int remaining = length - buffer.position();
+            final int read = buffer.hasArray()
+                ? inputStream.read(buffer.array(), buffer.arrayOffset() + buffer.position(), remaining)
+                : inputStream.read(scratch, 0, Math.min(scratch.length, remaining));
+            if (read < 0) {
+                break;
+            }
+            if (buffer.hasArray()) {
+                buffer.position(buffer.position() + read);
+            } else {
+                buffer.put(scratch, 0, read);
+            }
+        }
+        return buffer.position();
+    }
+
+}
@@ -0,0 +1,139 @@
+package io.github.shirohoo.sftp;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * A single upload or download queued on a TransferManager. Jobs with a higher priority run first, and among equal priorities the one with the earliest deadline. A job that is still queued when its deadline passes fails without running.
+ */
+public final class TransferJob {
+
+    private final String id;
+
+    private final Type type;
+
+    private final String remotePath;
+
+    private final Path localPath;
+
+    private final int priority;
+
+    private final long deadline;
+
+    private TransferJob(TransferJobBuilder builder) {
+        this.id = builder.id;
+        this.type = builder.type;
+        this.remotePath = builder.remotePath;
+        this.localPath = builder.localPath;
+        this.priority = builder.priority;
+        this.deadline = builder.deadline;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getRemotePath() {
+        return remotePath;
+    }
+
+    public Path getLocalPath() {
+        return localPath;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * Epoch milliseconds after which the job is not started any more, or 0 for no deadline.
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    boolean isExpired(final long now) {
+        return deadline > 0 && now > deadline;
+    }
+
+    public static TransferJobBuilder builder() {
+        return new TransferJobBuilder();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TransferJob{id=%s, type=%s, remotePath=%s, localPath=%s, priority=%d, deadline=%d}", id, type, remotePath, localPath, priority, deadline);
+    }
+
+    public enum Type {
+        UPLOAD,
+        DOWNLOAD
+    }
+
+    public static class TransferJobBuilder {
+        private String id;
+        private Type type;
+        private String remotePath;
+        private Path localPath;
+        private int priority;
+        private long deadline;
+
+        TransferJobBuilder() {}
+
+        /**
+         * Identifies the job in the journal. A random id is used when none is set.
+         */
+        public TransferJobBuilder id(String id) {
+            this.id = id;
+            return this;
+        }
+
+        public TransferJobBuilder upload(String remotePath, Path localPath) {
+            return transfer(Type.UPLOAD, remotePath, localPath);
+        }
+
+        public TransferJobBuilder download(String remotePath, Path localPath) {
+            return transfer(Type.DOWNLOAD, remotePath, localPath);
+        }
+
+        private TransferJobBuilder transfer(final Type type, final String remotePath, final Path localPath) {
+            this.type = type;
+            this.remotePath = Objects.requireNonNull(remotePath, "remotePath");
+            this.localPath = Objects.requireNonNull(localPath, "localPath");
+            return this;
+        }
+
+        public TransferJobBuilder priority(int priority) {
+            this.priority = priority;
+            return this;
+        }
+
+        public TransferJobBuilder deadline(Instant deadline) {
+            this.deadline = Objects.isNull(deadline) ? 0 : deadline.toEpochMilli();
+            return this;
+        }
+
+        TransferJobBuilder deadline(long deadline) {
+            this.deadline = deadline;
+            return this;
+        }
+
+        public TransferJob build() {
+            if (Objects.isNull(type)) {
+                throw new IllegalStateException("Either upload or download must be set");
+            }
+            if (Objects.isNull(id)) {
+                id = UUID.randomUUID().toString();
+            }
+            return new TransferJob(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,182 @@
+package io.github.shirohoo.sftp;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+
+/**
+ * Append-only log of TransferManager jobs, one tab separated line per event with URL encoded fields. Opening the journal replays it, keeps the jobs that were submitted but never completed and rewrites the file with only those, so the
+ * journal does not grow across restarts. The file is rewritten the same way while it is open once it holds more than COMPACT_MIN_LINES lines and twice as many lines as pending jobs, so a long running manager does not grow it either.
+ * Every line is flushed when it is written, so a crash of the JVM loses no job; a torn last line is skipped on replay.
+ */
+final class TransferJournal implements Closeable {
+
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(TransferJournal.class);
+
+    private static final String SUBMITTED = "S";
+
+    private static final String SUCCEEDED = "D";
+
+    private static final String FAILED = "F";
+
+    private static final String SEPARATOR = "\t";
+
+    private static final int COMPACT_MIN_LINES = 10_000;
+
+    private final Path path;
+
+    private final List<TransferJob> recovered;
+
+    private final Map<String, TransferJob> pending = new LinkedHashMap<>();
+
+    private Writer writer;
+
+    private int lines;
+
+    TransferJournal(Path path) throws IOException {
+        final Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.path = path;
+        this.recovered = Collections.unmodifiableList(replay(path));
+        for (TransferJob job : recovered) {
+            pending.put(job.getId(), job);
+        }
+        compact(path, recovered);
+        this.lines = recovered.size();
+        this.writer = open(path);
+    }
+
+    private static Writer open(final Path path) throws IOException {
+        return Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Jobs that were submitted but not completed when the journal was opened, in submission order.
+     */
+    List<TransferJob> getPending() {
+        return recovered;
+    }
+
+    synchronized void submitted(final TransferJob job) throws IOException {
+        append(toLine(job));
+        pending.put(job.getId(), job);
+    }
+
+    synchronized void completed(final TransferJob job, final boolean success) throws IOException {
+        append((success ? SUCCEEDED : FAILED) + SEPARATOR + encode(job.getId()));
+        pending.remove(job.getId());
+        if (lines >= COMPACT_MIN_LINES && lines > 2 * pending.size()) {
+            writer.close();
+            try {
+                compact(path, pending.values());
+                lines = pending.size();
+            } finally {
+                writer = open(path);
+            }
+        }
+    }
+
+    private void append(final String line) throws IOException {
+        writer.write(line);
+        writer.write('\n');
+        writer.flush();
+        lines++;
+    }
+
+    private static List<TransferJob> replay(final Path path) throws IOException {
+        final Map<String, TransferJob> jobs = new LinkedHashMap<>();
+        if (!Files.exists(path)) {
+            return new ArrayList<>();
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] fields = line.split(SEPARATOR, -1);
+                try {
+                    if (SUBMITTED.equals(fields[0])) {
+                        final TransferJob job = toJob(fields);
+                        jobs.put(job.getId(), job);
+                    } else if (SUCCEEDED.equals(fields[0]) || FAILED.equals(fields[0])) {
+                        jobs.remove(decode(fields[1]));
+                    } else {
+                        log.info("Skip unknown transfer journal line: {}", line);
+                    }
+                } catch (RuntimeException e) {
+                    log.info("Skip broken transfer journal line: {}", line);
+                }
+            }
+        }
+        return new ArrayList<>(jobs.values());
+    }
+
+    private static void compact(final Path path, final Collection<TransferJob> jobs) throws IOException {
+        final Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            for (TransferJob job : jobs) {
+                out.write(toLine(job));
+                out.write('\n');
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String toLine(final TransferJob job) {
+        return String.join(SEPARATOR, SUBMITTED, encode(job.getId()), job.getType().name(), String.valueOf(job.getPriority()), String.valueOf(job.getDeadline()),
+            encode(job.getRemotePath()), encode(job.getLocalPath().toString()));
+    }
+
+    private static TransferJob toJob(final String[] fields) {
+        if (fields.length != 7) {
+            throw new IllegalArgumentException(String.format("Expected 7 fields but was %d", fields.length));
+        }
+        final TransferJob.TransferJobBuilder builder = TransferJob.builder()
+            .id(decode(fields[1]))
+            .priority(Integer.parseInt(fields[3]))
+            .deadline(Long.parseLong(fields[4]));
+        final String remotePath = decode(fields[5]);
+        final Path localPath = Paths.get(decode(fields[6]));
+        return (TransferJob.Type.valueOf(fields[2]) == TransferJob.Type.UPLOAD ? builder.upload(remotePath, localPath) : builder.download(remotePath, localPath)).build();
+    }
+
+    private static String encode(final String value) {
+        try {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String decode(final String value) {
+        try {
+            return URLDecoder.decode(value, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+}
@@ -0,0 +1,352 @@
+package io.github.shirohoo.sftp;
+
+import com.jcraft.jsch.JSchException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+
+/**
+ * Queue of uploads and downloads run by a bounded pool of workers that share the connections of one SftpClient. Every submitted job is recorded in a journal file before it is queued, and jobs that did not complete are queued again when
+ * a TransferManager is created on the same journal, so a restarted batch continues where it stopped. With SftpProperties.resumeTransfers an interrupted file continues from the bytes already transferred as well. A job that fails with a
+ * TRANSIENT SftpErrorType is queued again after a backoff that doubles with every attempt; when its attempts run out it stays pending in the journal, so it runs again after a restart.
+ */
+public final class TransferManager implements Closeable {
+
+    private static final Logger log = org.slf4j.LoggerFactory.getLogger(TransferManager.class);
+
+    private static final long POLL_MILLIS = 100;
+
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    private static final long DEFAULT_RETRY_BACKOFF_MILLIS = 1_000L;
+
+    private final SftpClient client;
+
+    private final TransferJournal journal;
+
+    private final PriorityBlockingQueue<QueuedJob> queue = new PriorityBlockingQueue<>();
+
+    private final Map<String, CompletableFuture<TransferResult>> results = new ConcurrentHashMap<>();
+
+    private final ExecutorService workers;
+
+    private final ScheduledExecutorService retries;
+
+    private final int maxAttempts;
+
+    private final long retryBackoffMillis;
+
+    private final Object submitLock = new Object();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicInteger running = new AtomicInteger();
+
+    private final LongAdder succeeded = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LongAdder retried = new LongAdder();
+
+    private final LongAdder transferredBytes = new LongAdder();
+
+    private final LatencyHistogram waitTime = new LatencyHistogram();
+
+    private final Map<String, CompletableFuture<TransferResult>> recovered;
+
+    private final long startedAt = System.nanoTime();
+
+    private volatile boolean closed;
+
+    /**
+     * @param client      SftpClient used by every worker, not closed by this manager
+     * @param journalPath Path of the journal file, created when missing and replayed when present
+     * @param parallelism int number of jobs that run at the same time
+     */
+    public TransferManager(SftpClient client, Path journalPath, int parallelism) throws IOException {
+        this(client, journalPath, parallelism, DEFAULT_MAX_ATTEMPTS, DEFAULT_RETRY_BACKOFF_MILLIS);
+    }
+
+    /**
+     * @param client             SftpClient used by every worker, not closed by this manager
+     * @param journalPath        Path of the journal file, created when missing and replayed when present
+     * @param parallelism        int number of jobs that run at the same time
+     * @param maxAttempts        int attempts of a job that keeps failing with a transient error, 1 disables retries
+     * @param retryBackoffMillis long wait before the second attempt, doubled for every further attempt
+     */
+    public TransferManager(SftpClient client, Path journalPath, int parallelism, int maxAttempts, long retryBackoffMillis) throws IOException {
+        this.client = client;
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.retryBackoffMillis = Math.max(retryBackoffMillis, 0);
+        this.journal = new TransferJournal(journalPath);
+        final Map<String, CompletableFuture<TransferResult>> recoveredResults = new LinkedHashMap<>();
+        for (TransferJob job : journal.getPending()) {
+            recoveredResults.put(job.getId(), enqueue(job));
+        }
+        this.recovered = Collections.unmodifiableMap(recoveredResults);
+        if (!recovered.isEmpty()) {
+            log.info("Recovered {} transfer jobs from {}", recovered.size(), journalPath);
+        }
+        final int threads = Math.max(parallelism, 1);
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "sftp-transfer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < threads; i++) {
+            workers.execute(this::work);
+        }
+        this.retries = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sftp-transfer-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Record the job in the journal and queue it. The returned future completes with the TransferResult of the job, which is not succeeded when the transfer failed, or exceptionally when the job expired or the client threw. Throws
+     * IllegalStateException once close has started.
+     */
+    public CompletableFuture<TransferResult> submit(final TransferJob job) throws IOException {
+        synchronized (submitLock) {
+            if (closed) {
+                throw new IllegalStateException("Transfer manager is closed");
+            }
+            final CompletableFuture<TransferResult> future = new CompletableFuture<>();
+            if (results.putIfAbsent(job.getId(), future) != null) {
+                throw new IllegalArgumentException(String.format("Transfer job is already queued. id: %s", job.getId()));
+            }
+            try {
+                journal.submitted(job);
+            } catch (IOException e) {
+                results.remove(job.getId());
+                throw e;
+            }
+            queue.add(new QueuedJob(job, sequence.getAndIncrement(), 1));
+            return future;
+        }
+    }
+
+    private CompletableFuture<TransferResult> enqueue(final TransferJob job) {
+        final CompletableFuture<TransferResult> future = new CompletableFuture<>();
+        results.put(job.getId(), future);
+        queue.add(new QueuedJob(job, sequence.getAndIncrement(), 1));
+        return future;
+    }
+
+    /**
+     * Futures of the jobs recovered from the journal when this manager was created, keyed by job id in submission order. The jobs are queued already.
+     */
+    public Map<String, CompletableFuture<TransferResult>> getRecoveredResults() {
+        return recovered;
+    }
+
+    private void work() {
+        while (!closed) {
+            final QueuedJob queued;
+            try {
+                queued = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (queued != null) {
+                waitTime.record(System.nanoTime() - queued.enqueuedAt);
+                run(queued);
+            }
+        }
+    }
+
+    private void run(final QueuedJob queued) {
+        final TransferJob job = queued.job;
+        final CompletableFuture<TransferResult> future = results.get(job.getId());
+        if (job.isExpired(System.currentTimeMillis())) {
+            log.error("Transfer job expired before it started. job: {}", job);
+            complete(job, false, true);
+            future.completeExceptionally(new TimeoutException(String.format("Transfer job expired. id: %s", job.getId())));
+            return;
+        }
+        running.incrementAndGet();
+        try {
+            final TransferResult result = job.getType() == TransferJob.Type.UPLOAD
+                ? client.uploadWithResult(job.getRemotePath(), job.getLocalPath().toFile())
+                : client.downloadWithResult(job.getRemotePath(), job.getLocalPath());
+            if (result.isSucceeded()) {
+                transferredBytes.add(result.getBytes());
+                complete(job, true, true);
+                future.complete(result);
+            } else if (!retry(queued, result.getFailure())) {
+                complete(job, false, !isTransient(result.getFailure()));
+                future.complete(result);
+            }
+        } catch (JSchException | RuntimeException e) {
+            log.error("Transfer job failure. job: {}, cause: {}", job, e.getMessage());
+            if (!retry(queued, e)) {
+                complete(job, false, !isTransient(e));
+                future.completeExceptionally(e);
+            }
+        } finally {
+            running.decrementAndGet();
+        }
+    }
+
+    private static boolean isTransient(final Exception cause) {
+        return cause != null && SftpErrorType.classify(cause).isRetryable();
+    }
+
+    /**
+     * Queue a job that failed with a transient error again after its backoff. Returns false when the job is not retried, because the error is not transient, its attempts ran out or the manager is closing.
+     */
+    private boolean retry(final QueuedJob queued, final Exception cause) {
+        if (!isTransient(cause) || queued.attempt >= maxAttempts || closed) {
+            return false;
+        }
+        final long backoff = retryBackoffMillis << Math.min(queued.attempt - 1, 20);
+        log.info("Retry transfer job in {} ms. attempt: {}/{}, job: {}, cause: {}", backoff, queued.attempt + 1, maxAttempts, queued.job, cause.getMessage());
+        try {
+            retries.schedule(() -> queue.add(new QueuedJob(queued.job, queued.sequence, queued.attempt + 1)), backoff, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+        retried.increment();
+        return true;
+    }
+
+    /**
+     * A failure is only journaled when it is final. A job whose transient failure ran out of attempts stays pending, so it runs again when a TransferManager is created on the journal.
+     */
+    private void complete(final TransferJob job, final boolean success, final boolean journaled) {
+        results.remove(job.getId());
+        (success ? succeeded : failed).increment();
+        if (!journaled) {
+            log.info("Transfer job stays in the journal for the next start. job: {}", job);
+            return;
+        }
+        try {
+            journal.completed(job, success);
+        } catch (IOException e) {
+            log.error("Write transfer journal failure, the job runs again after a restart. job: {}, cause: {}", job, e.getMessage());
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getRunningCount() {
+        return running.get();
+    }
+
+    public long getSucceededCount() {
+        return succeeded.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * Number of times a job was queued again after a transient failure.
+     */
+    public long getRetriedCount() {
+        return retried.sum();
+    }
+
+    public long getTransferredBytes() {
+        return transferredBytes.sum();
+    }
+
+    /**
+     * Time jobs spent in the queue before a worker took them.
+     */
+    public LatencyHistogram getWaitTime() {
+        return waitTime;
+    }
+
+    /**
+     * Bytes per second transferred by succeeded jobs since this manager was created.
+     */
+    public double getThroughput() {
+        final long elapsedNanos = System.nanoTime() - startedAt;
+        return elapsedNanos <= 0 ? 0 : transferredBytes.sum() * 1_000_000_000d / elapsedNanos;
+    }
+
+    /**
+     * Stop taking jobs from the queue and wait for the running ones to finish. Jobs still queued or waiting for a retry stay in the journal and run again when a TransferManager is created on it; their futures are cancelled.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (submitLock) {
+            closed = true;
+        }
+        retries.shutdownNow();
+        workers.shutdown();
+        try {
+            while (!workers.awaitTermination(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                log.info("Waiting for {} running transfer jobs", running.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        results.values().forEach(future -> future.cancel(false));
+        journal.close();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TransferManager{queued=%d, running=%d, succeeded=%d, failed=%d, retried=%d, bytes=%d, wait=[%s]}",
+            getQueueDepth(), getRunningCount(), getSucceededCount(), getFailedCount(), getRetriedCount(), getTransferredBytes(), waitTime);
+    }
+
+    private static final class QueuedJob implements Comparable<QueuedJob> {
+
+        private final TransferJob job;
+
+        private final long sequence;
+
+        private final int attempt;
+
+        private final long enqueuedAt = System.nanoTime();
+
+        private QueuedJob(TransferJob job, long sequence, int attempt) {
+            this.job = job;
+            this.sequence = sequence;
+            this.attempt = attempt;
+        }
+
+        /**
+         * Higher priority first, then earlier deadline, then submission order.
+         */
+        @Override
+        public int compareTo(final QueuedJob other) {
+            if (job.getPriority() != other.job.getPriority()) {
+                return Integer.compare(other.job.getPriority(), job.getPriority());
+            }
+            final int byDeadline = Long.compare(getDeadline(), other.getDeadline());
+            return byDeadline != 0 ? byDeadline : Long.compare(sequence, other.sequence);
+        }
+
+        private long getDeadline() {
+            return job.getDeadline() > 0 ? job.getDeadline() : Long.MAX_VALUE;
+        }
+
+    }
+
+}
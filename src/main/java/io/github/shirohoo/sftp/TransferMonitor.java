@@ -0,0 +1,86 @@
+package io.github.shirohoo.sftp;
+
+import com.jcraft.jsch.SftpProgressMonitor;
+import java.io.InterruptedIOException;
+
+/**
+ * Reports the duration and byte count of a single get or put to the SftpMetricsListener, and paces the transfer through the global and per-host BandwidthLimiter. count returns false once the thread is interrupted, so JSch stops
+ * the transfer instead of sending the rest of the file unpaced. JSch takes false as a quiet end of the transfer, so every get is read through InterruptibleInputStream and every put is followed by checkInterrupted, and the
+ * operation fails instead of leaving a short file behind.
+ */
+final class TransferMonitor implements SftpProgressMonitor {
+
+    private final SftpMetricsListener listener;
+
+    private final String host;
+
+    private final SftpOperation operation;
+
+    private final BandwidthLimiter hostLimiter;
+
+    private final Runnable onStarted;
+
+    private final Runnable onEnded;
+
+    private long start;
+
+    private long bytes;
+
+    private boolean started;
+
+    private boolean ended;
+
+    /**
+     * @param onStarted Runnable called when the first bytes moved, from when on replies to pipelined requests of the transfer may be in flight on the channel
+     * @param onEnded   Runnable called when JSch ended the transfer
+     */
+    TransferMonitor(SftpMetricsListener listener, String host, SftpOperation operation, BandwidthLimiter hostLimiter, Runnable onStarted, Runnable onEnded) {
+        this.listener = listener;
+        this.host = host;
+        this.operation = operation;
+        this.hostLimiter = hostLimiter;
+        this.onStarted = onStarted;
+        this.onEnded = onEnded;
+    }
+
+    @Override
+    public void init(final int op, final String src, final String dest, final long max) {
+        start = System.nanoTime();
+    }
+
+    @Override
+    public boolean count(final long count) {
+        bytes += count;
+        if (!started) {
+            started = true;
+            onStarted.run();
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            return false;
+        }
+        BandwidthLimiter.global().acquire(count);
+        hostLimiter.acquire(count);
+        return !Thread.currentThread().isInterrupted();
+    }
+
+    @Override
+    public void end() {
+        if (ended) {
+            return;
+        }
+        ended = true;
+        onEnded.run();
+        listener.onPhase(host, SftpPhase.TRANSFER, System.nanoTime() - start);
+        listener.onBytesTransferred(host, operation, bytes);
+    }
+
+    /**
+     * Fail a transfer whose thread was interrupted while it ran. The interrupt flag stays set.
+     */
+    static void checkInterrupted() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Transfer interrupted");
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+package io.github.shirohoo.sftp;
+
+import static java.util.Objects.nonNull;
+
+/**
+ * Outcome of a single file transfer. checksum is computed while the content is transferred with SftpProperties.checksumAlgorithm and is null when no algorithm is configured or the transfer could not hash the content in one pass, like
+ * a segmented download. expectedChecksum is the value found in the checksum sidecar file, or null when there is none.
+ */
+public final class TransferResult {
+
+    private final String path;
+
+    private final boolean succeeded;
+
+    private final long bytes;
+
+    private final ChecksumAlgorithm algorithm;
+
+    private final String checksum;
+
+    private final String expectedChecksum;
+
+    private final Exception failure;
+
+    private TransferResult(String path, boolean succeeded, long bytes, ChecksumAlgorithm algorithm, String checksum, String expectedChecksum, Exception failure) {
+        this.path = path;
+        this.succeeded = succeeded;
+        this.bytes = bytes;
+        this.algorithm = algorithm;
+        this.checksum = checksum;
+        this.expectedChecksum = expectedChecksum;
+        this.failure = failure;
+    }
+
+    static TransferResult of(final String path, final long bytes, final ChecksumAlgorithm algorithm, final String checksum, final String expectedChecksum) {
+        return new TransferResult(path, true, bytes, nonNull(checksum) ? algorithm : ChecksumAlgorithm.NONE, checksum, expectedChecksum, null);
+    }
+
+    static TransferResult failed(final String path) {
+        return failed(path, null);
+    }
+
+    static TransferResult failed(final String path, final Exception failure) {
+        return new TransferResult(path, false, -1, ChecksumAlgorithm.NONE, null, null, failure);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public boolean isSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * Bytes of file content transferred, or -1 when the transfer failed. A resumed transfer only counts the bytes sent after the part that was kept.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public ChecksumAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public String getExpectedChecksum() {
+        return expectedChecksum;
+    }
+
+    /**
+     * The exception that failed the transfer, or null when it succeeded or failed without one, like a download to a directory that could not be created. Pass it to SftpErrorType.classify to decide whether to retry.
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+
+    /**
+     * True when the checksum was compared with a sidecar file and matched. A mismatch fails the transfer.
+     */
+    public boolean isVerified() {
+        return succeeded && nonNull(expectedChecksum) && expectedChecksum.equals(checksum);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TransferResult{path=%s, succeeded=%s, bytes=%d, algorithm=%s, checksum=%s, verified=%s}", path, succeeded, bytes, algorithm, checksum, isVerified());
+    }
+
+}
@@ -0,0 +1,59 @@
+package io.github.shirohoo.sftp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Objects;
+
+/**
+ * One file of SftpClient.uploadAll. The target path is relative to the root of SftpProperties and must include the name of the file.
+ */
+public final class UploadItem {
+
+    private final String targetPath;
+
+    private final File file;
+
+    private final InputStream inputStream;
+
+    private UploadItem(String targetPath, File file, InputStream inputStream) {
+        this.targetPath = Objects.requireNonNull(targetPath, "targetPath");
+        this.file = file;
+        this.inputStream = inputStream;
+    }
+
+    public static UploadItem of(final String targetPath, final File uploadFile) {
+        return new UploadItem(targetPath, Objects.requireNonNull(uploadFile, "uploadFile"), null);
+    }
+
+    /**
+     * The stream is closed after it has been uploaded, whether the upload succeeded or not.
+     */
+    public static UploadItem of(final String targetPath, final InputStream uploadFileStream) {
+        return new UploadItem(targetPath, null, Objects.requireNonNull(uploadFileStream, "uploadFileStream"));
+    }
+
+    public String getTargetPath() {
+        return targetPath;
+    }
+
+    String getTargetDir() {
+        final int index = targetPath.lastIndexOf("/");
+        return index == -1 ? "" : targetPath.substring(0, index);
+    }
+
+    InputStream openStream() throws IOException {
+        return Objects.nonNull(file) ? FileChannelInputStream.open(file.toPath()) : inputStream;
+    }
+
+    void closeQuietly() {
+        if (Objects.nonNull(inputStream)) {
+            try {
+                inputStream.close();
+            } catch (IOException ignored) {
+                // the upload result is already decided
+            }
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+package io.github.shirohoo.sftp;
+
+import java.util.Objects;
+
+/**
+ * Options of RemoteDirectoryWatcher.watch. By default regular files directly in the directory are watched, polled every 1 to 30 seconds, and a created or modified file is reported once it looked the same in one more poll.
+ */
+public final class WatchOptions {
+
+    private final ListOptions listOptions;
+
+    private final long minInterval;
+
+    private final long maxInterval;
+
+    private final int stableChecks;
+
+    private final boolean emitExisting;
+
+    private WatchOptions(WatchOptionsBuilder builder) {
+        this.listOptions = builder.listOptions;
+        this.minInterval = builder.minInterval;
+        this.maxInterval = builder.maxInterval;
+        this.stableChecks = builder.stableChecks;
+        this.emitExisting = builder.emitExisting;
+    }
+
+    public static WatchOptions defaults() {
+        return builder().build();
+    }
+
+    public ListOptions getListOptions() {
+        return listOptions;
+    }
+
+    public long getMinInterval() {
+        return minInterval;
+    }
+
+    public long getMaxInterval() {
+        return maxInterval;
+    }
+
+    public int getStableChecks() {
+        return stableChecks;
+    }
+
+    public boolean isEmitExisting() {
+        return emitExisting;
+    }
+
+    public static WatchOptionsBuilder builder() {
+        return new WatchOptionsBuilder();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("WatchOptions{listOptions=%s, minInterval=%d, maxInterval=%d, stableChecks=%d, emitExisting=%s}", listOptions, minInterval, maxInterval, stableChecks, emitExisting);
+    }
+
+    public static class WatchOptionsBuilder {
+        private ListOptions listOptions = ListOptions.builder().types(RemoteEntry.Type.FILE).build();
+        private long minInterval = 1_000L;
+        private long maxInterval = 30_000L;
+        private int stableChecks = 1;
+        private boolean emitExisting;
+
+        WatchOptionsBuilder() {}
+
+        /**
+         * Which entries are watched. The glob, types, recursive and maxDepth of ListOptions apply; pageSize is ignored.
+         */
+        public WatchOptionsBuilder listOptions(ListOptions listOptions) {
+            this.listOptions = Objects.requireNonNull(listOptions, "listOptions");
+            return this;
+        }
+
+        /**
+         * Milliseconds between polls while the directory changes. Every poll without changes doubles the interval up to maxInterval.
+         */
+        public WatchOptionsBuilder minInterval(long minInterval) {
+            if (minInterval < 1) {
+                throw new IllegalArgumentException(String.format("minInterval must be at least 1. minInterval: %d", minInterval));
+            }
+            this.minInterval = minInterval;
+            return this;
+        }
+
+        public WatchOptionsBuilder maxInterval(long maxInterval) {
+            if (maxInterval < 1) {
+                throw new IllegalArgumentException(String.format("maxInterval must be at least 1. maxInterval: %d", maxInterval));
+            }
+            this.maxInterval = maxInterval;
+            return this;
+        }
+
+        /**
+         * Polls in a row that must see the same size and modified time before a created or modified entry is reported, so files still being written are not picked up early. 0 reports changes as soon as they are seen.
+         */
+        public WatchOptionsBuilder stableChecks(int stableChecks) {
+            if (stableChecks < 0) {
+                throw new IllegalArgumentException(String.format("stableChecks must not be negative. stableChecks: %d", stableChecks));
+            }
+            this.stableChecks = stableChecks;
+            return this;
+        }
+
+        /**
+         * Report the entries found by the first poll as CREATED instead of taking them as the initial snapshot.
+         */
+        public WatchOptionsBuilder emitExisting(boolean emitExisting) {
+            this.emitExisting = emitExisting;
+            return this;
+        }
+
+        public WatchOptions build() {
+            if (maxInterval < minInterval) {
+                throw new IllegalArgumentException(String.format("maxInterval must not be less than minInterval. minInterval: %d, maxInterval: %d", minInterval, maxInterval));
+            }
+            return new WatchOptions(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,171 @@
+package io.github.shirohoo.sftp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BandwidthLimiterTest {
+
+    private static final long RATE = 256 * 1024;
+
+    private static final long FILE_SIZE = 2 * 1024 * 1024;
+
+    private EmbeddedSftpServer server;
+
+    @TempDir
+    Path localDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = EmbeddedSftpServer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        BandwidthLimiter.forHost("127.0.0.1").setBytesPerSecond(0);
+        server.close();
+    }
+
+    @Test
+    void paceAcquiredBytesToTheRate() {
+        final BandwidthLimiter limiter = new BandwidthLimiter(RATE);
+        final long start = System.nanoTime();
+        for (int i = 0; i < 8; i++) {
+            limiter.acquire(RATE / 8);
+        }
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(800);
+    }
+
+    @Test
+    void keepInterruptFlagWhenInterruptedWhileWaiting() {
+        final BandwidthLimiter limiter = new BandwidthLimiter(1);
+        Thread.currentThread().interrupt();
+        try {
+            final long start = System.nanoTime();
+            limiter.acquire(1024);
+
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+            assertThat(Thread.currentThread().isInterrupted()).isTrue();
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    void stopTransferOnceThreadIsInterrupted() {
+        final TransferMonitor monitor = new TransferMonitor(SftpMetricsListener.NO_OP, "127.0.0.1", SftpOperation.UPLOAD, new BandwidthLimiter(RATE), () -> {}, () -> {});
+        assertThat(monitor.count(1024)).isTrue();
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThat(monitor.count(1024)).isFalse();
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    void applyLowestLimitOfOpenClientsOfTheHost() {
+        final BandwidthLimiter host = BandwidthLimiter.forHost("127.0.0.1");
+        final DefaultSftpClient strict = new DefaultSftpClient(server.properties().bandwidthLimit(RATE).build());
+        try (DefaultSftpClient lenient = new DefaultSftpClient(server.properties().bandwidthLimit(RATE * 4).build())) {
+            assertThat(host.getBytesPerSecond()).isEqualTo(RATE);
+
+            strict.close();
+
+            assertThat(host.getBytesPerSecond()).isEqualTo(RATE * 4);
+        }
+        assertThat(BandwidthLimiter.forHost("127.0.0.1").isUnlimited()).isTrue();
+    }
+
+    @Test
+    void keepLimitOfOtherClientWhenClientIsClosedTwice() {
+        final BandwidthLimiter host = BandwidthLimiter.forHost("127.0.0.1");
+        try (DefaultSftpClient other = new DefaultSftpClient(server.properties().bandwidthLimit(RATE).build())) {
+            final DefaultSftpClient client = new DefaultSftpClient(server.properties().bandwidthLimit(RATE).build());
+            client.close();
+            client.close();
+
+            assertThat(host.getBytesPerSecond()).isEqualTo(RATE);
+        }
+        assertThat(BandwidthLimiter.forHost("127.0.0.1").isUnlimited()).isTrue();
+    }
+
+    @Test
+    void failThrottledUploadWhenInterrupted() throws Exception {
+        final Path uploadFile = server.getHome().resolve(server.createFile("source.bin", FILE_SIZE)).toAbsolutePath();
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().bandwidthLimit(RATE).poolWarmUp(true).build())) {
+            final boolean uploaded = interruptAfter(500, () -> client.upload("target.bin", uploadFile.toFile()));
+
+            assertThat(uploaded).isFalse();
+        }
+    }
+
+    @Test
+    void failThrottledDownloadWhenInterrupted() throws Exception {
+        final String targetPath = server.createFile("source.bin", FILE_SIZE);
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().bandwidthLimit(RATE).poolWarmUp(true).build())) {
+            final boolean downloaded = interruptAfter(500, () -> client.download(targetPath, localDir.resolve("source.bin")));
+
+            assertThat(downloaded).isFalse();
+        }
+    }
+
+    @Test
+    void failThrottledReadWhenInterruptedInsteadOfEndingEarly() throws Exception {
+        final String targetPath = server.createFile("source.bin", FILE_SIZE);
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().bandwidthLimit(RATE).poolWarmUp(true).build())) {
+            final boolean read = interruptAfter(500, () -> {
+                try (InputStream inputStream = client.openRead(targetPath)) {
+                    final byte[] buffer = new byte[8192];
+                    while (inputStream.read(buffer) != -1) {
+                        // drain
+                    }
+                    return true;
+                } catch (InterruptedIOException e) {
+                    return false;
+                }
+            });
+
+            assertThat(read).isFalse();
+        }
+    }
+
+    @Test
+    void stopSendingAtTheRateWhenThrottledUploadIsInterrupted() throws Exception {
+        final Path uploadFile = server.getHome().resolve(server.createFile("source.bin", FILE_SIZE)).toAbsolutePath();
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().bandwidthLimit(RATE).poolWarmUp(true).build())) {
+            final long start = System.nanoTime();
+            final boolean uploaded = interruptAfter(500, () -> client.upload("target.bin", uploadFile.toFile()));
+            TimeUnit.MILLISECONDS.sleep(300);
+            final double seconds = (System.nanoTime() - start) / 1e9;
+
+            assertThat(uploaded).isFalse();
+            assertThat(server.getWrittenBytes()).isLessThanOrEqualTo((long) (RATE * seconds) + RATE / 10 + 64 * 1024);
+        }
+    }
+
+    /**
+     * Run the transfer on its own thread and interrupt it while the limiter holds it back, long before the whole file could have been sent at RATE. Clients warm up their pool first, because JSch swallows an interrupt that arrives
+     * while the session is still connecting.
+     */
+    private static boolean interruptAfter(final long millis, final Callable<Boolean> transfer) throws Exception {
+        final FutureTask<Boolean> task = new FutureTask<>(transfer);
+        final Thread thread = new Thread(task);
+        thread.start();
+        Thread.sleep(millis);
+        thread.interrupt();
+        return task.get(30, TimeUnit.SECONDS);
+    }
+
+}
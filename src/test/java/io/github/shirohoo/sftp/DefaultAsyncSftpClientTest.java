@@ -0,0 +1,168 @@
+package io.github.shirohoo.sftp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class DefaultAsyncSftpClientTest {
+
+    @Test
+    void runNestedOperationWithOneRunningSlot() throws Exception {
+        try (DefaultAsyncSftpClient async = new DefaultAsyncSftpClient(removeClient(() -> true, new AtomicBoolean()), null, 8, 1)) {
+            final CompletableFuture<Boolean> nested = async.remove("a.txt").thenApply(removed -> async.remove("b.txt").join());
+
+            assertThat(nested.get(5, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    void runAtMostMaxRunningOperationsAtOnce() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final SftpClient client = removeClient(() -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            TimeUnit.MILLISECONDS.sleep(50);
+            running.decrementAndGet();
+            return true;
+        }, new AtomicBoolean());
+        try (DefaultAsyncSftpClient async = new DefaultAsyncSftpClient(client, null, 16, 2)) {
+            final CompletableFuture<?>[] futures = new CompletableFuture<?>[8];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = async.remove("file-" + i);
+            }
+            CompletableFuture.allOf(futures).get(5, TimeUnit.SECONDS);
+
+            assertThat(maxRunning.get()).isEqualTo(2);
+            assertThat(async.getInFlightCount()).isZero();
+        }
+    }
+
+    @Test
+    void rejectOperationsBeyondMaxInFlight() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        try (DefaultAsyncSftpClient async = new DefaultAsyncSftpClient(removeClient(() -> release.await(5, TimeUnit.SECONDS), new AtomicBoolean()), null, 2, 1)) {
+            final CompletableFuture<Boolean> first = async.remove("a.txt");
+            final CompletableFuture<Boolean> second = async.remove("b.txt");
+            final CompletableFuture<Boolean> rejected = async.remove("c.txt");
+
+            assertThat(rejected).isCompletedExceptionally();
+            release.countDown();
+            assertThat(first.get(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(second.get(5, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    void waitForRunningOperationsBeforeClosingClient() throws Exception {
+        final AtomicBoolean closed = new AtomicBoolean();
+        final CountDownLatch started = new CountDownLatch(1);
+        final DefaultAsyncSftpClient async = new DefaultAsyncSftpClient(removeClient(() -> {
+            started.countDown();
+            TimeUnit.MILLISECONDS.sleep(300);
+            return !closed.get();
+        }, closed), null, 8, 1);
+        final CompletableFuture<Boolean> running = async.remove("a.txt");
+        final CompletableFuture<Boolean> waiting = async.remove("b.txt");
+        started.await(5, TimeUnit.SECONDS);
+
+        async.close();
+
+        assertThat(running.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(waiting).isCompletedExceptionally();
+        assertThat(async.remove("c.txt")).isCompletedExceptionally();
+        final ExecutionException rejection = catchThrowableOfType(waiting::get, ExecutionException.class);
+        assertThat(rejection).hasCauseInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    void rejectOperationsSubmittedWhileClosing() throws Exception {
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            for (int i = 0; i < 200; i++) {
+                final AtomicBoolean closed = new AtomicBoolean();
+                final AtomicBoolean ranAfterClose = new AtomicBoolean();
+                final DefaultAsyncSftpClient async = new DefaultAsyncSftpClient(removeClient(() -> {
+                    ranAfterClose.compareAndSet(false, closed.get());
+                    return true;
+                }, closed), executor, 1024, 1);
+                final List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+                final Thread submitter = new Thread(() -> {
+                    CompletableFuture<Boolean> future;
+                    do {
+                        future = async.remove("a.txt");
+                        futures.add(future);
+                    } while (!future.isCompletedExceptionally());
+                });
+                submitter.start();
+                async.close();
+                submitter.join(5_000);
+
+                CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).handle((result, e) -> null).get(5, TimeUnit.SECONDS);
+                assertThat(ranAfterClose.get()).isFalse();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void runOperationsThatReturnResultsOnTheClient() throws Exception {
+        try (EmbeddedSftpServer server = EmbeddedSftpServer.start(true);
+             DefaultAsyncSftpClient async = new DefaultAsyncSftpClient(server.properties().build())) {
+            final Path uploadFile = Files.write(Files.createTempFile("async-", ".txt"), "async".getBytes(StandardCharsets.UTF_8));
+            try {
+                assertThat(async.uploadWithResult("async/one.txt", uploadFile.toFile()).get(30, TimeUnit.SECONDS).getBytes()).isEqualTo(5);
+                assertThat(async.uploadWithResult("async/nested/two.txt", uploadFile.toFile()).get(30, TimeUnit.SECONDS).isSucceeded()).isTrue();
+                assertThat(async.listEntries("async", ListOptions.defaults()).get(30, TimeUnit.SECONDS))
+                    .extracting(RemoteEntry::getPath)
+                    .containsExactlyInAnyOrder("async/one.txt", "async/nested");
+
+                final Path downloadPath = uploadFile.resolveSibling(uploadFile.getFileName() + ".download");
+                assertThat(async.downloadWithResult("async/one.txt", downloadPath).get(30, TimeUnit.SECONDS).isSucceeded()).isTrue();
+                assertThat(downloadPath).hasContent("async");
+                Files.delete(downloadPath);
+
+                assertThat(async.removeAll(Collections.singletonList("async/one.txt")).get(30, TimeUnit.SECONDS).isAllSucceeded()).isTrue();
+                assertThat(async.removeDirectory("async").get(30, TimeUnit.SECONDS).isAllSucceeded()).isTrue();
+                assertThat(server.getHome().resolve("async")).doesNotExist();
+            } finally {
+                Files.delete(uploadFile);
+            }
+        }
+    }
+
+    /**
+     * SftpClient whose remove runs the given call and whose close sets closed.
+     */
+    private static SftpClient removeClient(final Callable<Boolean> remove, final AtomicBoolean closed) {
+        return (SftpClient) Proxy.newProxyInstance(SftpClient.class.getClassLoader(), new Class<?>[]{SftpClient.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "remove":
+                    return remove.call();
+                case "close":
+                    closed.set(true);
+                    return null;
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+}
@@ -0,0 +1,597 @@
+package io.github.shirohoo.sftp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.tuple;
+import com.jcraft.jsch.JSchException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DefaultSftpClientTest {
+
+    private static final long SEGMENT_SIZE = 1024 * 1024;
+
+    private EmbeddedSftpServer server;
+
+    @TempDir
+    Path localDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = EmbeddedSftpServer.start(true);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void reuseOneChannelAcrossDirectoriesUnderRelativeRoot() throws Exception {
+        Files.createDirectories(server.getHome().resolve("data"));
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().root("data").poolMaxTotal(1).build())) {
+            assertThat(client.upload("a/one.txt", new ByteArrayInputStream("one".getBytes(StandardCharsets.UTF_8)))).isTrue();
+            assertThat(client.upload("b/c/two.txt", new ByteArrayInputStream("two".getBytes(StandardCharsets.UTF_8)))).isTrue();
+            assertThat(client.upload("a/three.txt", new ByteArrayInputStream("three".getBytes(StandardCharsets.UTF_8)))).isTrue();
+
+            assertThat(client.listFiles("a").stream().map(File::getName).collect(Collectors.toList())).containsExactlyInAnyOrder("one.txt", "three.txt");
+            try (RemoteContent content = client.readContent("b/c/two.txt")) {
+                assertThat(new String(content.toByteArray(), StandardCharsets.UTF_8)).isEqualTo("two");
+            }
+        }
+        assertThat(server.getHome().resolve("data/a/one.txt")).hasContent("one");
+        assertThat(server.getHome().resolve("data/b/c/two.txt")).hasContent("two");
+        assertThat(server.getHome().resolve("data/a/three.txt")).hasContent("three");
+    }
+
+    @Test
+    void resolveMissingRootAgainstLoginDirectory() throws Exception {
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().root(null).build())) {
+            assertThat(client.upload("nested/one.txt", new ByteArrayInputStream("one".getBytes(StandardCharsets.UTF_8)))).isTrue();
+            try (RemoteContent content = client.readContent("nested/one.txt")) {
+                assertThat(new String(content.toByteArray(), StandardCharsets.UTF_8)).isEqualTo("one");
+            }
+        }
+        assertThat(server.getHome().resolve("nested/one.txt")).hasContent("one");
+    }
+
+    @Test
+    void createDirectoryAgainAfterCachedDirectoryWasRemoved() throws Exception {
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().build())) {
+            assertThat(client.upload("a/b/one.txt", new ByteArrayInputStream("one".getBytes(StandardCharsets.UTF_8)))).isTrue();
+            Files.delete(server.getHome().resolve("a/b/one.txt"));
+            Files.delete(server.getHome().resolve("a/b"));
+
+            assertThat(client.upload("a/b/two.txt", new ByteArrayInputStream("two".getBytes(StandardCharsets.UTF_8)))).isTrue();
+            assertThat(server.getHome().resolve("a/b/two.txt")).hasContent("two");
+
+            Files.delete(server.getHome().resolve("a/b/two.txt"));
+            Files.delete(server.getHome().resolve("a/b"));
+            try (OutputStream outputStream = client.openWrite("a/b/three.txt")) {
+                outputStream.write("three".getBytes(StandardCharsets.UTF_8));
+            }
+            assertThat(server.getHome().resolve("a/b/three.txt")).hasContent("three");
+        }
+    }
+
+    @Test
+    void removeDirectoryWithEverythingBelowIt() throws Exception {
+        final Path tree = Files.createDirectories(server.getHome().resolve("tree/sub/deeper"));
+        Files.createDirectories(server.getHome().resolve("tree/empty"));
+        Files.write(server.getHome().resolve("tree/a.txt"), "a".getBytes(StandardCharsets.UTF_8));
+        Files.write(server.getHome().resolve("tree/sub/b.txt"), "b".getBytes(StandardCharsets.UTF_8));
+        Files.write(tree.resolve("c.txt"), "c".getBytes(StandardCharsets.UTF_8));
+        final Path outside = Files.write(Files.createDirectories(server.getHome().resolve("outside")).resolve("kept.txt"), "kept".getBytes(StandardCharsets.UTF_8));
+        Files.createSymbolicLink(server.getHome().resolve("tree/sub/link"), outside.getParent());
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().parallelism(2).build())) {
+            final BatchResult<RemoteEntry.Type> result = client.removeDirectory("tree/");
+
+            assertThat(result.isAllSucceeded()).isTrue();
+            assertThat(result.getSucceeded()).containsOnly(
+                    entry("tree/a.txt", RemoteEntry.Type.FILE),
+                    entry("tree/sub/b.txt", RemoteEntry.Type.FILE),
+                    entry("tree/sub/deeper/c.txt", RemoteEntry.Type.FILE),
+                    entry("tree/sub/link", RemoteEntry.Type.SYMLINK),
+                    entry("tree/sub/deeper", RemoteEntry.Type.DIRECTORY),
+                    entry("tree/sub", RemoteEntry.Type.DIRECTORY),
+                    entry("tree/empty", RemoteEntry.Type.DIRECTORY),
+                    entry("tree", RemoteEntry.Type.DIRECTORY));
+
+            assertThat(client.upload("tree/again.txt", new ByteArrayInputStream("again".getBytes(StandardCharsets.UTF_8)))).isTrue();
+        }
+        assertThat(listNames(server.getHome().resolve("tree"))).containsExactly("again.txt");
+        assertThat(outside).hasContent("kept");
+    }
+
+    @Test
+    void failRemovingMissingDirectory() throws Exception {
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().build())) {
+            assertThatThrownBy(() -> client.removeDirectory("missing")).isInstanceOf(NoSuchFileException.class);
+        }
+    }
+
+    @Test
+    void writeThroughEveryBufferAndRenameOnClose() throws Exception {
+        final byte[] expected = new byte[64 * 1024 + 100];
+        new Random(1).nextBytes(expected);
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().transferBufferSize(4096).writeBehindBuffers(2).build())) {
+            try (OutputStream outputStream = client.openWrite("written/data.bin")) {
+                for (int offset = 0; offset < expected.length; offset += 1000) {
+                    outputStream.write(expected, offset, Math.min(1000, expected.length - offset));
+                }
+                outputStream.flush();
+
+                assertThat(server.getHome().resolve("written/data.bin")).doesNotExist();
+            }
+        }
+        assertThat(Files.readAllBytes(server.getHome().resolve("written/data.bin"))).isEqualTo(expected);
+        assertThat(listNames(server.getHome().resolve("written"))).containsExactly("data.bin");
+    }
+
+    @Test
+    void removeTempFileAndKeepTargetWhenWriteFailsMidStream() throws Exception {
+        final Path remoteFile = Files.write(Files.createDirectories(server.getHome().resolve("written")).resolve("data.bin"), "previous".getBytes(StandardCharsets.UTF_8));
+        final byte[] content = new byte[256 * 1024];
+        server.failWritesBeyond(64 * 1024);
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().transferBufferSize(4096).build())) {
+            assertThatThrownBy(() -> {
+                try (OutputStream outputStream = client.openWrite("written/data.bin")) {
+                    outputStream.write(content);
+                }
+            }).isInstanceOf(IOException.class);
+        }
+        assertThat(remoteFile).hasContent("previous");
+        assertThat(listNames(server.getHome().resolve("written"))).containsExactly("data.bin");
+    }
+
+    @Test
+    void replaceExistingFileOnServerWithoutPosixRename() throws Exception {
+        server.close();
+        server = EmbeddedSftpServer.start(true, false);
+        final Path remoteFile = Files.write(Files.createDirectories(server.getHome().resolve("written")).resolve("data.txt"), "previous".getBytes(StandardCharsets.UTF_8));
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().build())) {
+            try (OutputStream outputStream = client.openWrite("written/data.txt")) {
+                outputStream.write("replaced".getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        assertThat(remoteFile).hasContent("replaced");
+        assertThat(listNames(server.getHome().resolve("written"))).containsExactly("data.txt");
+    }
+
+    @Test
+    void readLiveFileAndReleaseChannelOnClose() throws Exception {
+        Files.write(Files.createDirectories(server.getHome().resolve("read")).resolve("one.txt"), "first line\nsecond line\n".getBytes(StandardCharsets.UTF_8));
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().poolMaxTotal(1).build())) {
+            try (InputStream in = client.openRead("read/one.txt")) {
+                assertThat(new String(readFully(in), StandardCharsets.UTF_8)).isEqualTo("first line\nsecond line\n");
+            }
+            try (InputStream in = client.openRead("read/one.txt")) {
+                assertThat(in.read()).isEqualTo((int) 'f');
+            }
+
+            assertThatThrownBy(() -> client.openRead("read/missing.txt")).isInstanceOf(NoSuchFileException.class);
+            try (RemoteContent content = client.readContent("read/one.txt")) {
+                assertThat(new String(content.toByteArray(), StandardCharsets.UTF_8)).startsWith("first line");
+            }
+        }
+    }
+
+    @Test
+    void readChannelFromAnyOffset() throws Exception {
+        final byte[] data = new byte[200 * 1024];
+        new Random(7).nextBytes(data);
+        Files.write(Files.createDirectories(server.getHome().resolve("read")).resolve("random.bin"), data);
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().poolMaxTotal(1).build())) {
+            try (SeekableByteChannel channel = client.openReadChannel("read/random.bin")) {
+                assertThat(channel.size()).isEqualTo(data.length);
+
+                final ByteBuffer buffer = ByteBuffer.allocate(1000);
+                channel.position(150_000);
+                readFully(channel, buffer);
+                assertThat(buffer.array()).isEqualTo(Arrays.copyOfRange(data, 150_000, 151_000));
+                assertThat(channel.position()).isEqualTo(151_000);
+
+                buffer.clear();
+                channel.position(10);
+                readFully(channel, buffer);
+                assertThat(buffer.array()).isEqualTo(Arrays.copyOfRange(data, 10, 1010));
+
+                channel.position(data.length);
+                assertThat(channel.read(ByteBuffer.allocate(1))).isEqualTo(-1);
+                assertThatThrownBy(() -> channel.write(ByteBuffer.allocate(1))).isInstanceOf(NonWritableChannelException.class);
+            }
+
+            assertThatThrownBy(() -> client.openReadChannel("read/missing.bin")).isInstanceOf(NoSuchFileException.class);
+            try (RemoteContent content = client.readContent("read/random.bin")) {
+                assertThat(content.toByteArray()).isEqualTo(data);
+            }
+        }
+    }
+
+    @Test
+    void streamMoreFilesThanListingBufferWithOneChannel() throws Exception {
+        final int count = 1100;
+        for (int i = 0; i < count; i++) {
+            Files.write(Files.createDirectories(server.getHome().resolve("many")).resolve(String.format("stream-%04d.txt", i)), "x".getBytes(StandardCharsets.UTF_8));
+        }
+        final AtomicInteger streamed = new AtomicInteger();
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().poolMaxTotal(1).poolMaxWait(2_000L).build());
+             Stream<File> files = client.streamFiles("many")) {
+            files.forEach(file -> {
+                streamed.incrementAndGet();
+                assertThat(file.delete()).isTrue();
+            });
+        }
+
+        assertThat(streamed).hasValue(count);
+    }
+
+    @Test
+    void streamConcurrentlyWhileListingsHoldEveryChannel() throws Exception {
+        final int count = 1100;
+        for (String dir : Arrays.asList("left", "right")) {
+            for (int i = 0; i < count; i++) {
+                Files.write(Files.createDirectories(server.getHome().resolve(dir)).resolve(String.format("%s-%04d.txt", dir, i)), "x".getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().poolMaxTotal(2).poolMaxWait(2_000L).build());
+             Stream<File> left = client.streamFiles("left");
+             Stream<File> right = client.streamFiles("right")) {
+            final CompletableFuture<Long> leftCount = CompletableFuture.supplyAsync(() -> left.filter(File::delete).count());
+            final CompletableFuture<Long> rightCount = CompletableFuture.supplyAsync(() -> right.filter(File::delete).count());
+
+            assertThat(leftCount.get(60, TimeUnit.SECONDS)).isEqualTo(count);
+            assertThat(rightCount.get(60, TimeUnit.SECONDS)).isEqualTo(count);
+        }
+    }
+
+    @Test
+    void listEntriesFilteredByGlobTypeAndDepth() throws Exception {
+        server.createFile("listing/a.csv", 100);
+        server.createFile("listing/b.txt", 200);
+        server.createFile("listing/sub/c.csv", 300);
+        server.createFile("listing/sub/deeper/d.csv", 400);
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().build())) {
+            assertThat(client.listEntries("listing", ListOptions.defaults()))
+                .extracting(RemoteEntry::getPath, RemoteEntry::getType)
+                .containsExactlyInAnyOrder(tuple("listing/a.csv", RemoteEntry.Type.FILE), tuple("listing/b.txt", RemoteEntry.Type.FILE), tuple("listing/sub", RemoteEntry.Type.DIRECTORY));
+
+            final ListOptions csvFiles = ListOptions.builder().glob("*.csv").types(RemoteEntry.Type.FILE).recursive(true).maxDepth(2).build();
+            assertThat(client.listEntries("listing", csvFiles))
+                .extracting(RemoteEntry::getPath, RemoteEntry::getSize)
+                .containsExactlyInAnyOrder(tuple("listing/a.csv", 100L), tuple("listing/sub/c.csv", 300L));
+        }
+    }
+
+    @Test
+    void listEntriesInPagesUntilHandlerStops() throws Exception {
+        for (int i = 0; i < 25; i++) {
+            server.createFile("paged/file-" + i + ".bin", 10);
+        }
+        final ListOptions options = ListOptions.builder().pageSize(10).build();
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().build())) {
+            final List<Integer> pageSizes = new ArrayList<>();
+            client.listEntries("paged", options, page -> pageSizes.add(page.size()));
+            assertThat(pageSizes).containsExactly(10, 10, 5);
+
+            pageSizes.clear();
+            client.listEntries("paged", options, page -> !pageSizes.add(page.size()));
+            assertThat(pageSizes).containsExactly(10);
+
+            assertThatThrownBy(() -> client.listEntries("missing", options)).isInstanceOf(NoSuchFileException.class);
+        }
+    }
+
+    @Test
+    void failDownloadOfFileCutShortWhileTransferred() throws Exception {
+        final String targetPath = server.createFile("shrinking.bin", 1024 * 1024);
+        final Path remoteFile = server.getHome().resolve(targetPath);
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().bandwidthLimit(256 * 1024L).build())) {
+            final CompletableFuture<TransferResult> download = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return client.downloadWithResult(targetPath, localDir.resolve("shrinking.bin"));
+                } catch (JSchException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            TimeUnit.MILLISECONDS.sleep(300);
+            try (RandomAccessFile file = new RandomAccessFile(remoteFile.toFile(), "rw")) {
+                file.setLength(512 * 1024);
+            }
+
+            assertThat(download.get(30, TimeUnit.SECONDS).isSucceeded()).isFalse();
+        } finally {
+            BandwidthLimiter.forHost("127.0.0.1").setBytesPerSecond(0);
+        }
+    }
+
+    @Test
+    void uploadAgainOverUnverifiedFileOfSameSize() throws Exception {
+        final Path uploadFile = Files.write(localDir.resolve("same.txt"), "local".getBytes(StandardCharsets.UTF_8));
+        final Path remoteFile = Files.write(server.getHome().resolve("same.txt"), "other".getBytes(StandardCharsets.UTF_8));
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().resumeTransfers(true).build())) {
+            final TransferResult result = client.uploadWithResult("same.txt", uploadFile.toFile());
+
+            assertThat(result.isSucceeded()).isTrue();
+            assertThat(result.getBytes()).isEqualTo(5);
+        }
+        assertThat(remoteFile).hasContent("local");
+    }
+
+    @Test
+    void keepFileOfSameSizeWhenCallerOptsIn() throws Exception {
+        final Path uploadFile = Files.write(localDir.resolve("same.txt"), "local".getBytes(StandardCharsets.UTF_8));
+        final Path remoteFile = Files.write(server.getHome().resolve("same.txt"), "other".getBytes(StandardCharsets.UTF_8));
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().resumeTransfers(true).resumeCompleteOnSameSize(true).build())) {
+            final TransferResult result = client.uploadWithResult("same.txt", uploadFile.toFile());
+
+            assertThat(result.isSucceeded()).isTrue();
+            assertThat(result.getBytes()).isZero();
+        }
+        assertThat(remoteFile).hasContent("other");
+    }
+
+    @Test
+    void computeKnownDigestWhileUploadingAndDownloading() throws Exception {
+        final String sha256 = "15e2b0d3c33891ebb0f1ef609ec419420c20e320ce94c65fbc8c3312448eb225";
+        final Path uploadFile = Files.write(localDir.resolve("digits.txt"), "123456789".getBytes(StandardCharsets.US_ASCII));
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().checksumAlgorithm(ChecksumAlgorithm.SHA_256).checksumSidecarSuffix(".sha256").build())) {
+            final TransferResult uploaded = client.uploadWithResult("checked/digits.txt", uploadFile.toFile());
+
+            assertThat(uploaded.getChecksum()).isEqualTo(sha256);
+            assertThat(server.getHome().resolve("checked/digits.txt.sha256")).hasContent(sha256 + "  digits.txt\n");
+
+            final TransferResult downloaded = client.downloadWithResult("checked/digits.txt", localDir.resolve("downloaded.txt"));
+
+            assertThat(downloaded.getChecksum()).isEqualTo(sha256);
+            assertThat(downloaded.isVerified()).isTrue();
+        }
+    }
+
+    @Test
+    void failDownloadWhoseSidecarDoesNotMatch() throws Exception {
+        Files.write(Files.createDirectories(server.getHome().resolve("checked")).resolve("digits.txt"), "123456789".getBytes(StandardCharsets.US_ASCII));
+        Files.write(server.getHome().resolve("checked/digits.txt.crc32"), "00000000  digits.txt\n".getBytes(StandardCharsets.US_ASCII));
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().checksumAlgorithm(ChecksumAlgorithm.CRC32).checksumSidecarSuffix(".crc32").build())) {
+            final TransferResult result = client.downloadWithResult("checked/digits.txt", localDir.resolve("digits.txt"));
+
+            assertThat(result.isSucceeded()).isFalse();
+            assertThat(result.getFailure()).hasMessageContaining("Checksum mismatch");
+        }
+        assertThat(localDir.resolve("digits.txt")).hasContent("");
+    }
+
+    @Test
+    void downloadWithoutSidecarUnverified() throws Exception {
+        Files.write(Files.createDirectories(server.getHome().resolve("checked")).resolve("digits.txt"), "123456789".getBytes(StandardCharsets.US_ASCII));
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().checksumAlgorithm(ChecksumAlgorithm.CRC32).checksumSidecarSuffix(".crc32").build())) {
+            final TransferResult result = client.downloadWithResult("checked/digits.txt", localDir.resolve("digits.txt"));
+
+            assertThat(result.isSucceeded()).isTrue();
+            assertThat(result.getChecksum()).isEqualTo("cbf43926");
+            assertThat(result.getExpectedChecksum()).isNull();
+            assertThat(result.isVerified()).isFalse();
+        }
+        assertThat(localDir.resolve("digits.txt")).hasContent("123456789");
+    }
+
+    @Test
+    void syncDownloadTransfersOnlyChangedFiles() throws Exception {
+        final String unchanged = server.createFile("mirror/unchanged.bin", 1000);
+        final String changed = server.createFile("mirror/changed.bin", 1000);
+        server.createFile("mirror/nested/deep.bin", 1000);
+        final Path copy = Files.createDirectories(localDir.resolve("copy"));
+        final SyncOptions download = SyncOptions.builder().recursive(true).deleteExtraneous(true).build();
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().build())) {
+            assertThat(client.sync("mirror", copy, download).getSucceeded()).containsOnly(
+                entry("unchanged.bin", SyncAction.TRANSFERRED), entry("changed.bin", SyncAction.TRANSFERRED), entry("nested/deep.bin", SyncAction.TRANSFERRED));
+
+            server.createFile(changed, 2000);
+            Files.write(copy.resolve("extraneous.txt"), "local only".getBytes(StandardCharsets.UTF_8));
+            final BatchResult<SyncAction> result = client.sync("mirror", copy, download);
+
+            assertThat(result.isAllSucceeded()).isTrue();
+            assertThat(result.getSucceeded()).containsOnly(
+                entry("unchanged.bin", SyncAction.SKIPPED), entry("changed.bin", SyncAction.TRANSFERRED), entry("nested/deep.bin", SyncAction.SKIPPED), entry("extraneous.txt", SyncAction.DELETED));
+            assertThat(Files.readAllBytes(copy.resolve("changed.bin"))).isEqualTo(Files.readAllBytes(server.getHome().resolve(changed)));
+            assertThat(Files.readAllBytes(copy.resolve("unchanged.bin"))).isEqualTo(Files.readAllBytes(server.getHome().resolve(unchanged)));
+            assertThat(copy.resolve("extraneous.txt")).doesNotExist();
+        }
+    }
+
+    @Test
+    void syncUploadLeavesSubdirectoriesAloneUnlessRecursive() throws Exception {
+        final Path source = Files.createDirectories(localDir.resolve("source/nested"));
+        Files.write(source.resolveSibling("top.txt"), "top".getBytes(StandardCharsets.UTF_8));
+        Files.write(source.resolve("deep.txt"), "deep".getBytes(StandardCharsets.UTF_8));
+        Files.createDirectories(server.getHome().resolve("mirror"));
+        Files.write(server.getHome().resolve("mirror/remote-only.txt"), "remote".getBytes(StandardCharsets.UTF_8));
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().build())) {
+            final BatchResult<SyncAction> result = client.sync("mirror", source.getParent(), SyncOptions.builder().direction(SyncDirection.UPLOAD).build());
+
+            assertThat(result.getSucceeded()).containsOnly(entry("top.txt", SyncAction.TRANSFERRED));
+            assertThat(server.getHome().resolve("mirror/top.txt")).hasContent("top");
+            assertThat(server.getHome().resolve("mirror/nested")).doesNotExist();
+            assertThat(server.getHome().resolve("mirror/remote-only.txt")).exists();
+        }
+    }
+
+    @Test
+    void syncGzipPayloadByModificationTime() throws Exception {
+        final Path source = Files.createDirectories(localDir.resolve("source"));
+        final Path report = Files.write(source.resolve("report.csv"), String.join("", Collections.nCopies(100, "id,amount\n")).getBytes(StandardCharsets.UTF_8));
+        final SyncOptions upload = SyncOptions.builder().direction(SyncDirection.UPLOAD).build();
+        Files.createDirectories(server.getHome().resolve("mirror"));
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().payloadCompression(PayloadCompression.GZIP).build())) {
+            assertThat(client.sync("mirror", source, upload).getSucceeded()).containsEntry("report.csv", SyncAction.TRANSFERRED);
+            assertThat(client.sync("mirror", source, upload).getSucceeded()).containsEntry("report.csv", SyncAction.SKIPPED);
+            assertThat(Files.size(server.getHome().resolve("mirror/report.csv"))).isLessThan(Files.size(report));
+
+            Files.write(report, "id,amount\n1,100\n".getBytes(StandardCharsets.UTF_8));
+            Files.setLastModifiedTime(report, FileTime.fromMillis(Files.getLastModifiedTime(report).toMillis() + 10_000));
+            assertThat(client.sync("mirror", source, upload).getSucceeded()).containsEntry("report.csv", SyncAction.TRANSFERRED);
+
+            final Path copy = Files.createDirectories(localDir.resolve("copy"));
+            assertThat(client.sync("mirror", copy, SyncOptions.builder().build()).getSucceeded()).containsEntry("report.csv", SyncAction.TRANSFERRED);
+            assertThat(copy.resolve("report.csv")).hasContent("id,amount\n1,100\n");
+        }
+    }
+
+    @Test
+    void resumeFailedSegmentedDownloadWithoutHoles() throws Exception {
+        final String targetPath = server.createFile("large/source.bin", 4 * SEGMENT_SIZE + 1000);
+        final Path remoteFile = server.getHome().resolve(targetPath);
+        final byte[] expected = Files.readAllBytes(remoteFile);
+        final Path downloadPath = localDir.resolve("source.bin");
+        final AtomicBoolean truncated = new AtomicBoolean();
+        final SftpMetricsListener truncateAfterFirstSegment = new SftpMetricsListener() {
+            @Override
+            public void onBytesTransferred(final String host, final SftpOperation operation, final long bytes) {
+                if (operation == SftpOperation.DOWNLOAD && truncated.compareAndSet(false, true)) {
+                    try (RandomAccessFile file = new RandomAccessFile(remoteFile.toFile(), "rw")) {
+                        file.setLength(SEGMENT_SIZE + SEGMENT_SIZE / 2);
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+        };
+        final SftpProperties properties = server.properties()
+            .segmentSize(SEGMENT_SIZE)
+            .segmentParallelism(2)
+            .poolMaxTotal(2)
+            .resumeTransfers(true)
+            .resumeVerifyLength(1024)
+            .build();
+
+        try (DefaultSftpClient client = new DefaultSftpClient(properties, truncateAfterFirstSegment)) {
+            final TransferResult failed = client.downloadWithResult(targetPath, downloadPath);
+
+            assertThat(failed.isSucceeded()).isFalse();
+            assertThat(failed.getFailure()).isNotNull();
+            final byte[] partial = Files.readAllBytes(downloadPath);
+            assertThat(partial.length % SEGMENT_SIZE).isZero();
+            assertThat(partial.length).isLessThan(expected.length);
+            assertThat(partial).isEqualTo(Arrays.copyOf(expected, partial.length));
+
+            Files.write(remoteFile, expected);
+            final TransferResult resumed = client.downloadWithResult(targetPath, downloadPath);
+
+            assertThat(resumed.isSucceeded()).isTrue();
+            assertThat(resumed.getBytes()).isEqualTo(expected.length - partial.length);
+            assertThat(Files.readAllBytes(downloadPath)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void failDownloadWhenLocalFolderCannotBeCreated() throws Exception {
+        Files.write(server.getHome().resolve("one.txt"), "one".getBytes(StandardCharsets.UTF_8));
+        final Path blocker = Files.write(localDir.resolve("blocker"), new byte[0]);
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().build())) {
+            final TransferResult result = client.downloadWithResult("one.txt", blocker.resolve("sub").resolve("one.txt"));
+
+            assertThat(result.isSucceeded()).isFalse();
+            assertThat(result.getFailure()).isInstanceOf(FileSystemException.class);
+        }
+    }
+
+    @Test
+    void disconnectChannelLeftOutOfSyncByFailedUpload() throws Exception {
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().poolMaxTotal(1).poolTestOnBorrow(false).build())) {
+            assertThatThrownBy(() -> client.readContent("missing.txt")).isInstanceOf(NoSuchFileException.class);
+            assertThat(client.upload("kept/one.txt", new ByteArrayInputStream("one".getBytes(StandardCharsets.UTF_8)))).isTrue();
+            assertThat(server.getSessionCount()).isEqualTo(1);
+
+            assertThat(client.upload("kept/broken.bin", failingAfter(256 * 1024))).isFalse();
+            assertThat(client.upload("kept/two.txt", new ByteArrayInputStream("two".getBytes(StandardCharsets.UTF_8)))).isTrue();
+            assertThat(server.getSessionCount()).isEqualTo(2);
+        }
+        assertThat(server.getHome().resolve("kept/two.txt")).hasContent("two");
+    }
+
+    @Test
+    void continueGroupOnFreshChannelAfterFailedUpload() throws Exception {
+        final List<UploadItem> items = Arrays.asList(
+            UploadItem.of("group/one.txt", new ByteArrayInputStream("one".getBytes(StandardCharsets.UTF_8))),
+            UploadItem.of("group/broken.bin", failingAfter(256 * 1024)),
+            UploadItem.of("group/three.txt", new ByteArrayInputStream("three".getBytes(StandardCharsets.UTF_8)))
+        );
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().poolMaxTotal(1).poolTestOnBorrow(false).build())) {
+            final BatchResult<Long> result = client.uploadAll(items);
+
+            assertThat(result.getSucceeded()).containsOnlyKeys("group/one.txt", "group/three.txt");
+            assertThat(result.getFailed()).containsOnlyKeys("group/broken.bin");
+            assertThat(server.getSessionCount()).isEqualTo(2);
+        }
+        assertThat(server.getHome().resolve("group/three.txt")).hasContent("three");
+    }
+
+    private static InputStream failingAfter(final int bytes) {
+        return new InputStream() {
+
+            private int read;
+
+            @Override
+            public int read() throws IOException {
+                if (read++ >= bytes) {
+                    throw new IOException("Local file failure");
+                }
+                return 'x';
+            }
+
+        };
+    }
+
+    private static List<String> listNames(final Path dir) throws IOException {
+        try (Stream<Path> paths = Files.list(dir)) {
+            return paths.map(path -> path.getFileName().toString()).collect(Collectors.toList());
+        }
+    }
+
+    private static byte[] readFully(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static void readFully(final SeekableByteChannel channel, final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            assertThat(channel.read(buffer)).isNotEqualTo(-1);
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package io.github.shirohoo.sftp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class InMemorySftpMetricsTest {
+
+    private static final String HOST = "127.0.0.1";
+
+    @Test
+    void addUpConcurrentTransfersInThroughput() {
+        final InMemorySftpMetrics metrics = new InMemorySftpMetrics();
+        for (int i = 0; i < 4; i++) {
+            metrics.onBytesTransferred(HOST, SftpOperation.DOWNLOAD, 1_000_000);
+            metrics.onPhase(HOST, SftpPhase.TRANSFER, TimeUnit.SECONDS.toNanos(1));
+        }
+
+        final InMemorySftpMetrics.HostMetrics host = metrics.getHostMetrics(HOST);
+        assertThat(host.getThroughput()).isCloseTo(4_000_000d, within(40_000d));
+        assertThat(host.getStreamThroughput()).isEqualTo(1_000_000d);
+    }
+
+    @Test
+    void reportNoThroughputBeforeAnyTransfer() {
+        final InMemorySftpMetrics metrics = new InMemorySftpMetrics();
+        metrics.onPhase(HOST, SftpPhase.CONNECT, TimeUnit.MILLISECONDS.toNanos(5));
+
+        assertThat(metrics.getHostMetrics(HOST).getThroughput()).isZero();
+        assertThat(metrics.getHostMetrics(HOST).getStreamThroughput()).isZero();
+    }
+
+}
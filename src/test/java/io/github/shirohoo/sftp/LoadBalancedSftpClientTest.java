@@ -0,0 +1,196 @@
+package io.github.shirohoo.sftp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.SftpException;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+class LoadBalancedSftpClientTest {
+
+    @Test
+    void ejectEndpointThatReturnsUnsuccessfulResult() throws Exception {
+        final FakeEndpoint first = new FakeEndpoint().answer("downloadWithResult", () -> TransferResult.failed("a.txt", new JSchException("Connection refused")));
+        final FakeEndpoint second = new FakeEndpoint().answer("downloadWithResult", () -> TransferResult.of("a.txt", 1, ChecksumAlgorithm.NONE, null, null));
+        try (LoadBalancedSftpClient client = new LoadBalancedSftpClient(Arrays.asList(first.client(), second.client()), 1, 60_000)) {
+            assertThat(client.download("a.txt", Paths.get("a.txt"))).isTrue();
+            assertThat(client.getHealthyEndpointCount()).isEqualTo(1);
+
+            assertThat(client.download("b.txt", Paths.get("b.txt"))).isTrue();
+            assertThat(first.getCalls("downloadWithResult")).isEqualTo(1);
+            assertThat(second.getCalls("downloadWithResult")).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void ejectEndpointThatFailsWithCheckedException() throws Exception {
+        final FakeEndpoint first = new FakeEndpoint().answer("readContent", () -> {
+            throw new JSchException("Connection refused");
+        });
+        final FakeEndpoint second = new FakeEndpoint().answer("readContent", () -> {
+            throw new JSchException("Connection refused");
+        });
+        try (LoadBalancedSftpClient client = new LoadBalancedSftpClient(Arrays.asList(first.client(), second.client()), 1, 60_000)) {
+            assertThatThrownBy(() -> client.readContent("a.txt")).isInstanceOf(JSchException.class);
+            assertThat(client.getHealthyEndpointCount()).isZero();
+        }
+    }
+
+    @Test
+    void rethrowMissingFileWithoutFailingOver() throws Exception {
+        final FakeEndpoint first = new FakeEndpoint().answer("readContent", () -> {
+            throw new NoSuchFileException("a.txt");
+        });
+        final FakeEndpoint second = new FakeEndpoint().answer("readContent", () -> {
+            throw new NoSuchFileException("a.txt");
+        });
+        try (LoadBalancedSftpClient client = new LoadBalancedSftpClient(Arrays.asList(first.client(), second.client()), 1, 60_000)) {
+            assertThatThrownBy(() -> client.readContent("a.txt")).isInstanceOf(NoSuchFileException.class);
+
+            assertThat(first.getCalls("readContent") + second.getCalls("readContent")).isEqualTo(1);
+            assertThat(client.getHealthyEndpointCount()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void returnMissingFileResultWithoutFailingOver() throws Exception {
+        final SftpException missing = new SftpException(ChannelSftp.SSH_FX_NO_SUCH_FILE, "No such file");
+        final FakeEndpoint first = new FakeEndpoint().answer("downloadWithResult", () -> TransferResult.failed("a.txt", missing));
+        final FakeEndpoint second = new FakeEndpoint().answer("downloadWithResult", () -> TransferResult.failed("a.txt", missing));
+        try (LoadBalancedSftpClient client = new LoadBalancedSftpClient(Arrays.asList(first.client(), second.client()), 1, 60_000)) {
+            assertThat(client.download("a.txt", Paths.get("a.txt"))).isFalse();
+
+            assertThat(first.getCalls("downloadWithResult") + second.getCalls("downloadWithResult")).isEqualTo(1);
+            assertThat(client.getHealthyEndpointCount()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void ejectRoutedEndpointThatReturnsUnsuccessfulResult() throws Exception {
+        final FakeEndpoint endpoint = new FakeEndpoint()
+            .answer("uploadWithResult", () -> TransferResult.failed("a.txt", new JSchException("Connection refused")))
+            .answer("removeAll", () -> BatchResult.of(Collections.singletonList("a.txt"), Collections.emptyMap(),
+                Collections.singletonMap("a.txt", new SftpException(ChannelSftp.SSH_FX_NO_SUCH_FILE, "No such file"))));
+        try (LoadBalancedSftpClient client = new LoadBalancedSftpClient(Collections.singletonList(endpoint.client()), 1, 60_000)) {
+            assertThat(client.removeAll(Collections.singletonList("a.txt")).isAllSucceeded()).isFalse();
+            assertThat(client.getHealthyEndpointCount()).isEqualTo(1);
+
+            assertThat(client.upload("a.txt", new File("a.txt"))).isFalse();
+            assertThat(client.getHealthyEndpointCount()).isZero();
+        }
+    }
+
+    @Test
+    void reportCauseOfFailedStreamUpload() throws Exception {
+        final JSchException refused = new JSchException("Connection refused");
+        final FakeEndpoint endpoint = new FakeEndpoint().answer("uploadWithResult", () -> TransferResult.failed("a.txt", refused));
+        try (LoadBalancedSftpClient client = new LoadBalancedSftpClient(Collections.singletonList(endpoint.client()), 1, 60_000)) {
+            assertThat(client.uploadWithResult("a.txt", new ByteArrayInputStream(new byte[1])).getFailure()).isSameAs(refused);
+            assertThat(client.getHealthyEndpointCount()).isZero();
+        }
+    }
+
+    @Test
+    void keepEndpointThatReturnsFailureWithoutCause() throws Exception {
+        final FakeEndpoint endpoint = new FakeEndpoint()
+            .answer("uploadWithResult", () -> TransferResult.failed("a.txt"))
+            .answer("downloadWithResult", () -> TransferResult.failed("a.txt"));
+        try (LoadBalancedSftpClient client = new LoadBalancedSftpClient(Collections.singletonList(endpoint.client()), 1, 60_000)) {
+            assertThat(client.upload("a.txt", new ByteArrayInputStream(new byte[1]))).isFalse();
+            assertThat(client.download("a.txt", Paths.get("a.txt"))).isFalse();
+
+            assertThat(client.getHealthyEndpointCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void ejectEndpointAfterConsecutiveFailuresOnly() throws Exception {
+        final AtomicInteger attempt = new AtomicInteger();
+        final FakeEndpoint endpoint = new FakeEndpoint().answer("remove", () -> {
+            if (attempt.incrementAndGet() % 2 == 1) {
+                throw new JSchException("Connection refused");
+            }
+            return true;
+        });
+        try (LoadBalancedSftpClient client = new LoadBalancedSftpClient(Collections.singletonList(endpoint.client()), 2, 60_000)) {
+            for (int i = 0; i < 2; i++) {
+                assertThatThrownBy(() -> client.remove("a.txt")).isInstanceOf(JSchException.class);
+                assertThat(client.remove("a.txt")).isTrue();
+            }
+
+            assertThat(client.getHealthyEndpointCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void scoreUnsampledEndpointWithMeanLatency() throws Exception {
+        final FakeEndpoint busy = new FakeEndpoint().answer("streamFiles", Stream::empty).answer("remove", () -> {
+            TimeUnit.MILLISECONDS.sleep(5);
+            return true;
+        });
+        final FakeEndpoint idle = new FakeEndpoint().answer("remove", () -> {
+            TimeUnit.MILLISECONDS.sleep(5);
+            return true;
+        });
+        try (LoadBalancedSftpClient client = new LoadBalancedSftpClient(Arrays.asList(busy.client(), idle.client()), 3, 60_000);
+             Stream<File> files = client.streamFiles("dir")) {
+            for (int i = 0; i < 5; i++) {
+                assertThat(client.remove("a.txt")).isTrue();
+            }
+
+            assertThat(busy.getCalls("remove")).isZero();
+            assertThat(idle.getCalls("remove")).isEqualTo(5);
+        }
+    }
+
+    /**
+     * SftpClient that answers the stubbed methods and counts calls by method name.
+     */
+    private static final class FakeEndpoint {
+
+        private final Map<String, Callable<Object>> answers = new HashMap<>();
+
+        private final Map<String, AtomicInteger> calls = new HashMap<>();
+
+        @SuppressWarnings("unchecked")
+        private <T> FakeEndpoint answer(final String method, final Callable<T> answer) {
+            answers.put(method, (Callable<Object>) answer);
+            calls.put(method, new AtomicInteger());
+            return this;
+        }
+
+        private int getCalls(final String method) {
+            return calls.get(method).get();
+        }
+
+        private SftpClient client() {
+            return (SftpClient) Proxy.newProxyInstance(SftpClient.class.getClassLoader(), new Class<?>[]{SftpClient.class}, (proxy, method, args) -> {
+                if (method.getName().equals("close")) {
+                    return null;
+                }
+                final Callable<Object> answer = answers.get(method.getName());
+                if (answer == null) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+                calls.get(method.getName()).incrementAndGet();
+                return answer.call();
+            });
+        }
+
+    }
+
+}
@@ -0,0 +1,36 @@
+package io.github.shirohoo.sftp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class RemoteContentTest {
+
+    private static final byte[] CONTENT = "order,customer,amount\n".getBytes(StandardCharsets.US_ASCII);
+
+    @Test
+    void keepContentWithinThresholdInMemory() throws Exception {
+        try (RemoteContent content = RemoteContent.read(new ByteArrayInputStream(CONTENT), CONTENT.length, 1024, false)) {
+            assertThat(content.isInMemory()).isTrue();
+            assertThat(content.size()).isEqualTo(CONTENT.length);
+        }
+    }
+
+    @Test
+    void spillContentLongerThanExpected() throws Exception {
+        try (RemoteContent content = RemoteContent.read(new ByteArrayInputStream(CONTENT), 4, 1024, false)) {
+            assertThat(content.isInMemory()).isFalse();
+            assertThat(content.size()).isEqualTo(CONTENT.length);
+        }
+    }
+
+    @Test
+    void spillExpectedSizeBeyondByteBufferCapacityWhateverTheThreshold() throws Exception {
+        try (RemoteContent content = RemoteContent.read(new ByteArrayInputStream(CONTENT), 3L * 1024 * 1024 * 1024, Long.MAX_VALUE, false)) {
+            assertThat(content.isInMemory()).isFalse();
+            assertThat(content.size()).isEqualTo(CONTENT.length);
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package io.github.shirohoo.sftp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class RemoteDirectoryCacheTest {
+
+    private static final String[] DIRS = {"a", "b", "c"};
+
+    @Test
+    void returnDepthOfLongestCachedPrefix() {
+        final RemoteDirectoryCache cache = new RemoteDirectoryCache(16, 0);
+        assertThat(cache.getCachedDepth(DIRS)).isZero();
+
+        cache.put(DIRS, 1);
+        cache.put(DIRS, 2);
+
+        assertThat(cache.getCachedDepth(DIRS)).isEqualTo(2);
+        assertThat(cache.getCachedDepth(new String[]{"a", "x"})).isEqualTo(1);
+    }
+
+    @Test
+    void forgetDirectoriesAfterTtl() throws Exception {
+        final RemoteDirectoryCache cache = new RemoteDirectoryCache(16, 50);
+        cache.put(DIRS, 3);
+
+        TimeUnit.MILLISECONDS.sleep(100);
+
+        assertThat(cache.getCachedDepth(DIRS)).isZero();
+    }
+
+    @Test
+    void evictLeastRecentlyUsedDirectoryBeyondMaxSize() {
+        final RemoteDirectoryCache cache = new RemoteDirectoryCache(2, 0);
+        cache.put(DIRS, 1);
+        cache.put(DIRS, 2);
+        cache.getCachedDepth(new String[]{"a"});
+
+        cache.put(DIRS, 3);
+
+        assertThat(cache.getCachedDepth(new String[]{"a", "b"})).isEqualTo(1);
+        assertThat(cache.getCachedDepth(DIRS)).isEqualTo(3);
+    }
+
+    @Test
+    void invalidateAncestorsButKeepSiblings() {
+        final RemoteDirectoryCache cache = new RemoteDirectoryCache(16, 0);
+        cache.put(DIRS, 3);
+        cache.put(new String[]{"a", "d"}, 2);
+
+        cache.invalidate(DIRS);
+
+        assertThat(cache.getCachedDepth(DIRS)).isZero();
+        assertThat(cache.getCachedDepth(new String[]{"a", "d"})).isEqualTo(2);
+    }
+
+    @Test
+    void invalidateWholeTreeOfRemovedDirectory() {
+        final RemoteDirectoryCache cache = new RemoteDirectoryCache(16, 0);
+        cache.put(DIRS, 3);
+        cache.put(new String[]{"a", "d"}, 2);
+        cache.put(new String[]{"e"}, 1);
+
+        cache.invalidateTree(new String[]{"a"});
+
+        assertThat(cache.getCachedDepth(DIRS)).isZero();
+        assertThat(cache.getCachedDepth(new String[]{"a", "d"})).isZero();
+        assertThat(cache.getCachedDepth(new String[]{"e"})).isEqualTo(1);
+    }
+
+    @Test
+    void cacheNothingWhenDisabled() {
+        final RemoteDirectoryCache cache = new RemoteDirectoryCache(0, 0);
+        cache.put(DIRS, 3);
+
+        assertThat(cache.getCachedDepth(DIRS)).isZero();
+    }
+
+}
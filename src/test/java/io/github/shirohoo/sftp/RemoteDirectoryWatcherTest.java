@@ -0,0 +1,121 @@
+package io.github.shirohoo.sftp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RemoteDirectoryWatcherTest {
+
+    private static final WatchOptions FAST = WatchOptions.builder().minInterval(20).maxInterval(50).stableChecks(0).build();
+
+    private EmbeddedSftpServer server;
+
+    private Path watchedDir;
+
+    private final BlockingQueue<RemoteChangeEvent> events = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = EmbeddedSftpServer.start(true);
+        watchedDir = Files.createDirectories(server.getHome().resolve("inbox"));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void reportCreatedModifiedAndDeletedFiles() throws Exception {
+        Files.write(watchedDir.resolve("existing.txt"), "one".getBytes(StandardCharsets.UTF_8));
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().poolWarmUp(true).build());
+             RemoteDirectoryWatcher watcher = new RemoteDirectoryWatcher(client, 1)) {
+            watcher.watch("inbox", events::add, FAST);
+            TimeUnit.MILLISECONDS.sleep(300);
+            assertThat(events).isEmpty();
+
+            Files.write(watchedDir.resolve("new.txt"), "new".getBytes(StandardCharsets.UTF_8));
+            assertNextEvent(RemoteChangeEvent.Type.CREATED, "new.txt", 3);
+
+            Files.write(watchedDir.resolve("existing.txt"), "one two".getBytes(StandardCharsets.UTF_8));
+            assertNextEvent(RemoteChangeEvent.Type.MODIFIED, "existing.txt", 7);
+
+            Files.delete(watchedDir.resolve("new.txt"));
+            assertNextEvent(RemoteChangeEvent.Type.DELETED, "new.txt", 3);
+        }
+    }
+
+    @Test
+    void reportGrowingFileOnlyOnceItIsStable() throws Exception {
+        final WatchOptions options = WatchOptions.builder().minInterval(20).maxInterval(50).stableChecks(3).build();
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().poolWarmUp(true).build());
+             RemoteDirectoryWatcher watcher = new RemoteDirectoryWatcher(client, 1)) {
+            watcher.watch("inbox", events::add, options);
+            TimeUnit.MILLISECONDS.sleep(300);
+
+            try (OutputStream out = Files.newOutputStream(watchedDir.resolve("growing.txt"), StandardOpenOption.CREATE_NEW)) {
+                for (int i = 0; i < 20; i++) {
+                    out.write(new byte[100]);
+                    out.flush();
+                    TimeUnit.MILLISECONDS.sleep(25);
+                }
+                assertThat(events).isEmpty();
+            }
+
+            assertNextEvent(RemoteChangeEvent.Type.CREATED, "growing.txt", 2_000);
+            TimeUnit.MILLISECONDS.sleep(300);
+            assertThat(events).isEmpty();
+        }
+    }
+
+    @Test
+    void stopPollingWhenWatchIsClosed() throws Exception {
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().poolWarmUp(true).build());
+             RemoteDirectoryWatcher watcher = new RemoteDirectoryWatcher(client, 1)) {
+            final Closeable watch = watcher.watch("inbox", events::add, FAST);
+            TimeUnit.MILLISECONDS.sleep(300);
+
+            watch.close();
+            Files.write(watchedDir.resolve("after-close.txt"), "late".getBytes(StandardCharsets.UTF_8));
+
+            assertThat(events.poll(500, TimeUnit.MILLISECONDS)).isNull();
+        }
+    }
+
+    @Test
+    void stopEveryWatchWhenWatcherIsClosed() throws Exception {
+        Files.createDirectories(server.getHome().resolve("outbox"));
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().poolWarmUp(true).build())) {
+            final RemoteDirectoryWatcher watcher = new RemoteDirectoryWatcher(client, 2);
+            watcher.watch("inbox", events::add, FAST);
+            watcher.watch("outbox", events::add, FAST);
+            TimeUnit.MILLISECONDS.sleep(300);
+
+            watcher.close();
+            Files.write(watchedDir.resolve("after-close.txt"), "late".getBytes(StandardCharsets.UTF_8));
+            Files.write(server.getHome().resolve("outbox/after-close.txt"), "late".getBytes(StandardCharsets.UTF_8));
+
+            assertThat(events.poll(500, TimeUnit.MILLISECONDS)).isNull();
+        }
+    }
+
+    private void assertNextEvent(final RemoteChangeEvent.Type type, final String name, final long size) throws InterruptedException {
+        final RemoteChangeEvent event = events.poll(5, TimeUnit.SECONDS);
+        assertThat(event).isNotNull();
+        assertThat(event.getDirectory()).isEqualTo("inbox");
+        assertThat(tuple(event.getType(), event.getEntry().getName(), event.getEntry().getSize())).isEqualTo(tuple(type, name, size));
+    }
+
+}
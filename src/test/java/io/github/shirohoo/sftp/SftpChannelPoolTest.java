@@ -0,0 +1,169 @@
+package io.github.shirohoo.sftp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SftpChannelPoolTest {
+
+    private EmbeddedSftpServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = EmbeddedSftpServer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void countIdleChannelsAgainstPoolMaxTotal() throws Exception {
+        try (SftpChannelPool pool = createPool(server.properties().poolMaxTotal(2).poolMinIdle(2).poolEvictionInterval(0L).poolMaxWait(200L).build())) {
+            pool.warmUp();
+            final ChannelSftp leased = pool.borrow();
+            pool.warmUp();
+
+            assertThat(pool.getActiveCount()).isEqualTo(1);
+            assertThat(pool.getIdleCount()).isEqualTo(1);
+
+            final ChannelSftp second = pool.borrow();
+            assertThatThrownBy(pool::borrow).isInstanceOf(JSchException.class);
+            pool.release(leased);
+            pool.release(second);
+        }
+    }
+
+    @Test
+    void failBorrowAfterPoolMaxWait() throws Exception {
+        try (SftpChannelPool pool = createPool(server.properties().poolMaxTotal(1).poolMaxWait(200L).build())) {
+            final ChannelSftp leased = pool.borrow();
+            final long start = System.nanoTime();
+
+            assertThatThrownBy(pool::borrow).isInstanceOf(JSchException.class).hasMessageContaining("Timeout");
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(150);
+            pool.release(leased);
+        }
+    }
+
+    @Test
+    void handReleasedChannelToWaitingBorrower() throws Exception {
+        try (SftpChannelPool pool = createPool(server.properties().poolMaxTotal(1).poolMaxWait(5_000L).build())) {
+            final ChannelSftp leased = pool.borrow();
+            final CompletableFuture<ChannelSftp> waiting = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return pool.borrow();
+                } catch (JSchException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            TimeUnit.MILLISECONDS.sleep(100);
+            assertThat(waiting).isNotDone();
+
+            pool.release(leased);
+
+            assertThat(waiting.get(5, TimeUnit.SECONDS)).isSameAs(leased);
+            pool.release(leased);
+        }
+    }
+
+    @Test
+    void neverKeepMoreIdleChannelsThanPoolMaxIdle() throws Exception {
+        try (SftpChannelPool pool = createPool(server.properties().poolMaxTotal(8).poolMaxIdle(2).poolEvictionInterval(0L).build())) {
+            final List<ChannelSftp> leased = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                leased.add(pool.borrow());
+            }
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<CompletableFuture<Void>> releases = new ArrayList<>();
+            for (ChannelSftp channel : leased) {
+                releases.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    pool.release(channel);
+                }));
+            }
+            start.countDown();
+            CompletableFuture.allOf(releases.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+            assertThat(pool.getIdleCount()).isEqualTo(2);
+            assertThat(pool.getActiveCount()).isZero();
+            assertThat(leased.stream().filter(ChannelSftp::isConnected)).hasSize(2);
+        }
+    }
+
+    @Test
+    void failWaitingBorrowerWhenPoolIsClosed() throws Exception {
+        final SftpChannelPool pool = createPool(server.properties().poolMaxTotal(1).poolMaxWait(30_000L).build());
+        final ChannelSftp leased = pool.borrow();
+        final CompletableFuture<ChannelSftp> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.borrow();
+            } catch (JSchException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertThat(waiting).isNotDone();
+
+        pool.close();
+
+        assertThatThrownBy(() -> waiting.get(5, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasMessageContaining("pool is closed");
+        pool.release(leased);
+        assertThat(leased.isConnected()).isFalse();
+    }
+
+    @Test
+    void ignoreReleaseOfChannelLeasedFromAnotherPool() throws Exception {
+        try (SftpChannelPool pool = createPool(server.properties().build());
+             SftpChannelPool other = createPool(server.properties().build())) {
+            final ChannelSftp leased = pool.borrow();
+
+            other.release(leased);
+
+            assertThat(leased.isConnected()).isTrue();
+            assertThat(other.getIdleCount()).isZero();
+            pool.release(leased);
+            assertThat(pool.getIdleCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void evictChannelsIdleLongerThanPoolMaxIdleTime() throws Exception {
+        try (SftpChannelPool pool = createPool(server.properties().poolMaxIdleTime(100L).poolEvictionInterval(50L).build())) {
+            final ChannelSftp leased = pool.borrow();
+            pool.release(leased);
+            assertThat(pool.getIdleCount()).isEqualTo(1);
+
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (pool.getIdleCount() > 0 && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(20);
+            }
+
+            assertThat(pool.getIdleCount()).isZero();
+            assertThat(leased.isConnected()).isFalse();
+        }
+    }
+
+    private static SftpChannelPool createPool(final SftpProperties properties) {
+        return new SftpChannelPool(new SftpConnectionFactory(properties, SftpMetricsListener.NO_OP), properties);
+    }
+
+}
@@ -0,0 +1,79 @@
+package io.github.shirohoo.sftp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import com.jcraft.jsch.ChannelSftp;
+import java.io.IOException;
+import java.net.ServerSocket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SftpConnectionFactoryTest {
+
+    private EmbeddedSftpServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = EmbeddedSftpServer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void retryRejectedChannelOpenOnConnectedSession() throws Exception {
+        final SftpConnectionFactory factory = new SftpConnectionFactory(server.properties().retryBackoff(10L).build(), SftpMetricsListener.NO_OP);
+        server.rejectChannelOpens(1);
+
+        final ChannelSftp sftp = factory.create();
+
+        assertThat(sftp.isConnected()).isTrue();
+        assertThat(server.getSessionCount()).isEqualTo(1);
+        factory.destroy(sftp);
+    }
+
+    @Test
+    void failAfterRetryMaxAttemptsOfChannelOpen() {
+        final SftpConnectionFactory factory = new SftpConnectionFactory(server.properties().retryMaxAttempts(2).retryBackoff(10L).build(), SftpMetricsListener.NO_OP);
+        server.rejectChannelOpens(2);
+
+        assertThatThrownBy(factory::create).isInstanceOf(SftpClientException.class);
+        assertThat(server.getSessionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shareOpenCircuitBetweenClientsOfTheSameEndpoint() throws Exception {
+        final int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        final SftpProperties properties = server.properties().port(port).retryMaxAttempts(1).circuitBreakerFailureThreshold(1).circuitBreakerOpenTime(60_000L).build();
+        final SftpConnectionFactory first = new SftpConnectionFactory(properties, SftpMetricsListener.NO_OP);
+        final SftpConnectionFactory second = new SftpConnectionFactory(properties, SftpMetricsListener.NO_OP);
+
+        assertThatThrownBy(first::create).isInstanceOf(SftpClientException.class);
+
+        assertThatThrownBy(second::create).isInstanceOfSatisfying(SftpClientException.class, e -> assertThat(e.getErrorType()).isEqualTo(SftpErrorType.CIRCUIT_OPEN));
+        final SftpConnectionFactory other = new SftpConnectionFactory(server.properties().retryMaxAttempts(1).build(), SftpMetricsListener.NO_OP);
+        other.destroy(other.create());
+    }
+
+    @Test
+    void keepCircuitSettingsOfEarlierClients() throws Exception {
+        final int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        final SftpConnectionFactory strict = new SftpConnectionFactory(server.properties().port(port).retryMaxAttempts(1).circuitBreakerFailureThreshold(1).circuitBreakerOpenTime(60_000L).build(), SftpMetricsListener.NO_OP);
+        final SftpConnectionFactory lenient = new SftpConnectionFactory(server.properties().port(port).retryMaxAttempts(1).circuitBreakerFailureThreshold(3).circuitBreakerOpenTime(60_000L).build(), SftpMetricsListener.NO_OP);
+
+        assertThatThrownBy(strict::create).isInstanceOf(SftpClientException.class);
+
+        assertThatThrownBy(strict::create).isInstanceOfSatisfying(SftpClientException.class, e -> assertThat(e.getErrorType()).isEqualTo(SftpErrorType.CIRCUIT_OPEN));
+        assertThatThrownBy(lenient::create).isInstanceOfSatisfying(SftpClientException.class, e -> assertThat(e.getErrorType()).isEqualTo(SftpErrorType.TRANSIENT));
+    }
+
+}
@@ -0,0 +1,49 @@
+package io.github.shirohoo.sftp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.SftpException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.file.FileSystemException;
+import java.nio.file.NoSuchFileException;
+import org.junit.jupiter.api.Test;
+
+class SftpErrorTypeTest {
+
+    @Test
+    void retryLostConnections() {
+        assertThat(SftpErrorType.classify(new SocketException("Connection reset"))).isEqualTo(SftpErrorType.TRANSIENT);
+        assertThat(SftpErrorType.classify(new SocketTimeoutException("Read timed out"))).isEqualTo(SftpErrorType.TRANSIENT);
+        assertThat(SftpErrorType.classify(new EOFException("Transferred 10 of 20 bytes"))).isEqualTo(SftpErrorType.TRANSIENT);
+        assertThat(SftpErrorType.classify(new JSchException("java.net.ConnectException: Connection refused", new ConnectException("Connection refused")))).isEqualTo(SftpErrorType.TRANSIENT);
+        assertThat(SftpErrorType.classify(new SftpException(ChannelSftp.SSH_FX_FAILURE, "java.io.IOException: inputstream is closed", new IOException("inputstream is closed"))))
+            .isEqualTo(SftpErrorType.TRANSIENT);
+        assertThat(SftpErrorType.classify(new SftpException(ChannelSftp.SSH_FX_CONNECTION_LOST, "Connection lost"))).isEqualTo(SftpErrorType.TRANSIENT);
+    }
+
+    @Test
+    void failOtherIOExceptionsWithoutRetry() {
+        assertThat(SftpErrorType.classify(new IOException("Content is too large for a byte array. size: 3000000000"))).isEqualTo(SftpErrorType.FAILURE);
+        assertThat(SftpErrorType.classify(new IOException("Checksum mismatch. target path: a.txt, expected: 00000000, actual: cbf43926"))).isEqualTo(SftpErrorType.FAILURE);
+        assertThat(SftpErrorType.classify(new IOException("No space left on device"))).isEqualTo(SftpErrorType.FAILURE);
+        assertThat(SftpErrorType.classify(new InterruptedIOException("Transfer interrupted"))).isEqualTo(SftpErrorType.FAILURE);
+        assertThat(SftpErrorType.classify(new SftpException(ChannelSftp.SSH_FX_FAILURE, "java.io.IOException: Local file failure", new IOException("Local file failure"))))
+            .isEqualTo(SftpErrorType.FAILURE);
+    }
+
+    @Test
+    void classifyByCauseOfWrappingException() {
+        assertThat(SftpErrorType.classify(new NoSuchFileException("a.txt"))).isEqualTo(SftpErrorType.NOT_FOUND);
+        assertThat(SftpErrorType.classify(new FileSystemException("a.txt"))).isEqualTo(SftpErrorType.FAILURE);
+        assertThat(SftpErrorType.classify(new IOException("Open remote file failure", new SftpException(ChannelSftp.SSH_FX_PERMISSION_DENIED, "Permission denied"))))
+            .isEqualTo(SftpErrorType.PERMISSION_DENIED);
+        assertThat(SftpErrorType.classify(new NoSuchFileException("a.txt").initCause(new SocketException("Connection reset")))).isEqualTo(SftpErrorType.TRANSIENT);
+    }
+
+}
@@ -0,0 +1,136 @@
+package io.github.shirohoo.sftp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import org.junit.jupiter.api.Test;
+
+class SftpPropertiesTest {
+
+    @Test
+    void defaultMissingValues() {
+        final SftpProperties properties = SftpProperties.builder().host("127.0.0.1").poolMaxTotal(4).build();
+
+        assertThat(properties.getPoolMaxIdle()).isEqualTo(4);
+        assertThat(properties.getPoolMinIdle()).isZero();
+        assertThat(properties.getSegmentSize()).isEqualTo(16_777_216L);
+        assertThat(properties.getSegmentParallelism()).isEqualTo(1);
+    }
+
+    @Test
+    void applyBuilderDefaultsInNoArgConstructor() {
+        final SftpProperties properties = new SftpProperties();
+
+        assertThat(properties.getKeyMode()).isFalse();
+        assertThat(properties.getPort()).isEqualTo(22);
+        assertThat(properties.getPoolMaxTotal()).isEqualTo(8);
+        assertThat(properties.getPoolMaxIdle()).isEqualTo(8);
+        assertThat(properties.getTransferBufferSize()).isEqualTo(262_144);
+        assertThat(properties.getPayloadCompression()).isEqualTo(PayloadCompression.NONE);
+        assertThat(properties.getChecksumAlgorithm()).isEqualTo(ChecksumAlgorithm.NONE);
+        assertThat(properties.getHost()).isNull();
+        assertThat(properties.getRoot()).isNull();
+    }
+
+    @Test
+    void applyBuilderDefaultsAndChecksInConnectionConstructor() {
+        final SftpProperties properties = new SftpProperties(null, null, 2222, null, null, null, "127.0.0.1", "user", "secret", null, null, null);
+
+        assertThat(properties.getKeyMode()).isFalse();
+        assertThat(properties.getPort()).isEqualTo(2222);
+        assertThat(properties.getSessionConnectTimeout()).isEqualTo(15_000);
+        assertThat(properties.getPoolMaxIdle()).isEqualTo(properties.getPoolMaxTotal());
+        assertThat(properties.getHost()).isEqualTo("127.0.0.1");
+        assertThat(properties.getRoot()).isNull();
+    }
+
+    @Test
+    void rejectNegativeTimesAndLimits() {
+        assertRejected(SftpProperties.builder().poolMaxWait(-1L), "poolMaxWait");
+        assertRejected(SftpProperties.builder().poolMaxLifetime(-1L), "poolMaxLifetime");
+        assertRejected(SftpProperties.builder().retryBackoff(-1L), "retryBackoff");
+        assertRejected(SftpProperties.builder().retryMaxBackoff(-1L), "retryMaxBackoff");
+        assertRejected(SftpProperties.builder().bandwidthLimit(-1L), "bandwidthLimit");
+        assertRejected(SftpProperties.builder().directoryCacheSize(-1), "directoryCacheSize");
+        assertRejected(SftpProperties.builder().resumeVerifyLength(-1), "resumeVerifyLength");
+        assertRejected(SftpProperties.builder().circuitBreakerFailureThreshold(-1), "circuitBreakerFailureThreshold");
+        assertRejected(SftpProperties.builder().circuitBreakerOpenTime(-1L), "circuitBreakerOpenTime");
+    }
+
+    @Test
+    void rejectSegmentSizeThatNeverAdvances() {
+        assertThatThrownBy(() -> SftpProperties.builder().segmentSize(0L).build())
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("segmentSize");
+        assertThatThrownBy(() -> SftpProperties.builder().segmentSize(-1L).build())
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectSegmentParallelismBelowOne() {
+        assertThatThrownBy(() -> SftpProperties.builder().segmentParallelism(0).build())
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("segmentParallelism");
+    }
+
+    @Test
+    void rejectPoolMaxTotalBelowOne() {
+        assertThatThrownBy(() -> SftpProperties.builder().poolMaxTotal(0).build())
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("poolMaxTotal");
+    }
+
+    @Test
+    void rejectIdleLimitsOutsideThePool() {
+        assertThatThrownBy(() -> SftpProperties.builder().poolMinIdle(-1).build())
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("poolMinIdle");
+        assertThatThrownBy(() -> SftpProperties.builder().poolMinIdle(3).poolMaxIdle(2).build())
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("poolMaxIdle");
+        assertThatThrownBy(() -> SftpProperties.builder().poolMaxTotal(2).poolMaxIdle(3).build())
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("poolMaxIdle");
+    }
+
+    @Test
+    void rejectTransferSettingsBelowOne() {
+        assertThatThrownBy(() -> SftpProperties.builder().parallelism(0).build())
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("parallelism");
+        assertThatThrownBy(() -> SftpProperties.builder().transferBufferSize(0).build())
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("transferBufferSize");
+        assertThatThrownBy(() -> SftpProperties.builder().writeBehindBuffers(0).build())
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("writeBehindBuffers");
+        assertThatThrownBy(() -> SftpProperties.builder().retryMaxAttempts(0).build())
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("retryMaxAttempts");
+    }
+
+    @Test
+    void rejectSessionCompressionLevelOutsideZlibRange() {
+        assertThatThrownBy(() -> SftpProperties.builder().sessionCompressionLevel(0).build())
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("sessionCompressionLevel");
+        assertThatThrownBy(() -> SftpProperties.builder().sessionCompressionLevel(10).build())
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("sessionCompressionLevel");
+    }
+
+    @Test
+    void rejectReadSpillThresholdBeyondByteBufferCapacity() {
+        assertThatThrownBy(() -> SftpProperties.builder().readSpillThreshold((long) Integer.MAX_VALUE).build())
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("readSpillThreshold");
+        assertThatThrownBy(() -> SftpProperties.builder().readSpillThreshold(-1L).build())
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void assertRejected(final SftpProperties.SftpPropertiesBuilder builder, final String name) {
+        assertThatThrownBy(builder::build)
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining(name);
+    }
+
+}
@@ -0,0 +1,125 @@
+package io.github.shirohoo.sftp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.SftpException;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TransferManagerTest {
+
+    private EmbeddedSftpServer server;
+
+    @TempDir
+    Path localDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = EmbeddedSftpServer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void runJobThatRanOutOfRetriesAgainAfterRestart() throws Exception {
+        final Path journalPath = localDir.resolve("journal/transfers.log");
+        final Path uploadFile = Files.write(localDir.resolve("report.csv"), "id,amount\n1,100\n".getBytes(StandardCharsets.UTF_8));
+        final TransferJob job = TransferJob.builder().id("report").upload("inbox/report.csv", uploadFile).build();
+
+        try (DefaultSftpClient unreachable = new DefaultSftpClient(server.properties().port(getFreePort()).retryMaxAttempts(1).build());
+             TransferManager manager = new TransferManager(unreachable, journalPath, 1, 1, 0)) {
+            final TransferResult result = manager.submit(job).handle((value, e) -> value).get(30, TimeUnit.SECONDS);
+
+            assertThat(result == null || !result.isSucceeded()).isTrue();
+        }
+
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().build());
+             TransferManager manager = new TransferManager(client, journalPath, 1)) {
+            assertThat(manager.getRecoveredResults()).containsOnlyKeys("report");
+
+            final TransferResult result = manager.getRecoveredResults().get("report").get(30, TimeUnit.SECONDS);
+
+            assertThat(result.isSucceeded()).isTrue();
+            assertThat(server.getHome().resolve("inbox/report.csv")).hasContent("id,amount\n1,100\n");
+        }
+
+        try (DefaultSftpClient client = new DefaultSftpClient(server.properties().build());
+             TransferManager manager = new TransferManager(client, journalPath, 1)) {
+            assertThat(manager.getRecoveredResults()).isEmpty();
+        }
+    }
+
+    @Test
+    void retryTransientFailuresWithinOneManager() throws Exception {
+        final Path uploadFile = Files.write(localDir.resolve("report.csv"), "id\n".getBytes(StandardCharsets.UTF_8));
+        final AtomicInteger calls = new AtomicInteger();
+        final SftpClient flaky = uploadingClient(() -> calls.incrementAndGet() < 3
+            ? TransferResult.failed("inbox/report.csv", new JSchException("Connection refused"))
+            : TransferResult.of("inbox/report.csv", 3, ChecksumAlgorithm.NONE, null, null));
+
+        try (TransferManager manager = new TransferManager(flaky, localDir.resolve("transfers.log"), 1, 3, 10)) {
+            final TransferResult result = manager.submit(TransferJob.builder().id("report").upload("inbox/report.csv", uploadFile).build()).get(30, TimeUnit.SECONDS);
+
+            assertThat(result.isSucceeded()).isTrue();
+            assertThat(calls.get()).isEqualTo(3);
+            assertThat(manager.getRetriedCount()).isEqualTo(2);
+            assertThat(manager.getSucceededCount()).isEqualTo(1);
+        }
+        try (TransferManager manager = new TransferManager(flaky, localDir.resolve("transfers.log"), 1)) {
+            assertThat(manager.getRecoveredResults()).isEmpty();
+        }
+    }
+
+    @Test
+    void failWithoutRetryWhenErrorIsNotTransient() throws Exception {
+        final Path uploadFile = Files.write(localDir.resolve("report.csv"), "id\n".getBytes(StandardCharsets.UTF_8));
+        final AtomicInteger calls = new AtomicInteger();
+        final SftpClient denied = uploadingClient(() -> {
+            calls.incrementAndGet();
+            return TransferResult.failed("inbox/report.csv", new SftpException(ChannelSftp.SSH_FX_PERMISSION_DENIED, "Permission denied"));
+        });
+
+        try (TransferManager manager = new TransferManager(denied, localDir.resolve("transfers.log"), 1, 3, 10)) {
+            final TransferResult result = manager.submit(TransferJob.builder().id("report").upload("inbox/report.csv", uploadFile).build()).get(30, TimeUnit.SECONDS);
+
+            assertThat(result.isSucceeded()).isFalse();
+            assertThat(calls.get()).isEqualTo(1);
+            assertThat(manager.getRetriedCount()).isZero();
+            assertThat(manager.getFailedCount()).isEqualTo(1);
+        }
+        try (TransferManager manager = new TransferManager(denied, localDir.resolve("transfers.log"), 1)) {
+            assertThat(manager.getRecoveredResults()).isEmpty();
+        }
+    }
+
+    private static SftpClient uploadingClient(final Supplier<TransferResult> answer) {
+        return (SftpClient) Proxy.newProxyInstance(SftpClient.class.getClassLoader(), new Class<?>[]{SftpClient.class}, (proxy, method, args) -> {
+            if (!method.getName().equals("uploadWithResult")) {
+                throw new UnsupportedOperationException(method.getName());
+            }
+            return answer.get();
+        });
+    }
+
+    private static int getFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+}
@@ -0,0 +1,212 @@
+package io.github.shirohoo.sftp;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.CopyOption;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.apache.sshd.common.channel.Channel;
+import org.apache.sshd.common.file.virtualfs.VirtualFileSystemFactory;
+import org.apache.sshd.common.session.Session;
+import org.apache.sshd.common.session.SessionListener;
+import org.apache.sshd.core.CoreModuleProperties;
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.channel.ChannelSessionFactory;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+import org.apache.sshd.server.session.ServerSession;
+import org.apache.sshd.sftp.SftpModuleProperties;
+import org.apache.sshd.sftp.server.FileHandle;
+import org.apache.sshd.sftp.server.SftpEventListener;
+import org.apache.sshd.sftp.server.SftpSubsystemFactory;
+
+/**
+ * In-process sftp server on localhost whose file system is a temp directory, so tests and benchmarks run offline and without any external setup.
+ */
+final class EmbeddedSftpServer implements Closeable {
+
+    static final String USERNAME = "benchmark";
+
+    static final String PASSWORD = "benchmark";
+
+    private final SshServer server;
+
+    private final Path home;
+
+    private final AtomicInteger sessions;
+
+    private final AtomicInteger channelRejects;
+
+    private final AtomicLong writeLimit;
+
+    private final AtomicLong writtenBytes;
+
+    private EmbeddedSftpServer(SshServer server, Path home, AtomicInteger sessions, AtomicInteger channelRejects, AtomicLong writeLimit, AtomicLong writtenBytes) {
+        this.server = server;
+        this.home = home;
+        this.sessions = sessions;
+        this.channelRejects = channelRejects;
+        this.writeLimit = writeLimit;
+        this.writtenBytes = writtenBytes;
+    }
+
+    static EmbeddedSftpServer start() throws IOException {
+        return start(false);
+    }
+
+    static EmbeddedSftpServer start(final boolean tcpNoDelay) throws IOException {
+        return start(tcpNoDelay, true);
+    }
+
+    /**
+     * With tcpNoDelay the server sends small replies at once instead of holding them for the delayed ack of the client, which makes tests that exchange many small requests fast. Benchmarks keep the default so their numbers stay
+     * comparable. Without posixRename the server acts like a plain SFTP v3 server: it does not advertise posix-rename@openssh.com and refuses to rename a file over an existing one.
+     */
+    static EmbeddedSftpServer start(final boolean tcpNoDelay, final boolean posixRename) throws IOException {
+        final Path home = Files.createTempDirectory("sftp-server-");
+        final SshServer server = SshServer.setUpDefaultServer();
+        final AtomicInteger sessions = new AtomicInteger();
+        final AtomicInteger channelRejects = new AtomicInteger();
+        final AtomicLong writeLimit = new AtomicLong(Long.MAX_VALUE);
+        final AtomicLong writtenBytes = new AtomicLong();
+        final SftpSubsystemFactory sftp = new SftpSubsystemFactory();
+        sftp.addSftpEventListener(new SftpEventListener() {
+            @Override
+            public void writing(final ServerSession session, final String remoteHandle, final FileHandle localHandle, final long offset, final byte[] data, final int dataOffset, final int dataLen) throws IOException {
+                if (offset + dataLen > writeLimit.get()) {
+                    throw new IOException("No space left on device");
+                }
+                writtenBytes.addAndGet(dataLen);
+            }
+
+            @Override
+            public void moving(final ServerSession session, final Path srcPath, final Path dstPath, final Collection<CopyOption> opts) throws IOException {
+                if (!posixRename && Files.exists(dstPath)) {
+                    throw new FileAlreadyExistsException(dstPath.toString());
+                }
+            }
+        });
+        server.setHost("127.0.0.1");
+        server.setPort(0);
+        server.setKeyPairProvider(new SimpleGeneratorHostKeyProvider());
+        server.setPasswordAuthenticator((username, password, session) -> USERNAME.equals(username) && PASSWORD.equals(password));
+        server.setSubsystemFactories(Collections.singletonList(sftp));
+        server.setFileSystemFactory(new VirtualFileSystemFactory(home));
+        server.setChannelFactories(Collections.singletonList(new ChannelSessionFactory() {
+            @Override
+            public Channel createChannel(final Session session) throws IOException {
+                return channelRejects.getAndUpdate(count -> Math.max(count - 1, 0)) > 0 ? null : super.createChannel(session);
+            }
+        }));
+        server.addSessionListener(new SessionListener() {
+            @Override
+            public void sessionCreated(final Session session) {
+                sessions.incrementAndGet();
+            }
+        });
+        CoreModuleProperties.TCP_NODELAY.set(server, tcpNoDelay);
+        if (!posixRename) {
+            SftpModuleProperties.OPENSSH_EXTENSIONS.set(server, "fsync@openssh.com=1");
+        }
+        server.start();
+        return new EmbeddedSftpServer(server, home, sessions, channelRejects, writeLimit, writtenBytes);
+    }
+
+    SftpProperties.SftpPropertiesBuilder properties() {
+        return SftpProperties.builder()
+            .host("127.0.0.1")
+            .port(server.getPort())
+            .username(USERNAME)
+            .password(PASSWORD)
+            .root("/");
+    }
+
+    Path getHome() {
+        return home;
+    }
+
+    /**
+     * Number of ssh sessions clients have opened so far.
+     */
+    int getSessionCount() {
+        return sessions.get();
+    }
+
+    /**
+     * Refuse the next count channel open requests, as a server at its session limit does.
+     */
+    void rejectChannelOpens(final int count) {
+        channelRejects.set(count);
+    }
+
+    /**
+     * Fail writes that reach past the first bytes of a file, as a full disk does.
+     */
+    void failWritesBeyond(final long bytes) {
+        writeLimit.set(bytes);
+    }
+
+    /**
+     * Bytes clients have written to files so far.
+     */
+    long getWrittenBytes() {
+        return writtenBytes.get();
+    }
+
+    /**
+     * Create a file of random content under the server root and return its path relative to root.
+     */
+    String createFile(final String relativePath, final long size) throws IOException {
+        final Path file = home.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        final byte[] chunk = new byte[64 * 1024];
+        new Random(size).nextBytes(chunk);
+        try (OutputStream outputStream = Files.newOutputStream(file)) {
+            for (long written = 0; written < size; written += chunk.length) {
+                outputStream.write(chunk, 0, (int) Math.min(chunk.length, size - written));
+            }
+        }
+        return relativePath;
+    }
+
+    /**
+     * Create a file of CSV-like text, which compresses roughly as well as typical exports, and return its path relative to root.
+     */
+    String createTextFile(final String relativePath, final long size) throws IOException {
+        final Path file = home.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        final Random random = new Random(size);
+        final StringBuilder line = new StringBuilder();
+        try (OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(file))) {
+            long written = 0;
+            for (long row = 0; written < size; row++) {
+                line.setLength(0);
+                line.append(row).append(",customer-").append(random.nextInt(10_000)).append(",ORDER,").append(random.nextInt(1_000_000) / 100d).append(",KRW,2021-01-01T00:00:00Z\n");
+                final byte[] bytes = line.toString().getBytes(StandardCharsets.US_ASCII);
+                final int length = (int) Math.min(bytes.length, size - written);
+                outputStream.write(bytes, 0, length);
+                written += length;
+            }
+        }
+        return relativePath;
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.stop(true);
+        try (Stream<Path> paths = Files.walk(home)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+}